@@ -14,7 +14,9 @@ import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 
 import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
 import com.hopding.pdflib.factories.PDDocumentFactory;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDDocument;
@@ -22,7 +24,6 @@ import com.hopding.pdflib.apache.pdfbox.pdmodel.PDPage;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDPageContentStream;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.font.PDFont;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.font.PDType1Font;
-import com.hopding.pdflib.apache.pdfbox.pdmodel.font.PDType0Font;
 import com.hopding.pdflib.apache.pdfbox.util.PDFBoxResourceLoader;
 
 import java.io.File;
@@ -30,7 +31,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
-import com.hopding.pdflib.factories.PDPageFactory;
+import com.hopding.pdflib.factories.FontCache;
 
 public class PDFLibModule extends ReactContextBaseJavaModule {
 
@@ -41,7 +42,7 @@ public class PDFLibModule extends ReactContextBaseJavaModule {
     this.reactContext = reactContext;
 
     PDFBoxResourceLoader.init(reactContext);
-    PDPageFactory.init(reactContext);
+    FontCache.init(reactContext);
   }
 
   @Override
@@ -155,17 +156,40 @@ public class PDFLibModule extends ReactContextBaseJavaModule {
   @ReactMethod
   public void measureText(String text, String fontName, int fontSize, Promise promise) {
     try {
-      PDDocument document = new PDDocument();
-      PDFont font = PDType0Font.load(document, reactContext.getApplicationContext().getAssets().open("fonts/" + fontName + ".ttf"));
-      float width = font.getStringWidth(text) / 1000 * fontSize;
-      float height = (font.getFontDescriptor().getCapHeight()) / 1000 * fontSize;
-      WritableMap map = Arguments.createMap();
-      map.putInt("width", (int)width);
-      map.putInt("height", (int)height);
-      promise.resolve(map);
+      PDFont font = FontCache.getMeasurementFont(fontName);
+      synchronized (font) {
+        promise.resolve(measure(font, text, fontSize));
+      }
     } catch (IOException e) {
       promise.reject(e);
     }
   }
 
+  // Measures all of the texts with the same font and size in a single call,
+  // resolving to an array of sizes in the same order
+  @ReactMethod
+  public void measureTexts(ReadableArray texts, String fontName, int fontSize, Promise promise) {
+    try {
+      PDFont font = FontCache.getMeasurementFont(fontName);
+      WritableArray sizes = Arguments.createArray();
+      synchronized (font) {
+        for (int i = 0; i < texts.size(); i++) {
+          sizes.pushMap(measure(font, texts.getString(i), fontSize));
+        }
+      }
+      promise.resolve(sizes);
+    } catch (IOException e) {
+      promise.reject(e);
+    }
+  }
+
+  private static WritableMap measure(PDFont font, String text, int fontSize) throws IOException {
+    float width = font.getStringWidth(text) / 1000 * fontSize;
+    float height = (font.getFontDescriptor().getCapHeight()) / 1000 * fontSize;
+    WritableMap map = Arguments.createMap();
+    map.putInt("width", (int)width);
+    map.putInt("height", (int)height);
+    return map;
+  }
+
 }
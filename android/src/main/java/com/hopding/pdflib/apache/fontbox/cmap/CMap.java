@@ -19,8 +19,8 @@ package com.hopding.pdflib.apache.fontbox.cmap;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -43,12 +43,24 @@ public class CMap
     // code lengths
     private final List<CodespaceRange> codespaceRanges = new ArrayList<CodespaceRange>();
 
-    // Unicode mappings
+    // Unicode mappings of codes up to 0xFFFF in pages of 256 codes, and of longer codes
+    private String[][] unicodePages = new String[0][];
     private final Map<Integer,String> charToUnicode = new HashMap<Integer,String>();
+    private int unicodeMappingCount = 0;
 
-    // CID mappings
+    // CID mappings of codes up to 0xFFFF in pages of 256 codes, with the CID + 1 so that
+    // 0 means unmapped, and of longer codes
+    private int[][] cidPages = new int[0][];
     private final Map<Integer,Integer> codeToCid = new HashMap<Integer,Integer>();
-    private final List<CIDRange> codeToCidRanges = new LinkedList<CIDRange>();
+    private int cidMappingCount = 0;
+
+    // CID ranges in the order they were added, later ones take precedence
+    private char[] cidRangeFrom = new char[0];
+    private char[] cidRangeTo = new char[0];
+    private int[] cidRangeStart = new int[0];
+    private int cidRangeCount = 0;
+    // the ranges are sorted and don't overlap, so they can be searched
+    private boolean cidRangesSorted = true;
 
     private static final String SPACE = " ";
     private int spaceMapping = -1;
@@ -67,7 +79,7 @@ public class CMap
      */
     public boolean hasCIDMappings()
     {
-        return !codeToCid.isEmpty() || !codeToCidRanges.isEmpty();
+        return cidMappingCount > 0 || cidRangeCount > 0;
     }
 
     /**
@@ -77,7 +89,7 @@ public class CMap
      */
     public boolean hasUnicodeMappings()
     {
-        return !charToUnicode.isEmpty();
+        return unicodeMappingCount > 0;
     }
 
     /**
@@ -88,7 +100,16 @@ public class CMap
      */
     public String toUnicode(int code)
     {
-        return charToUnicode.get(code);
+        if (code >>> 16 != 0)
+        {
+            return charToUnicode.get(code);
+        }
+        int page = code >>> 8;
+        if (page >= unicodePages.length || unicodePages[page] == null)
+        {
+            return null;
+        }
+        return unicodePages[page][code & 0xFF];
     }
 
     /**
@@ -188,17 +209,59 @@ public class CMap
      */
     public int toCID(int code)
     {
-        if (codeToCid.containsKey(code))
+        if (code >>> 16 != 0)
+        {
+            Integer cid = codeToCid.get(code);
+            if (cid != null)
+            {
+                return cid;
+            }
+        }
+        else
+        {
+            int page = code >>> 8;
+            if (page < cidPages.length && cidPages[page] != null && cidPages[page][code & 0xFF] != 0)
+            {
+                return cidPages[page][code & 0xFF] - 1;
+            }
+        }
+        return mapCIDRange((char) code);
+    }
+
+    /**
+     * Maps the given character with the CID ranges, or returns 0 if none contains it.
+     */
+    private int mapCIDRange(char ch)
+    {
+        if (cidRangesSorted)
         {
-            return codeToCid.get(code);
+            // binary search for the last range starting at or before the character
+            int low = 0;
+            int high = cidRangeCount - 1;
+            while (low <= high)
+            {
+                int mid = (low + high) >>> 1;
+                if (cidRangeFrom[mid] <= ch)
+                {
+                    low = mid + 1;
+                }
+                else
+                {
+                    high = mid - 1;
+                }
+            }
+            if (high >= 0 && ch <= cidRangeTo[high])
+            {
+                return cidRangeStart[high] + (ch - cidRangeFrom[high]);
+            }
+            return 0;
         }
-        for (CIDRange range : codeToCidRanges)
+        for (int i = cidRangeCount - 1; i >= 0; i--)
         {
-        	int ch = range.map((char)code);
-        	if (ch != -1)
-        	{
-        		return ch;
-        	}
+            if (cidRangeFrom[i] <= ch && ch <= cidRangeTo[i])
+            {
+                return cidRangeStart[i] + (ch - cidRangeFrom[i]);
+            }
         }
         return 0;
     }
@@ -230,7 +293,7 @@ public class CMap
     void addCharMapping(byte[] codes, String unicode)
     {
         int code = getCodeFromArray(codes, 0, codes.length);
-        charToUnicode.put(code, unicode);
+        putUnicode(code, unicode);
 
         // fixme: ugly little hack
         if (SPACE.equals(unicode))
@@ -247,7 +310,63 @@ public class CMap
      */
     void addCIDMapping(int code, int cid)
     {
-        codeToCid.put(cid, code);
+        putCID(cid, code);
+    }
+
+    private void putUnicode(int code, String unicode)
+    {
+        if (code >>> 16 != 0)
+        {
+            if (charToUnicode.put(code, unicode) == null)
+            {
+                unicodeMappingCount++;
+            }
+            return;
+        }
+        int page = code >>> 8;
+        if (page >= unicodePages.length)
+        {
+            unicodePages = Arrays.copyOf(unicodePages, page + 1);
+        }
+        String[] unicodes = unicodePages[page];
+        if (unicodes == null)
+        {
+            unicodes = new String[256];
+            unicodePages[page] = unicodes;
+        }
+        if (unicodes[code & 0xFF] == null)
+        {
+            unicodeMappingCount++;
+        }
+        unicodes[code & 0xFF] = unicode;
+    }
+
+    private void putCID(int code, int cid)
+    {
+        if (code >>> 16 != 0)
+        {
+            if (codeToCid.put(code, cid) == null)
+            {
+                cidMappingCount++;
+            }
+            return;
+        }
+        int page = code >>> 8;
+        if (page >= cidPages.length)
+        {
+            cidPages = Arrays.copyOf(cidPages, page + 1);
+        }
+        int[] cids = cidPages[page];
+        if (cids == null)
+        {
+            cids = new int[256];
+            cidPages[page] = cids;
+        }
+        if (cids[code & 0xFF] == 0)
+        {
+            cidMappingCount++;
+        }
+        cids[code & 0xFF] = cid + 1;
     }
 
     /**
@@ -260,7 +379,26 @@ public class CMap
      */
     void addCIDRange(char from, char to, int cid)
     {
-        codeToCidRanges.add(0, new CIDRange(from, to, cid));
+        ensureCIDRangeCapacity(cidRangeCount + 1);
+        if (cidRangeCount > 0 && from <= cidRangeTo[cidRangeCount - 1])
+        {
+            cidRangesSorted = false;
+        }
+        cidRangeFrom[cidRangeCount] = from;
+        cidRangeTo[cidRangeCount] = to;
+        cidRangeStart[cidRangeCount] = cid;
+        cidRangeCount++;
+    }
+
+    private void ensureCIDRangeCapacity(int capacity)
+    {
+        if (capacity > cidRangeFrom.length)
+        {
+            capacity = Math.max(capacity, cidRangeFrom.length * 2);
+            cidRangeFrom = Arrays.copyOf(cidRangeFrom, capacity);
+            cidRangeTo = Arrays.copyOf(cidRangeTo, capacity);
+            cidRangeStart = Arrays.copyOf(cidRangeStart, capacity);
+        }
     }
 
     /**
@@ -282,9 +420,52 @@ public class CMap
     void useCmap( CMap cmap )
     {
         this.codespaceRanges.addAll(cmap.codespaceRanges);
-        this.charToUnicode.putAll(cmap.charToUnicode);
-        this.codeToCid.putAll(cmap.codeToCid);
-        this.codeToCidRanges.addAll(cmap.codeToCidRanges);
+        for (int page = 0; page < cmap.unicodePages.length; page++)
+        {
+            String[] unicodes = cmap.unicodePages[page];
+            for (int i = 0; unicodes != null && i < unicodes.length; i++)
+            {
+                if (unicodes[i] != null)
+                {
+                    putUnicode((page << 8) | i, unicodes[i]);
+                }
+            }
+        }
+        for (Map.Entry<Integer,String> entry : cmap.charToUnicode.entrySet())
+        {
+            putUnicode(entry.getKey(), entry.getValue());
+        }
+        for (int page = 0; page < cmap.cidPages.length; page++)
+        {
+            int[] cids = cmap.cidPages[page];
+            for (int i = 0; cids != null && i < cids.length; i++)
+            {
+                if (cids[i] != 0)
+                {
+                    putCID((page << 8) | i, cids[i] - 1);
+                }
+            }
+        }
+        for (Map.Entry<Integer,Integer> entry : cmap.codeToCid.entrySet())
+        {
+            putCID(entry.getKey(), entry.getValue());
+        }
+
+        // the used ranges come first, so that the ones added so far take precedence
+        int count = cmap.cidRangeCount;
+        ensureCIDRangeCapacity(cidRangeCount + count);
+        System.arraycopy(cidRangeFrom, 0, cidRangeFrom, count, cidRangeCount);
+        System.arraycopy(cidRangeTo, 0, cidRangeTo, count, cidRangeCount);
+        System.arraycopy(cidRangeStart, 0, cidRangeStart, count, cidRangeCount);
+        System.arraycopy(cmap.cidRangeFrom, 0, cidRangeFrom, 0, count);
+        System.arraycopy(cmap.cidRangeTo, 0, cidRangeTo, 0, count);
+        System.arraycopy(cmap.cidRangeStart, 0, cidRangeStart, 0, count);
+        cidRangeCount += count;
+        cidRangesSorted = true;
+        for (int i = 1; i < cidRangeCount && cidRangesSorted; i++)
+        {
+            cidRangesSorted = cidRangeFrom[i] > cidRangeTo[i - 1];
+        }
     }
     
     /**
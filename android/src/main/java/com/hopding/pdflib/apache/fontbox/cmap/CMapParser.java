@@ -155,9 +155,19 @@ public class CMapParser
     private void parseUsecmap(Object previousToken, CMap result) throws IOException
     {
         LiteralName useCmapName = (LiteralName) previousToken;
-        InputStream useStream = getExternalCMap(useCmapName.name);
-        CMap useCMap = parse(useStream);
-        result.useCmap(useCMap);
+        result.useCmap(getUseCMap(useCmapName.name));
+    }
+
+    /**
+     * Returns the predefined CMap used by the CMap being parsed. The returned CMap is only read,
+     * so subclasses may return an instance shared with other CMaps.
+     *
+     * @param name CMap name.
+     * @throws IOException If the CMap could not be parsed.
+     */
+    protected CMap getUseCMap(String name) throws IOException
+    {
+        return parsePredefined(name);
     }
 
     private void parseLiteralName(Object token, PushbackInputStream cmapStream, CMap result) throws IOException
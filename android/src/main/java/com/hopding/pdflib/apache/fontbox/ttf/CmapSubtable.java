@@ -18,10 +18,7 @@ package com.hopding.pdflib.apache.fontbox.ttf;
 
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.BitSet;
 
 import android.util.Log;
 
@@ -35,11 +32,30 @@ public class CmapSubtable
 	private static final long LEAD_OFFSET = 0xD800 - (0x10000 >> 10);
 	private static final long SURROGATE_OFFSET = 0x10000 - (0xD800 << 10) - 0xDC00;
 
+	// first glyph id of a range whose glyph ids are stored in the glyph pages
+	private static final int EXPLICIT_GLYPHS = -1;
+
 	private int platformId;
 	private int platformEncodingId;
 	private long subTableOffset;
-	private int[] glyphIdToCharacterCode;
-	private Map<Integer, Integer> characterCodeToGlyphId = new HashMap<Integer, Integer>();
+	private int numGlyphs;
+
+	// sorted ranges of character codes, each mapped to consecutive glyph ids starting
+	// with the range's first glyph id, or to the glyph ids in the glyph pages
+	private int[] rangeStartCode = new int[0];
+	private int[] rangeEndCode = new int[0];
+	private int[] rangeStartGlyph = new int[0];
+	private int rangeCount;
+	// all codes of a range are mapped to its first glyph id (format 13)
+	private boolean constantRanges;
+	// glyph ids of explicitly mapped character codes and of all codes up to 0xFFFF,
+	// 256 codes per page
+	private char[][] glyphPages = new char[0][];
+	// the reverse mapping keeps the first instead of the last code of a glyph (format 4)
+	private boolean keepFirstCharacterCode;
+	private int maxGlyphId = -1;
+	// built from the ranges on first use
+	private volatile int[] glyphIdToCharacterCode;
 
 	/**
 	 * This will read the required data from the stream.
@@ -64,6 +80,7 @@ public class CmapSubtable
 	 */
 	public void initSubtable(CmapTable cmap, int numGlyphs, TTFDataStream data) throws IOException
 	{
+		this.numGlyphs = numGlyphs;
 		data.seek(cmap.getOffset() + subTableOffset);
 		int subtableFormat = data.readUnsignedShort();
 		long length;
@@ -113,6 +130,7 @@ public class CmapSubtable
 		default:
 			throw new IOException("Unknown cmap format:" + subtableFormat);
 		}
+		finishRanges();
 	}
 
 	/**
@@ -134,7 +152,6 @@ public class CmapSubtable
 			throw new IOException("CMap ( Subtype8 ) is invalid");
 		}
 
-		glyphIdToCharacterCode = newGlyphIdToCharacterCode(numGlyphs);
 		// -- Read all sub header
 		for (long i = 0; i < nbGroups; ++i)
 		{
@@ -182,8 +199,8 @@ public class CmapSubtable
 					throw new IOException("CMap contains an invalid glyph index");
 				}
 
-				glyphIdToCharacterCode[(int) glyphIndex] = currentCharCode;
-				characterCodeToGlyphId.put(currentCharCode, (int) glyphIndex);
+				// consecutive codes are merged into a single range
+				addRange(currentCharCode, currentCharCode, (int) glyphIndex);
 			}
 		}
 	}
@@ -222,7 +239,6 @@ public class CmapSubtable
 	protected void processSubtype12(TTFDataStream data, int numGlyphs) throws IOException
 	{
 		long nbGroups = data.readUnsignedInt();
-		glyphIdToCharacterCode = newGlyphIdToCharacterCode(numGlyphs);
 		for (long i = 0; i < nbGroups; ++i)
 		{
 			long firstCode = data.readUnsignedInt();
@@ -242,21 +258,15 @@ public class CmapSubtable
 				throw new IOException("Invalid characters codes");
 			}
 
-			for (long j = 0; j <= endCode - firstCode; ++j)
+			if (endCode < firstCode)
 			{
-				long glyphIndex = startGlyph + j;
-				if (glyphIndex >= numGlyphs)
-				{
-					throw new IOException("Character Code greater than Integer.MAX_VALUE");
-				}
-
-				if (firstCode + j > 0x10FFFF)
-				{
-					Log.w("PdfBoxAndroid", "Format 12 cmap contains character beyond UCS-4");
-				}
-				glyphIdToCharacterCode[(int) glyphIndex] = (int) (firstCode + j);
-				characterCodeToGlyphId.put((int) (firstCode + j), (int) glyphIndex);
+				continue;
+			}
+			if (startGlyph + (endCode - firstCode) >= numGlyphs)
+			{
+				throw new IOException("Character Code greater than Integer.MAX_VALUE");
 			}
+			addRange((int) firstCode, (int) endCode, (int) startGlyph);
 		}
 	}
 
@@ -269,6 +279,7 @@ public class CmapSubtable
 	 */
 	protected void processSubtype13(TTFDataStream data, int numGlyphs) throws IOException
 	{
+		constantRanges = true;
 		long nbGroups = data.readUnsignedInt();
 		for (long i = 0; i < nbGroups; ++i)
 		{
@@ -293,21 +304,9 @@ public class CmapSubtable
 				throw new IOException("Invalid Characters codes");
 			}
 
-			for (long j = 0; j <= endCode - firstCode; ++j)
+			if (endCode >= firstCode)
 			{
-
-				if (firstCode + j > Integer.MAX_VALUE)
-				{
-					throw new IOException("Character Code greater than Integer.MAX_VALUE");
-				}
-				
-				if (firstCode + j > 0x10FFFF)
-				{
-					Log.w("PdfBoxAndroid", "Format 13 cmap contains character beyond UCS-4");
-				}
-				
-				glyphIdToCharacterCode[(int) glyphId] = (int) (firstCode + j);
-				characterCodeToGlyphId.put((int) (firstCode + j), (int) glyphId);
+				addRange((int) firstCode, (int) endCode, (int) glyphId);
 			}
 		}
 	}
@@ -337,12 +336,15 @@ public class CmapSubtable
 	{
 		int firstCode = data.readUnsignedShort();
 		int entryCount = data.readUnsignedShort();
-		glyphIdToCharacterCode = newGlyphIdToCharacterCode(numGlyphs);
 		int[] glyphIdArray = data.readUnsignedShortArray(entryCount);
+		if (entryCount == 0)
+		{
+			return;
+		}
+		addRange(firstCode, firstCode + entryCount - 1, EXPLICIT_GLYPHS);
 		for (int i = 0; i < entryCount; i++)
 		{
-			glyphIdToCharacterCode[glyphIdArray[i]] = firstCode + i;
-			characterCodeToGlyphId.put((firstCode + i), glyphIdArray[i]);
+			setGlyphId(firstCode + i, glyphIdArray[i]);
 		}
 	}
 
@@ -366,7 +368,10 @@ public class CmapSubtable
 		int[] idDelta = data.readUnsignedShortArray(segCount);
 		int[] idRangeOffset = data.readUnsignedShortArray(segCount);
 
-		Map<Integer, Integer> tmpGlyphToChar = new HashMap<Integer, Integer>();
+		// a glyph reached through the glyph index array is only mapped from the first code
+		// which maps to it, the reverse mapping does the same
+		keepFirstCharacterCode = true;
+		BitSet mappedGlyphs = new BitSet();
 
 		long currentPosition = data.getCurrentPosition();
 
@@ -376,52 +381,48 @@ public class CmapSubtable
 			int end = endCount[i];
 			int delta = idDelta[i];
 			int rangeOffset = idRangeOffset[i];
-			if (start != 65535 && end != 65535)
+			if (start == 65535 || end == 65535 || start > end)
 			{
-				for (int j = start; j <= end; j++)
+				continue;
+			}
+			if (rangeOffset == 0)
+			{
+				int startGlyph = (start + delta) % 65536;
+				addRange(start, end, startGlyph);
+				int endGlyph = startGlyph + end - start;
+				mappedGlyphs.set(startGlyph, Math.min(endGlyph, 65535) + 1);
+				if (endGlyph > 65535)
 				{
-					if (rangeOffset == 0)
-					{
-						int glyphid = (j + delta) % 65536;
-						tmpGlyphToChar.put(glyphid, j);
-						characterCodeToGlyphId.put(j, glyphid);
-					}
-					else
+					mappedGlyphs.set(0, endGlyph - 65535);
+				}
+			}
+			else
+			{
+				// the glyph ids of the segment are consecutive in the glyph index array
+				long glyphOffset = currentPosition + ((rangeOffset / 2) + (i - segCount)) * 2;
+				data.seek(glyphOffset);
+				int[] glyphIndices = data.readUnsignedShortArray(end - start + 1);
+				addRange(start, end, EXPLICIT_GLYPHS);
+				for (int j = 0; j < glyphIndices.length; j++)
+				{
+					int glyphIndex = glyphIndices[j];
+					if (glyphIndex != 0)
 					{
-						long glyphOffset = currentPosition + ((rangeOffset / 2) +
-								(j - start) + 
-								(i - segCount)) * 2;
-						data.seek(glyphOffset);
-						int glyphIndex = data.readUnsignedShort();
-						if (glyphIndex != 0)
+						glyphIndex += delta;
+						glyphIndex %= 65536;
+						if (!mappedGlyphs.get(glyphIndex))
 						{
-							glyphIndex += delta;
-							glyphIndex %= 65536;
-							if (!tmpGlyphToChar.containsKey(glyphIndex))
-							{
-								tmpGlyphToChar.put(glyphIndex, j);
-								characterCodeToGlyphId.put(j, glyphIndex);
-							}
+							mappedGlyphs.set(glyphIndex);
+							setGlyphId(start + j, glyphIndex);
 						}
 					}
 				}
 			}
 		}
 
-		/*
-		 * this is the final result key=glyphId, value is character codes Create an array that contains MAX(GlyphIds)
-		 * element, or -1
-		 */
-		 if (tmpGlyphToChar.isEmpty())
-		 {
-			 Log.w("PdfBoxAndroid", "cmap format 4 subtable is empty");
-			 return;
-		 }
-		 glyphIdToCharacterCode = newGlyphIdToCharacterCode(Collections.max(tmpGlyphToChar.keySet()) + 1);
-		for (Entry<Integer, Integer> entry : tmpGlyphToChar.entrySet())
+		if (mappedGlyphs.isEmpty())
 		{
-			// link the glyphId with the right character code
-			glyphIdToCharacterCode[entry.getKey()] = entry.getValue();
+			Log.w("PdfBoxAndroid", "cmap format 4 subtable is empty");
 		}
 	}
 
@@ -454,7 +455,6 @@ public class CmapSubtable
 			subHeaders[i] = new SubHeader(firstCode, entryCount, idDelta, idRangeOffset);
 		}
 		long startGlyphIndexOffset = data.getCurrentPosition();
-		glyphIdToCharacterCode = newGlyphIdToCharacterCode(numGlyphs);
 		for (int i = 0; i <= maxSubHeaderIndex; ++i)
 		{
 			SubHeader sh = subHeaders[i];
@@ -462,13 +462,16 @@ public class CmapSubtable
 			int idRangeOffset = sh.getIdRangeOffset();
 			int idDelta = sh.getIdDelta();
 			int entryCount = sh.getEntryCount();
+			if (entryCount == 0)
+			{
+				continue;
+			}
 			data.seek(startGlyphIndexOffset + idRangeOffset);
+			// ---- compute the Character Codes
+			int firstCharCode = (i << 8) + firstCode;
+			addRange(firstCharCode, firstCharCode + entryCount - 1, EXPLICIT_GLYPHS);
 			for (int j = 0; j < entryCount; ++j)
 			{
-				// ---- compute the Character Code
-				int charCode = i;
-				charCode = (charCode << 8) + (firstCode + j);
-
 				// ---- Go to the CharacterCOde position in the Sub Array
 				// of the glyphIndexArray
 				// glyphIndexArray contains Unsigned Short so add (j * 2) bytes
@@ -477,10 +480,9 @@ public class CmapSubtable
 				// ---- compute the glyphIndex
 				if (p > 0)
 				{
-					p = (p + idDelta) % 65536;
+					p = (p + idDelta) & 0xFFFF;
 				}
-				glyphIdToCharacterCode[p] = charCode;
-				characterCodeToGlyphId.put(charCode, p);
+				setGlyphId(firstCharCode + j, p);
 			}
 		}
 	}
@@ -494,13 +496,187 @@ public class CmapSubtable
 	protected void processSubtype0(TTFDataStream data) throws IOException
 	{
 		byte[] glyphMapping = data.read(256);
-		glyphIdToCharacterCode = newGlyphIdToCharacterCode(256);
+		addRange(0, glyphMapping.length - 1, EXPLICIT_GLYPHS);
 		for (int i = 0; i < glyphMapping.length; i++)
 		{
-			int glyphIndex = (glyphMapping[i] + 256) % 256;
-			glyphIdToCharacterCode[glyphIndex] = i;
-			characterCodeToGlyphId.put(i, glyphIndex);
+			setGlyphId(i, glyphMapping[i] & 0xFF);
+		}
+	}
+
+	/**
+	 * Adds a range of character codes mapped to consecutive glyph ids starting with the given
+	 * one, or to the glyph ids set by {@link #setGlyphId} if it is EXPLICIT_GLYPHS. A range
+	 * which continues the previous one is merged into it.
+	 */
+	private void addRange(int startCode, int endCode, int startGlyph)
+	{
+		if (startGlyph != EXPLICIT_GLYPHS)
+		{
+			int last = rangeCount - 1;
+			if (last >= 0 && !constantRanges && rangeStartGlyph[last] != EXPLICIT_GLYPHS
+					&& rangeEndCode[last] + 1 == startCode
+					&& ((rangeStartGlyph[last] + startCode - rangeStartCode[last]) & 0xFFFF) == startGlyph)
+			{
+				rangeEndCode[last] = endCode;
+				maxGlyphId = Math.max(maxGlyphId, lastGlyphId(last));
+				return;
+			}
+		}
+
+		if (rangeCount == rangeStartCode.length)
+		{
+			int capacity = Math.max(16, rangeCount * 2);
+			rangeStartCode = Arrays.copyOf(rangeStartCode, capacity);
+			rangeEndCode = Arrays.copyOf(rangeEndCode, capacity);
+			rangeStartGlyph = Arrays.copyOf(rangeStartGlyph, capacity);
+		}
+		rangeStartCode[rangeCount] = startCode;
+		rangeEndCode[rangeCount] = endCode;
+		rangeStartGlyph[rangeCount] = startGlyph;
+		if (startGlyph != EXPLICIT_GLYPHS)
+		{
+			maxGlyphId = Math.max(maxGlyphId, lastGlyphId(rangeCount));
+		}
+		rangeCount++;
+	}
+
+	/**
+	 * Returns the highest glyph id of the given range which doesn't use the glyph pages.
+	 */
+	private int lastGlyphId(int range)
+	{
+		if (constantRanges)
+		{
+			return rangeStartGlyph[range];
+		}
+		// format 4 glyph ids wrap around at 65536
+		return Math.min(rangeStartGlyph[range] + rangeEndCode[range] - rangeStartCode[range], 0xFFFF);
+	}
+
+	/**
+	 * Sets the glyph id of a character code in a range added with EXPLICIT_GLYPHS.
+	 */
+	private void setGlyphId(int code, int glyphId)
+	{
+		int page = code >>> 8;
+		if (page >= glyphPages.length)
+		{
+			glyphPages = Arrays.copyOf(glyphPages, Math.max(page + 1, glyphPages.length * 2));
+		}
+		char[] glyphs = glyphPages[page];
+		if (glyphs == null)
+		{
+			glyphs = new char[256];
+			glyphPages[page] = glyphs;
+		}
+		glyphs[code & 0xFF] = (char) glyphId;
+		maxGlyphId = Math.max(maxGlyphId, glyphId);
+	}
+
+	/**
+	 * Trims the ranges, sorts them by their first character code if the subtable didn't list
+	 * them in order and fills the glyph pages for the codes up to 0xFFFF.
+	 */
+	private void finishRanges()
+	{
+		boolean sorted = true;
+		for (int i = 1; i < rangeCount && sorted; i++)
+		{
+			sorted = rangeStartCode[i] > rangeEndCode[i - 1];
+		}
+
+		if (sorted)
+		{
+			rangeStartCode = Arrays.copyOf(rangeStartCode, rangeCount);
+			rangeEndCode = Arrays.copyOf(rangeEndCode, rangeCount);
+			rangeStartGlyph = Arrays.copyOf(rangeStartGlyph, rangeCount);
+		}
+		else
+		{
+			// the first code is non-negative, so it sorts like the packed value
+			long[] order = new long[rangeCount];
+			for (int i = 0; i < rangeCount; i++)
+			{
+				order[i] = ((long) rangeStartCode[i] << 32) | i;
+			}
+			Arrays.sort(order);
+			int[] startCodes = new int[rangeCount];
+			int[] endCodes = new int[rangeCount];
+			int[] startGlyphs = new int[rangeCount];
+			for (int i = 0; i < rangeCount; i++)
+			{
+				int range = (int) order[i];
+				startCodes[i] = rangeStartCode[range];
+				endCodes[i] = rangeEndCode[range];
+				startGlyphs[i] = rangeStartGlyph[range];
+			}
+			rangeStartCode = startCodes;
+			rangeEndCode = endCodes;
+			rangeStartGlyph = startGlyphs;
+		}
+
+		// codes up to 0xFFFF are looked up in the glyph pages without a search
+		for (int i = 0; i < rangeCount && rangeStartCode[i] <= 0xFFFF; i++)
+		{
+			if (rangeStartGlyph[i] != EXPLICIT_GLYPHS)
+			{
+				for (int code = rangeStartCode[i], end = Math.min(rangeEndCode[i], 0xFFFF); code <= end; code++)
+				{
+					setGlyphId(code, getGlyphId(i, code));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the glyph id of a character code in the given range.
+	 */
+	private int getGlyphId(int range, int characterCode)
+	{
+		int startGlyph = rangeStartGlyph[range];
+		if (startGlyph == EXPLICIT_GLYPHS)
+		{
+			int page = characterCode >>> 8;
+			if (page >= glyphPages.length || glyphPages[page] == null)
+			{
+				return 0;
+			}
+			return glyphPages[page][characterCode & 0xFF];
+		}
+		if (constantRanges)
+		{
+			return startGlyph;
 		}
+		return (startGlyph + characterCode - rangeStartCode[range]) & 0xFFFF;
+	}
+
+	/**
+	 * Builds the reverse mapping from the ranges, a glyph is mapped to the last character code
+	 * mapped to it unless keepFirstCharacterCode is set.
+	 */
+	private int[] buildGlyphIdToCharacterCode()
+	{
+		int[] gidToCode = newGlyphIdToCharacterCode(Math.max(numGlyphs, maxGlyphId + 1));
+		for (int i = 0; i < rangeCount; i++)
+		{
+			boolean explicit = rangeStartGlyph[i] == EXPLICIT_GLYPHS;
+			for (int code = rangeStartCode[i], end = rangeEndCode[i]; code <= end; code++)
+			{
+				int glyphId = getGlyphId(i, code);
+				if (explicit && keepFirstCharacterCode)
+				{
+					if (glyphId != 0 && gidToCode[glyphId] == -1)
+					{
+						gidToCode[glyphId] = code;
+					}
+				}
+				else
+				{
+					gidToCode[glyphId] = code;
+				}
+			}
+		}
+		return gidToCode;
 	}
 
 	/**
@@ -554,8 +730,33 @@ public class CmapSubtable
 	 */
 	public int getGlyphId(int characterCode)
 	{
-		Integer glyphId = characterCodeToGlyphId.get(characterCode);
-		return glyphId == null ? 0 : glyphId;
+		if (characterCode >>> 16 == 0)
+		{
+			int page = characterCode >>> 8;
+			char[] glyphs = page < glyphPages.length ? glyphPages[page] : null;
+			return glyphs == null ? 0 : glyphs[characterCode & 0xFF];
+		}
+
+		// binary search for the last range starting at or before the code
+		int low = 0;
+		int high = rangeCount - 1;
+		while (low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			if (rangeStartCode[mid] <= characterCode)
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid - 1;
+			}
+		}
+		if (high < 0 || characterCode > rangeEndCode[high])
+		{
+			return 0;
+		}
+		return getGlyphId(high, characterCode);
 	}
 
 	/**
@@ -566,13 +767,20 @@ public class CmapSubtable
 	 */
 	public Integer getCharacterCode(int gid)
 	{
-		if (gid < 0 || gid >= glyphIdToCharacterCode.length)
+		int[] gidToCode = glyphIdToCharacterCode;
+		if (gidToCode == null)
+		{
+			// building it twice in concurrent calls gives the same result
+			gidToCode = buildGlyphIdToCharacterCode();
+			glyphIdToCharacterCode = gidToCode;
+		}
+		if (gid < 0 || gid >= gidToCode.length)
 		{
 			return null;
 		}
 		// workaround for the fact that glyphIdToCharacterCode doesn't distinguish between
 		// missing character codes and code 0.
-		int code = glyphIdToCharacterCode[gid];
+		int code = gidToCode[gid];
 		if (code == -1)
 		{
 			return null;
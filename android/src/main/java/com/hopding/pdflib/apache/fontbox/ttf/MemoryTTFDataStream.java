@@ -208,4 +208,12 @@ public class MemoryTTFDataStream extends TTFDataStream
     {
         return new ByteArrayInputStream( data );
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getOriginalDataSize()
+    {
+        return data.length;
+    }
 }
\ No newline at end of file
@@ -161,4 +161,12 @@ public class RAFDataStream extends TTFDataStream
     {
         return new FileInputStream( ttfFile );
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long getOriginalDataSize()
+    {
+        return ttfFile.length();
+    }
 }
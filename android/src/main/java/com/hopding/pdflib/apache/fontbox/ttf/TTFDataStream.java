@@ -276,4 +276,11 @@ public abstract class TTFDataStream implements Closeable
      */
     public abstract InputStream getOriginalData() throws IOException;
 
+    /**
+     * This will get the size of the original data file that was used for this stream.
+     * 
+     * @return The size of the data that was read from, in bytes.
+     */
+    public abstract long getOriginalDataSize();
+
 }
@@ -23,18 +23,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.SortedSet;
 import java.util.TreeMap;
-import java.util.TreeSet;
 
 /**
  * Subsetter for TrueType (TTF) fonts.
@@ -50,10 +48,11 @@ public final class TTFSubsetter
 
     private final TrueTypeFont ttf;
     private final CmapSubtable unicodeCmap;
-    private final SortedMap<Integer, Integer> uniToGID;
+    private final BitSet unicodes; // character codes with a glyph in the subset
 
     private final List<String> keepTables;
-    private final SortedSet<Integer> glyphIds; // new glyph ids
+    private final BitSet glyphIds; // old glyph ids, new ids are given in ascending order
+    private int[] newGlyphIds; // old -> new glyph id, once the subset is complete
     private String prefix;
     private boolean hasAddedCompoundReferences;
 
@@ -78,14 +77,14 @@ public final class TTFSubsetter
         this.ttf = ttf;
         this.keepTables = tables;
 
-        uniToGID = new TreeMap<Integer, Integer>();
-        glyphIds = new TreeSet<Integer>();
+        unicodes = new BitSet();
+        glyphIds = new BitSet(ttf.getNumberOfGlyphs());
 
         // find the best Unicode cmap
         this.unicodeCmap = ttf.getUnicodeCmap();
 
         // always copy GID 0
-        glyphIds.add(0);
+        glyphIds.set(0);
     }
 
     /**
@@ -106,8 +105,8 @@ public final class TTFSubsetter
         int gid = unicodeCmap.getGlyphId(unicode);
         if (gid != 0)
         {
-            uniToGID.put(unicode, gid);
-            glyphIds.add(gid);
+            unicodes.set(unicode);
+            glyphIds.set(gid);
         }
     }
 
@@ -133,7 +132,7 @@ public final class TTFSubsetter
 
         Map<Integer, Integer> newToOld = new HashMap<Integer, Integer>();
         int newGID = 0;
-        for (int oldGID : glyphIds)
+        for (int oldGID = glyphIds.nextSetBit(0); oldGID >= 0; oldGID = glyphIds.nextSetBit(oldGID + 1))
         {
             newToOld.put(newGID, oldGID);
             newGID++;
@@ -249,7 +248,7 @@ public final class TTFSubsetter
         writeSInt16(out, h.getReserved4());
         writeSInt16(out, h.getReserved5());
         writeSInt16(out, h.getMetricDataFormat());
-        writeUint16(out, glyphIds.subSet(0, h.getNumberOfHMetrics()).size());
+        writeUint16(out, countGlyphsBelow(h.getNumberOfHMetrics()));
 
         out.flush();
         return bos.toByteArray();
@@ -366,7 +365,7 @@ public final class TTFSubsetter
 
         MaximumProfileTable p = ttf.getMaximumProfile();
         writeFixed(out, 1.0);
-        writeUint16(out, glyphIds.size());
+        writeUint16(out, glyphIds.cardinality());
         writeUint16(out, p.getMaxPoints());
         writeUint16(out, p.getMaxContours());
         writeUint16(out, p.getMaxCompositePoints());
@@ -426,13 +425,16 @@ public final class TTFSubsetter
 
         out.write(os2.getAchVendId().getBytes("US-ASCII"));
 
-        Iterator<Entry<Integer, Integer>> it = uniToGID.entrySet().iterator();
-        it.next();
-        Entry<Integer, Integer> first = it.next();
+        // the lowest character code is skipped
+        int first = unicodes.nextSetBit(unicodes.nextSetBit(0) + 1);
+        if (first < 0)
+        {
+            throw new NoSuchElementException();
+        }
 
         writeUint16(out, os2.getFsSelection());
-        writeUint16(out, first.getKey());
-        writeUint16(out, uniToGID.lastKey());
+        writeUint16(out, first);
+        writeUint16(out, unicodes.length() - 1);
         writeUint16(out, os2.getTypoAscender());
         writeUint16(out, os2.getTypoDescender());
         writeUint16(out, os2.getTypoLineGap());
@@ -445,20 +447,21 @@ public final class TTFSubsetter
 
     private static byte[] buildLocaTable(long[] newOffsets) throws IOException
     {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        DataOutputStream out = new DataOutputStream(bos);
-
+        byte[] loca = new byte[newOffsets.length * 4];
+        int pos = 0;
         for (long offset : newOffsets)
         {
-            writeUint32(out, offset);
+            loca[pos++] = (byte)(offset >>> 24);
+            loca[pos++] = (byte)(offset >>> 16);
+            loca[pos++] = (byte)(offset >>> 8);
+            loca[pos++] = (byte)offset;
         }
-
-        out.flush();
-        return bos.toByteArray();
+        return loca;
     }
 
     /**
-     * Resolve compound glyph references.
+     * Resolve compound glyph references. Every glyph is read once: the first sweep reads the
+     * glyphs added so far, each following one only the components found by the previous one.
      */
     private void addCompoundReferences() throws IOException
     {
@@ -468,26 +471,31 @@ public final class TTFSubsetter
         }
         hasAddedCompoundReferences = true;
 
-        boolean hasNested;
-        do
+        GlyphTable g = ttf.getGlyph();
+        long[] offsets = ttf.getIndexToLocation().getOffsets();
+        byte[] buf = new byte[1024];
+        BitSet pending = (BitSet)glyphIds.clone();
+        while (!pending.isEmpty())
         {
-            GlyphTable g = ttf.getGlyph();
-            long[] offsets = ttf.getIndexToLocation().getOffsets();
+            BitSet glyphIdsToAdd = new BitSet();
             InputStream is = ttf.getOriginalData();
-            Set<Integer> glyphIdsToAdd = null;
             try
             {
                 is.skip(g.getOffset());
                 long lastOff = 0L;
-                for (Integer glyphId : glyphIds)
+                for (int glyphId = pending.nextSetBit(0); glyphId >= 0;
+                        glyphId = pending.nextSetBit(glyphId + 1))
                 {
                     long offset = offsets[glyphId];
-                    long len = offsets[glyphId + 1] - offset;
+                    int len = (int)(offsets[glyphId + 1] - offset);
                     is.skip(offset - lastOff);
-                    byte[] buf = new byte[(int)len];
-                    is.read(buf);
+                    if (len > buf.length)
+                    {
+                        buf = new byte[len];
+                    }
+                    readFully(is, buf, 0, len);
                     // rewrite glyphIds for compound glyphs
-                    if (buf.length >= 2 && buf[0] == -1 && buf[1] == -1)
+                    if (len >= 2 && buf[0] == -1 && buf[1] == -1)
                     {
                         int off = 2*5;
                         int flags;
@@ -496,39 +504,13 @@ public final class TTFSubsetter
                             flags = (buf[off] & 0xff) << 8 | buf[off + 1] & 0xff;
                             off +=2;
                             int ogid = (buf[off] & 0xff) << 8 | buf[off + 1] & 0xff;
-                            if (!glyphIds.contains(ogid))
+                            if (!glyphIds.get(ogid))
                             {
-                                if (glyphIdsToAdd == null)
-                                {
-                                    glyphIdsToAdd = new TreeSet<Integer>();
-                                }
-                                glyphIdsToAdd.add(ogid);
+                                glyphIds.set(ogid);
+                                glyphIdsToAdd.set(ogid);
                             }
                             off += 2;
-                            // ARG_1_AND_2_ARE_WORDS
-                            if ((flags & 1 << 0) != 0)
-                            {
-                                off += 2 * 2;
-                            }
-                            else
-                            {
-                                off += 2;
-                            }
-                            // WE_HAVE_A_TWO_BY_TWO
-                            if ((flags & 1 << 7) != 0)
-                            {
-                                off += 2 * 4;
-                            }
-                            // WE_HAVE_AN_X_AND_Y_SCALE
-                            else if ((flags & 1 << 6) != 0)
-                            {
-                                off += 2 * 2;
-                            }
-                            // WE_HAVE_A_SCALE
-                            else if ((flags & 1 << 3) != 0)
-                            {
-                                off += 2;
-                            }
+                            off += componentArgumentsLength(flags);
                         }
                         while ((flags & 1 << 5) != 0); // MORE_COMPONENTS
 
@@ -540,89 +522,90 @@ public final class TTFSubsetter
             {
                 is.close();
             }
-            if (glyphIdsToAdd != null)
-            {
-                glyphIds.addAll(glyphIdsToAdd);
-            }
-            hasNested = glyphIdsToAdd != null;
-        } while (hasNested);
+            pending = glyphIdsToAdd;
+        }
     }
 
-    private byte[] buildGlyfTable(long[] newOffsets) throws IOException
+    /**
+     * Returns the number of bytes of the arguments and transformation of a component of a
+     * compound glyph following its glyph index.
+     */
+    private static int componentArgumentsLength(int flags)
     {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        // ARG_1_AND_2_ARE_WORDS
+        int length = (flags & 1 << 0) != 0 ? 2 * 2 : 2;
+        // WE_HAVE_A_TWO_BY_TWO
+        if ((flags & 1 << 7) != 0)
+        {
+            length += 2 * 4;
+        }
+        // WE_HAVE_AN_X_AND_Y_SCALE
+        else if ((flags & 1 << 6) != 0)
+        {
+            length += 2 * 2;
+        }
+        // WE_HAVE_A_SCALE
+        else if ((flags & 1 << 3) != 0)
+        {
+            length += 2;
+        }
+        return length;
+    }
 
+    private byte[] buildGlyfTable(long[] newOffsets) throws IOException
+    {
         GlyphTable g = ttf.getGlyph();
         long[] offsets = ttf.getIndexToLocation().getOffsets();
+
+        // the padded size of all glyphs, compound glyphs may become shorter
+        long maxSize = 0;
+        for (int gid = glyphIds.nextSetBit(0); gid >= 0; gid = glyphIds.nextSetBit(gid + 1))
+        {
+            maxSize += (offsets[gid + 1] - offsets[gid] + 3) & ~3L;
+        }
+        byte[] glyf = new byte[(int)maxSize];
+
+        int newOffset = 0;  // new offset for the glyph in the subset font
         InputStream is = ttf.getOriginalData();
         try
         {
             is.skip(g.getOffset());
 
             long prevEnd = 0;    // previously read glyph offset
-            long newOffset = 0;  // new offset for the glyph in the subset font
             int newGid = 0;      // new GID in subset font
 
             // for each glyph in the subset
-            for (Integer gid : glyphIds)
+            for (int gid = glyphIds.nextSetBit(0); gid >= 0; gid = glyphIds.nextSetBit(gid + 1))
             {
                 long offset = offsets[gid];
-                long length = offsets[gid + 1] - offset;
+                int length = (int)(offsets[gid + 1] - offset);
 
                 newOffsets[newGid++] = newOffset;
                 is.skip(offset - prevEnd);
 
-                byte[] buf = new byte[(int)length];
-                is.read(buf);
+                // read the glyph into its place in the subset
+                readFully(is, glyf, newOffset, length);
+                int glyphLength = length;
 
                 // detect glyph type
-                if (buf.length >= 2 && buf[0] == -1 && buf[1] == -1)
+                if (length >= 2 && glyf[newOffset] == -1 && glyf[newOffset + 1] == -1)
                 {
                     // compound glyph
-                    int off = 2*5;
+                    int off = newOffset + 2*5;
                     int flags;
                     do
                     {
                         // flags
-                        flags = (buf[off] & 0xff) << 8 | buf[off + 1] & 0xff;
+                        flags = (glyf[off] & 0xff) << 8 | glyf[off + 1] & 0xff;
                         off += 2;
 
                         // glyphIndex
-                        int componentGid = (buf[off] & 0xff) << 8 | buf[off + 1] & 0xff;
-                        if (!glyphIds.contains(componentGid))
-                        {
-                            glyphIds.add(componentGid);
-                        }
-
-                        int newComponentGid = getNewGlyphId(componentGid);
-                        buf[off]   = (byte)(newComponentGid >>> 8);
-                        buf[off + 1] = (byte)newComponentGid;
+                        int componentGid = (glyf[off] & 0xff) << 8 | glyf[off + 1] & 0xff;
+                        int newComponentGid = newGlyphIds[componentGid];
+                        glyf[off]   = (byte)(newComponentGid >>> 8);
+                        glyf[off + 1] = (byte)newComponentGid;
                         off += 2;
-
-                        // ARG_1_AND_2_ARE_WORDS
-                        if ((flags & 1 << 0) != 0)
-                        {
-                            off += 2 * 2;
-                        }
-                        else
-                        {
-                            off += 2;
-                        }
-                        // WE_HAVE_A_TWO_BY_TWO
-                        if ((flags & 1 << 7) != 0)
-                        {
-                            off += 2 * 4;
-                        }
-                        // WE_HAVE_AN_X_AND_Y_SCALE
-                        else if ((flags & 1 << 6) != 0)
-                        {
-                            off += 2 * 2;
-                        }
-                        // WE_HAVE_A_SCALE
-                        else if ((flags & 1 << 3) != 0)
-                        {
-                            off += 2;
-                        }
+                        off += componentArgumentsLength(flags);
                     }
                     while ((flags & 1 << 5) != 0); // MORE_COMPONENTS
 
@@ -630,35 +613,21 @@ public final class TTFSubsetter
                     if ((flags & 0x0100) == 0x0100)
                     {
                         // USHORT numInstr
-                        int numInstr = (buf[off] & 0xff) << 8 | buf[off + 1] & 0xff;
+                        int numInstr = (glyf[off] & 0xff) << 8 | glyf[off + 1] & 0xff;
                         off += 2;
 
                         // BYTE instr[numInstr]
                         off += numInstr;
                     }
 
-                    // write the compound glyph
-                    bos.write(buf, 0, off);
-
-                    // offset to start next glyph
-                    newOffset += off;
+                    // only the compound glyph up to here is kept
+                    glyphLength = off - newOffset;
                 }
-                else if (buf.length > 0)
-                {
-                    // copy the entire glyph
-                    bos.write(buf, 0, buf.length);
 
-                    // offset to start next glyph
-                    newOffset += buf.length;
-                }
-
-                // 4-byte alignment
-                if (newOffset % 4 != 0)
-                {
-                    int len = 4 - (int)(newOffset % 4);
-                    bos.write(PAD_BUF, 0, len);
-                    newOffset += len;
-                }
+                // offset to start next glyph, with 4-byte alignment
+                int end = newOffset + glyphLength;
+                newOffset = (end + 3) & ~3;
+                Arrays.fill(glyf, end, newOffset, (byte)0);
 
                 prevEnd = offset + length;
             }
@@ -669,12 +638,47 @@ public final class TTFSubsetter
             is.close();
         }
 
-        return bos.toByteArray();
+        return newOffset == glyf.length ? glyf : Arrays.copyOf(glyf, newOffset);
+    }
+
+    /**
+     * Numbers the glyphs of the completed subset in the order of their old glyph ids.
+     */
+    private void buildNewGlyphIds()
+    {
+        newGlyphIds = new int[glyphIds.length()];
+        int newGid = 0;
+        for (int gid = glyphIds.nextSetBit(0); gid >= 0; gid = glyphIds.nextSetBit(gid + 1))
+        {
+            newGlyphIds[gid] = newGid++;
+        }
+    }
+
+    /**
+     * Returns the number of glyphs of the subset with an old glyph id below the given one.
+     */
+    private int countGlyphsBelow(int gid)
+    {
+        int count = 0;
+        for (int i = glyphIds.nextSetBit(0); i >= 0 && i < gid; i = glyphIds.nextSetBit(i + 1))
+        {
+            count++;
+        }
+        return count;
     }
 
-    private int getNewGlyphId(Integer oldGid)
+    private static void readFully(InputStream is, byte[] buf, int off, int len) throws IOException
     {
-        return glyphIds.headSet(oldGid).size();
+        while (len > 0)
+        {
+            int n = is.read(buf, off, len);
+            if (n < 0)
+            {
+                break;
+            }
+            off += n;
+            len -= n;
+        }
     }
 
     private byte[] buildCmapTable() throws IOException
@@ -696,58 +700,60 @@ public final class TTFSubsetter
         writeUint16(out, CmapTable.ENCODING_WIN_UNICODE_BMP); // platformSpecificID
         writeUint32(out, 4 * 2 + 4); // offset
 
-        // build Format 4 subtable (Unicode BMP)
-        Iterator<Entry<Integer, Integer>> it = uniToGID.entrySet().iterator();
-        it.next();
-        Entry<Integer, Integer> lastChar = it.next();
-        Entry<Integer, Integer> prevChar = lastChar;
-        int lastGid = getNewGlyphId(lastChar.getValue());
+        // build Format 4 subtable (Unicode BMP), the lowest character code is skipped
+        int lastChar = unicodes.nextSetBit(unicodes.nextSetBit(0) + 1);
+        if (lastChar < 0)
+        {
+            throw new NoSuchElementException();
+        }
+        int prevChar = lastChar;
+        int lastGid = newGlyphIds[unicodeCmap.getGlyphId(lastChar)];
 
-        int[] startCode = new int[uniToGID.size()];
-        int[] endCode = new int[uniToGID.size()];
-        int[] idDelta = new int[uniToGID.size()];
+        int[] startCode = new int[unicodes.cardinality()];
+        int[] endCode = new int[startCode.length];
+        int[] idDelta = new int[startCode.length];
         int segCount = 0;
-        while(it.hasNext())
+        for (int curChar = unicodes.nextSetBit(lastChar + 1); curChar >= 0;
+                curChar = unicodes.nextSetBit(curChar + 1))
         {
-            Entry<Integer, Integer> curChar2Gid = it.next();
-            int curGid = getNewGlyphId(curChar2Gid.getValue());
+            int curGid = newGlyphIds[unicodeCmap.getGlyphId(curChar)];
 
             // todo: need format Format 12 for non-BMP
-            if (curChar2Gid.getKey() > 0xFFFF)
+            if (curChar > 0xFFFF)
             {
                 throw new UnsupportedOperationException("non-BMP Unicode character");
             }
 
-            if (curChar2Gid.getKey() != prevChar.getKey()+1 ||
-                curGid - lastGid != curChar2Gid.getKey() - lastChar.getKey())
+            if (curChar != prevChar+1 ||
+                curGid - lastGid != curChar - lastChar)
             {
                 if (lastGid != 0)
                 {
                     // don't emit ranges, which map to GID 0, the
                     // undef glyph is emitted a the very last segment
-                    startCode[segCount] = lastChar.getKey();
-                    endCode[segCount] = prevChar.getKey();
-                    idDelta[segCount] = lastGid - lastChar.getKey();
+                    startCode[segCount] = lastChar;
+                    endCode[segCount] = prevChar;
+                    idDelta[segCount] = lastGid - lastChar;
                     segCount++;
                 }
-                else if (!lastChar.getKey().equals(prevChar.getKey()))
+                else if (lastChar != prevChar)
                 {
                     // shorten ranges which start with GID 0 by one
-                    startCode[segCount] = lastChar.getKey() + 1;
-                    endCode[segCount] = prevChar.getKey();
-                    idDelta[segCount] = lastGid - lastChar.getKey();
+                    startCode[segCount] = lastChar + 1;
+                    endCode[segCount] = prevChar;
+                    idDelta[segCount] = lastGid - lastChar;
                     segCount++;
                 }
                 lastGid = curGid;
-                lastChar = curChar2Gid;
+                lastChar = curChar;
             }
-            prevChar = curChar2Gid;
+            prevChar = curChar;
         }
 
         // trailing segment
-        startCode[segCount] = lastChar.getKey();
-        endCode[segCount] = prevChar.getKey();
-        idDelta[segCount] = lastGid -lastChar.getKey();
+        startCode[segCount] = lastChar;
+        endCode[segCount] = prevChar;
+        idDelta[segCount] = lastGid -lastChar;
         segCount++;
 
         // GID 0
@@ -819,11 +825,11 @@ public final class TTFSubsetter
         // version 2.0
 
         // numberOfGlyphs
-        writeUint16(out, glyphIds.size());
+        writeUint16(out, glyphIds.cardinality());
 
         // glyphNameIndex[numGlyphs]
         Map<String, Integer> names = new TreeMap<String, Integer>();
-        for (int gid : glyphIds)
+        for (int gid = glyphIds.nextSetBit(0); gid >= 0; gid = glyphIds.nextSetBit(gid + 1))
         {
             String name = post.getName(gid);
             Integer macId = WGL4Names.MAC_GLYPH_NAMES_INDICES.get(name);
@@ -859,17 +865,20 @@ public final class TTFSubsetter
 
     private byte[] buildHmtxTable() throws IOException
     {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-
         HorizontalHeaderTable h = ttf.getHorizontalHeader();
         HorizontalMetricsTable hm = ttf.getHorizontalMetrics();
-        byte [] buf = new byte[4];
+
+        // full metrics for glyphs below numOfHMetrics, left side bearings only for the others
+        int longMetrics = countGlyphsBelow(h.getNumberOfHMetrics());
+        byte[] hmtx = new byte[longMetrics * 4 + (glyphIds.cardinality() - longMetrics) * 2];
+        int pos = 0;
         InputStream is = ttf.getOriginalData();
         try
         {
             is.skip(hm.getOffset());
             long lastOff = 0;
-            for (Integer glyphId : glyphIds)
+            for (int glyphId = glyphIds.nextSetBit(0); glyphId >= 0;
+                    glyphId = glyphIds.nextSetBit(glyphId + 1))
             {
                 // offset in original file
                 long off;
@@ -892,15 +901,15 @@ public final class TTFSubsetter
                 }
                 // read left side bearings only, if we are beyond numOfHMetrics
                 int n = glyphId < h.getNumberOfHMetrics() ? 4 : 2;
-                if (n != is.read(buf, 0, n))
+                if (n != is.read(hmtx, pos, n))
                 {
                     throw new EOFException("Unexpected EOF exception parsing glyphId of hmtx table.");
                 }
-                bos.write(buf, 0, n);
+                pos += n;
                 lastOff = off + n;
             }
 
-            return bos.toByteArray();
+            return hmtx;
         }
         finally
         {
@@ -917,11 +926,12 @@ public final class TTFSubsetter
     public void writeToStream(OutputStream os) throws IOException
     {
         addCompoundReferences();
+        buildNewGlyphIds();
 
         DataOutputStream out = new DataOutputStream(os);
         try 
         {
-            long[] newLoca = new long[glyphIds.size() + 1];
+            long[] newLoca = new long[glyphIds.cardinality() + 1];
 
             // generate tables in dependency order
             byte[] head = buildHeadTable();
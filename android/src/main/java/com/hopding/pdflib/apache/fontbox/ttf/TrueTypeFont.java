@@ -290,6 +290,16 @@ public class TrueTypeFont implements Type1Equivalent
 		return data.getOriginalData(); 
 	}
 
+	/**
+	 * Returns the size of the True Type Font program, in bytes.
+	 * 
+	 * @return the size of the original font data
+	 */
+	public long getOriginalDataSize()
+	{
+		return data.getOriginalDataSize();
+	}
+
 	/**
 	 * Read the given table if necessary. Package-private, used by TTFParser only.
 	 * 
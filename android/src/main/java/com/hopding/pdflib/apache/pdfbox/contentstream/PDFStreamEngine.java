@@ -21,7 +21,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
@@ -71,6 +70,8 @@ import android.util.Log;
 public class PDFStreamEngine
 {
 	private final Map<String, OperatorProcessor> operators = new HashMap<String, OperatorProcessor>();
+	// processors of the standard operators by their index, the map is only used for the others
+	private final OperatorProcessor[] standardOperators = new OperatorProcessor[Operator.STANDARD_OPERATOR_COUNT];
 
 	private Matrix textMatrix;
 	private Matrix textLineMatrix;
@@ -100,7 +101,7 @@ public class PDFStreamEngine
 	public void registerOperatorProcessor(String operator, OperatorProcessor op)
 	{
 		op.setContext(this);
-		operators.put(operator, op);
+		putOperator(operator, op);
 	}
 
 	/**
@@ -111,7 +112,17 @@ public class PDFStreamEngine
 	public final void addOperator(OperatorProcessor op)
 	{
 		op.setContext(this);
-		operators.put(op.getName(), op);
+		putOperator(op.getName(), op);
+	}
+
+	private void putOperator(String name, OperatorProcessor op)
+	{
+		operators.put(name, op);
+		int index = Operator.indexOf(name);
+		if (index >= 0)
+		{
+			standardOperators[index] = op;
+		}
 	}
 
 	/**
@@ -447,14 +458,14 @@ public class PDFStreamEngine
 	 */
 	private void processStreamOperators(PDContentStream contentStream) throws IOException
 	{
+		// the operands are only valid while their operator is processed, so one list is reused
 		List<COSBase> arguments = new ArrayList<COSBase>();
 		PDFStreamParser parser = new PDFStreamParser(contentStream.getContentStream());
 		try
 		{
-			Iterator<Object> iter = parser.getTokenIterator();
-			while (iter.hasNext())
+			Object token;
+			while ((token = parser.parseNextToken()) != null)
 			{
-				Object token = iter.next();
 				if (token instanceof COSObject)
 				{
 					arguments.add(((COSObject) token).getObject());
@@ -462,7 +473,7 @@ public class PDFStreamEngine
 				else if (token instanceof Operator)
 				{
 					processOperator((Operator) token, arguments);
-					arguments = new ArrayList<COSBase>();
+					arguments.clear();
 				}
 				else
 				{
@@ -792,8 +803,8 @@ public class PDFStreamEngine
 	 */
 	protected void processOperator(Operator operator, List<COSBase> operands) throws IOException
 	{
-		String name = operator.getName();
-		OperatorProcessor processor = operators.get(name);
+		int index = operator.getIndex();
+		OperatorProcessor processor = index >= 0 ? standardOperators[index] : operators.get(operator.getName());
 		if (processor != null)
 		{
 			processor.setContext(this);
@@ -13,20 +13,69 @@ import com.hopding.pdflib.apache.pdfbox.cos.COSDictionary;
 public final class Operator
 {
     private final String theOperator;
+    private final int index;
     private byte[] imageData;
     private COSDictionary imageParameters;
 
     /** map for singleton operator objects; use {@link ConcurrentHashMap} for better scalability with multiple threads */
     private static final ConcurrentMap<String,Operator> operators = new ConcurrentHashMap<String, Operator>();
 
+    /** the operators of the PDF specification, see {@link #getIndex()} */
+    private static final String[] STANDARD_OPERATORS = {
+        "b", "B", "b*", "B*", "BDC", "BI", "BMC", "BT", "BX", "c", "cm", "CS", "cs", "d", "d0",
+        "d1", "Do", "DP", "EI", "EMC", "ET", "EX", "f", "F", "f*", "G", "g", "gs", "h", "i", "ID",
+        "j", "J", "K", "k", "l", "m", "M", "MP", "n", "q", "Q", "re", "RG", "rg", "ri", "s", "S",
+        "SC", "sc", "SCN", "scn", "sh", "T*", "Tc", "Td", "TD", "Tf", "Tj", "TJ", "TL", "Tm", "Tr",
+        "Ts", "Tw", "Tz", "v", "w", "W", "W*", "y", "'", "\""
+    };
+
+    /**
+     * The number of operators defined by the PDF specification.
+     */
+    public static final int STANDARD_OPERATOR_COUNT = STANDARD_OPERATORS.length;
+
+    // open addressing table of the standard operators keyed by their packed bytes, it is
+    // filled once and never changes, so it can be read by several threads without locking
+    private static final int TABLE_SIZE = 256;
+    private static final int[] TABLE_KEYS = new int[TABLE_SIZE];
+    private static final int[] TABLE_INDEXES = new int[TABLE_SIZE];
+    private static final Operator[] STANDARD = new Operator[STANDARD_OPERATOR_COUNT];
+
+    static
+    {
+        for (int i = 0; i < STANDARD_OPERATOR_COUNT; i++)
+        {
+            String name = STANDARD_OPERATORS[i];
+            int key = 0;
+            for (int j = 0; j < name.length(); j++)
+            {
+                key |= name.charAt(j) << (j * 8);
+            }
+            int slot = slot(key);
+            while (TABLE_KEYS[slot] != 0)
+            {
+                slot = (slot + 1) & (TABLE_SIZE - 1);
+            }
+            TABLE_KEYS[slot] = key;
+            TABLE_INDEXES[slot] = i;
+            if (!name.equals("ID") && !name.equals("BI"))
+            {
+                STANDARD[i] = new Operator(name, i);
+                operators.put(name, STANDARD[i]);
+            }
+        }
+    }
+
     /**
      * Constructor.
      *
      * @param aOperator The operator that this object will represent.
+     * @param index The index of the operator if it is a standard operator, otherwise -1.
      */
-    private Operator(String aOperator)
+    private Operator(String aOperator, int index)
     {
         theOperator = aOperator;
+        this.index = index;
         if( aOperator.startsWith( "/" ) )
         {
             throw new RuntimeException( "Operators are not allowed to start with / '" + aOperator + "'" );
@@ -46,7 +95,7 @@ public final class Operator
         if( operator.equals( "ID" ) || operator.equals( "BI" ) )
         {
             //we can't cache the ID operators.
-            operation = new Operator( operator );
+            operation = new Operator( operator, indexOf( operator ) );
         }
         else
         {
@@ -55,7 +104,7 @@ public final class Operator
             {
                 // another thread may has already added an operator of this kind
                 // make sure that we get the same operator
-                operation = operators.putIfAbsent( operator, new Operator( operator ) );
+                operation = operators.putIfAbsent( operator, new Operator( operator, -1 ) );
                 if ( operation == null )
                 {
                     operation = operators.get( operator );
@@ -66,6 +115,83 @@ public final class Operator
         return operation;
     }
 
+    /**
+     * Returns the operator made of the given bytes, which are read as ISO-8859-1. Standard
+     * operators are found without creating a String.
+     *
+     * @param bytes The buffer holding the operator keyword.
+     * @param length The length of the operator keyword.
+     *
+     * @return The operator that matches the operator keyword.
+     */
+    public static Operator getOperator( byte[] bytes, int length )
+    {
+        if( length > 0 && length <= 3 )
+        {
+            int key = 0;
+            for( int i = 0; i < length; i++ )
+            {
+                key |= (bytes[i] & 0xff) << (i * 8);
+            }
+            int index = find( key );
+            if( index >= 0 && STANDARD[index] != null )
+            {
+                return STANDARD[index];
+            }
+        }
+        char[] chars = new char[length];
+        for( int i = 0; i < length; i++ )
+        {
+            chars[i] = (char)(bytes[i] & 0xff);
+        }
+        return getOperator( new String( chars ) );
+    }
+
+    /**
+     * Returns the index of the given operator among the operators of the PDF specification.
+     *
+     * @param operator The operator keyword.
+     *
+     * @return The index, between 0 and {@link #STANDARD_OPERATOR_COUNT}, or -1 if it isn't a
+     * standard operator.
+     */
+    public static int indexOf( String operator )
+    {
+        int length = operator.length();
+        if( length == 0 || length > 3 )
+        {
+            return -1;
+        }
+        int key = 0;
+        for( int i = 0; i < length; i++ )
+        {
+            char c = operator.charAt( i );
+            if( c > 0xff )
+            {
+                return -1;
+            }
+            key |= c << (i * 8);
+        }
+        return find( key );
+    }
+
+    private static int slot( int key )
+    {
+        return (key * 0x9E3779B1) >>> 24;
+    }
+
+    private static int find( int key )
+    {
+        for( int slot = slot( key ); TABLE_KEYS[slot] != 0; slot = (slot + 1) & (TABLE_SIZE - 1) )
+        {
+            if( TABLE_KEYS[slot] == key )
+            {
+                return TABLE_INDEXES[slot];
+            }
+        }
+        return -1;
+    }
+
     /**
      * This will get the name of the operator.
      *
@@ -76,6 +202,18 @@ public final class Operator
         return theOperator;
     }
 
+    /**
+     * Returns the index of this operator among the operators of the PDF specification, which
+     * allows to dispatch them through an array.
+     *
+     * @return The index, between 0 and {@link #STANDARD_OPERATOR_COUNT}, or -1 if it isn't a
+     * standard operator.
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
     /**
      * This will print a string rep of this class.
      *
@@ -43,7 +43,7 @@ public abstract class OperatorProcessor
     /**
      * Process the operator.
      * @param operator the operator to process
-     * @param operands the operands to use when processing
+     * @param operands the operands to use when processing, the list is reused for the next operator
      * @throws IOException if the operator cannot be processed
      */
     public abstract void process(Operator operator, List<COSBase> operands) throws IOException;
@@ -13,9 +13,10 @@ import com.hopding.pdflib.apache.pdfbox.pdmodel.common.COSObjectable;
  *
  * @author Ben Litchfield
  */
-public class COSArray extends COSBase implements Iterable<COSBase>
+public class COSArray extends COSBase implements Iterable<COSBase>, COSUpdateInfo
 {
     private final List<COSBase> objects = new ArrayList<COSBase>();
+    private boolean needToBeUpdated;
 
     /**
      * Constructor.
@@ -33,6 +34,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>
     public void add( COSBase object )
     {
         objects.add( object );
+        needToBeUpdated = true;
     }
 
     /**
@@ -43,6 +45,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>
     public void add( COSObjectable object )
     {
         objects.add( object.getCOSObject() );
+        needToBeUpdated = true;
     }
 
     /**
@@ -55,6 +58,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>
     public void add( int i, COSBase object)
     {
         objects.add( i, object );
+        needToBeUpdated = true;
     }
 
     /**
@@ -63,6 +67,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>
     public void clear()
     {
         objects.clear();
+        needToBeUpdated = true;
     }
 
     /**
@@ -73,6 +78,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>
     public void removeAll( Collection<COSBase> objectsList )
     {
         objects.removeAll( objectsList );
+        needToBeUpdated = true;
     }
 
     /**
@@ -83,6 +89,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>
     public void retainAll( Collection<COSBase> objectsList )
     {
         objects.retainAll( objectsList );
+        needToBeUpdated = true;
     }
 
     /**
@@ -93,6 +100,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>
     public void addAll( Collection<COSBase> objectsList )
     {
         objects.addAll( objectsList );
+        needToBeUpdated = true;
     }
 
     /**
@@ -105,6 +113,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>
         if( objectList != null )
         {
             objects.addAll( objectList.objects );
+            needToBeUpdated = true;
         }
     }
 
@@ -118,6 +127,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>
     public void addAll( int i, Collection<COSBase> objectList )
     {
         objects.addAll( i, objectList );
+        needToBeUpdated = true;
     }
 
     /**
@@ -129,6 +139,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>
     public void set( int index, COSBase object )
     {
         objects.set( index, object );
+        needToBeUpdated = true;
     }
 
     /**
@@ -140,6 +151,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>
     public void set( int index, int intVal )
     {
         objects.set( index, COSInteger.get(intVal) );
+        needToBeUpdated = true;
     }
 
     /**
@@ -156,6 +168,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>
             base = object.getCOSObject();
         }
         objects.set( index, base );
+        needToBeUpdated = true;
     }
 
     /**
@@ -346,6 +359,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>
      */
     public COSBase remove( int i )
     {
+        needToBeUpdated = true;
         return objects.remove( i );
     }
 
@@ -359,6 +373,7 @@ public class COSArray extends COSBase implements Iterable<COSBase>
      */
     public boolean remove( COSBase o )
     {
+        needToBeUpdated = true;
         return objects.remove( o );
     }
 
@@ -485,6 +500,24 @@ public class COSArray extends COSBase implements Iterable<COSBase>
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isNeedToBeUpdated()
+    {
+        return needToBeUpdated;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setNeedToBeUpdated(boolean flag)
+    {
+        needToBeUpdated = flag;
+    }
+
     /**
      * visitor pattern double dispatch method.
      *
@@ -100,6 +100,7 @@ public class COSDictionary extends COSBase implements COSUpdateInfo
 	public void clear()
 	{
 		items.clear();
+		needToBeUpdated = true;
 	}
 
 	/**
@@ -199,6 +200,7 @@ public class COSDictionary extends COSBase implements COSUpdateInfo
 		else
 		{
 			items.put( key, value );
+			needToBeUpdated = true;
 		}
 	}
 
@@ -1278,7 +1280,10 @@ public class COSDictionary extends COSBase implements COSUpdateInfo
 	 */
 	public void removeItem( COSName key )
 	{
-		items.remove( key );
+		if( items.remove( key ) != null )
+		{
+			needToBeUpdated = true;
+		}
 	}
 
 	/**
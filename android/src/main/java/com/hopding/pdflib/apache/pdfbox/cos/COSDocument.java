@@ -10,6 +10,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import com.hopding.pdflib.apache.pdfbox.filter.CompressionOptions;
 import com.hopding.pdflib.apache.pdfbox.pdfparser.PDFObjectStreamParser;
 
 import android.util.Log;
@@ -60,6 +61,12 @@ public class COSDocument extends COSBase implements Closeable
 
 	private final boolean useScratchFile;
 
+	// loads objects of the pool on demand, if set
+	private ICOSParser parser;
+
+	// how the streams created by this document are compressed
+	private CompressionOptions compressionOptions = CompressionOptions.DEFAULT;
+
 	/**
 	 * Constructor.
 	 *
@@ -102,7 +109,9 @@ public class COSDocument extends COSBase implements Closeable
 	 */
 	public COSStream createCOSStream()
 	{
-		return new COSStream( useScratchFile, scratchDirectory);
+		COSStream stream = new COSStream( useScratchFile, scratchDirectory);
+		stream.setCompressionOptions(compressionOptions);
+		return stream;
 	}
 
 	/**
@@ -114,7 +123,31 @@ public class COSDocument extends COSBase implements Closeable
 	 */
 	public COSStream createCOSStream(COSDictionary dictionary)
 	{
-		return new COSStream( dictionary, useScratchFile, scratchDirectory );
+		COSStream stream = new COSStream( dictionary, useScratchFile, scratchDirectory );
+		stream.setCompressionOptions(compressionOptions);
+		return stream;
+	}
+
+	/**
+	 * Returns how the streams created by this document are compressed.
+	 */
+	public CompressionOptions getCompressionOptions()
+	{
+		return compressionOptions;
+	}
+
+	/**
+	 * Sets how the streams created by this document from now on are compressed.
+	 *
+	 * @param compressionOptions The compression settings.
+	 */
+	public void setCompressionOptions(CompressionOptions compressionOptions)
+	{
+		if (compressionOptions == null)
+		{
+			throw new IllegalArgumentException("compressionOptions cannot be null");
+		}
+		this.compressionOptions = compressionOptions;
 	}
 
 	/**
@@ -459,6 +492,10 @@ public class COSDocument extends COSBase implements Closeable
 			{
 				for (COSObject object : list) 
 				{
+					if (!object.isDereferenced())
+					{
+						continue;
+					}
 					COSBase cosObject = object.getObject();
 					if (cosObject instanceof COSStream)
 					{
@@ -545,6 +582,17 @@ public class COSDocument extends COSBase implements Closeable
 		}
 	}
 
+	/**
+	 * Sets the parser which loads objects of the pool the first time they are requested,
+	 * instead of all of them being parsed up front.
+	 *
+	 * @param parser the parser of this document
+	 */
+	public void setParser(ICOSParser parser)
+	{
+		this.parser = parser;
+	}
+
 	/**
 	 * This will get an object from the pool.
 	 *
@@ -565,6 +613,7 @@ public class COSDocument extends COSBase implements Closeable
 		{
 			// this was a forward reference, make "proxy" object
 			obj = new COSObject(null);
+			obj.setParser(parser);
 			if( key != null )
 			{
 				obj.setObjectNumber(key.getNumber());
@@ -2,7 +2,9 @@ package com.hopding.pdflib.apache.pdfbox.cos;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.math.BigDecimal;
+
+import com.hopding.pdflib.apache.pdfbox.util.Charsets;
+import com.hopding.pdflib.apache.pdfbox.util.NumberFormatUtil;
 
 /**
  * This class represents a floating point number in a PDF document.
@@ -11,8 +13,7 @@ import java.math.BigDecimal;
  */
 public class COSFloat extends COSNumber
 {
-    private BigDecimal value;
-    private String valueAsString;
+    private final float value;
 
     /**
      * Constructor.
@@ -21,10 +22,11 @@ public class COSFloat extends COSNumber
      */
     public COSFloat( float aFloat )
     {
-    	// use a BigDecimal as intermediate state to avoid
-    	// a floating point string representation of the float value
-    	value = new BigDecimal(String.valueOf(aFloat));
-    	valueAsString = removeNullDigits(value.toPlainString());
+        if (Float.isNaN(aFloat) || Float.isInfinite(aFloat))
+        {
+            throw new IllegalArgumentException( "Not a PDF number: " + aFloat );
+        }
+        value = aFloat;
     }
 
     /**
@@ -36,28 +38,29 @@ public class COSFloat extends COSNumber
      */
     public COSFloat( String aFloat ) throws IOException
     {
+        for (int i = 0; i < aFloat.length(); i++)
+        {
+            char c = aFloat.charAt(i);
+            if (!(c >= '0' && c <= '9' || c == '.' || c == '-' || c == '+' || c == 'e' || c == 'E'))
+            {
+                throw new IOException( "Error expected floating point number actual='" +aFloat + "'" );
+            }
+        }
+        float parsed;
         try
         {
-            valueAsString = aFloat; 
-            value = new BigDecimal( valueAsString );
+            parsed = Float.parseFloat( aFloat );
         }
         catch( NumberFormatException e )
         {
             throw new IOException( "Error expected floating point number actual='" +aFloat + "'", e );
         }
-    }
-
-    private static String removeNullDigits(String plainStringValue)
-    {
-        // remove fraction digit "0" only
-        if (plainStringValue.indexOf('.') > -1 && !plainStringValue.endsWith(".0"))
+        // reals beyond the range of a float are limited to the largest float
+        if (Float.isInfinite(parsed))
         {
-            while (plainStringValue.endsWith("0") && !plainStringValue.endsWith(".0"))
-            {
-                plainStringValue = plainStringValue.substring(0,plainStringValue.length()-1);
-            }
+            parsed = parsed > 0 ? Float.MAX_VALUE : -Float.MAX_VALUE;
         }
-        return plainStringValue;
+        value = parsed;
     }
 
     /**
@@ -68,7 +71,7 @@ public class COSFloat extends COSNumber
     @Override
     public float floatValue()
     {
-        return value.floatValue();
+        return value;
     }
 
     /**
@@ -79,7 +82,7 @@ public class COSFloat extends COSNumber
     @Override
     public double doubleValue()
     {
-        return value.doubleValue();
+        return value;
     }
 
     /**
@@ -90,7 +93,7 @@ public class COSFloat extends COSNumber
     @Override
     public long longValue()
     {
-        return value.longValue();
+        return (long) value;
     }
 
     /**
@@ -101,7 +104,7 @@ public class COSFloat extends COSNumber
     @Override
     public int intValue()
     {
-        return value.intValue();
+        return (int) value;
     }
 
     /**
@@ -111,7 +114,7 @@ public class COSFloat extends COSNumber
     public boolean equals( Object o )
     {
         return o instanceof COSFloat &&
-        		Float.floatToIntBits(((COSFloat)o).value.floatValue()) == Float.floatToIntBits(value.floatValue());
+        		Float.floatToIntBits(((COSFloat)o).value) == Float.floatToIntBits(value);
     }
 
     /**
@@ -120,7 +123,7 @@ public class COSFloat extends COSNumber
     @Override
     public int hashCode()
     {
-        return value.hashCode();
+        return Float.floatToIntBits(value);
     }
 
     /**
@@ -129,7 +132,9 @@ public class COSFloat extends COSNumber
     @Override
     public String toString()
     {
-        return "COSFloat{" + valueAsString + "}";
+        byte[] buffer = new byte[NumberFormatUtil.MAX_FLOAT_LENGTH];
+        int length = format(buffer);
+        return "COSFloat{" + new String(buffer, 0, length, Charsets.US_ASCII) + "}";
     }
 
     /**
@@ -153,6 +158,26 @@ public class COSFloat extends COSNumber
      */
     public void writePDF( OutputStream output ) throws IOException
     {
-        output.write(valueAsString.getBytes("ISO-8859-1"));
+        byte[] buffer = new byte[NumberFormatUtil.MAX_FLOAT_LENGTH];
+        output.write(buffer, 0, format(buffer));
+    }
+
+    /**
+     * Writes the shortest representation of the value into the given buffer. Integral values get
+     * a trailing ".0" so that they are read back as reals.
+     */
+    private int format(byte[] buffer)
+    {
+        int length = NumberFormatUtil.formatFloat(value, buffer);
+        for (int i = 0; i < length; i++)
+        {
+            if (buffer[i] == '.')
+            {
+                return length;
+            }
+        }
+        buffer[length++] = '.';
+        buffer[length++] = '0';
+        return length;
     }
 }
\ No newline at end of file
@@ -17,9 +17,10 @@ public final class COSInteger extends COSNumber
     private static final int LOW = -100;
 
     /**
-     * The highest integer to be kept in the {@link #STATIC} array.
+     * The highest integer to be kept in the {@link #STATIC} array, large enough
+     * for glyph widths and the coordinates of common page sizes.
      */
-    private static final int HIGH = 256;
+    private static final int HIGH = 1024;
 
     /**
      * Static instances of all COSIntegers in the range from {@link #LOW}
@@ -2,6 +2,9 @@ package com.hopding.pdflib.apache.pdfbox.cos;
 
 import java.io.IOException;
 
+import com.hopding.pdflib.apache.pdfbox.util.Charsets;
+import com.hopding.pdflib.apache.pdfbox.util.NumberFormatUtil;
+
 /**
  * This class represents an abstract number in a PDF document.
  *
@@ -98,4 +101,77 @@ public abstract class COSNumber extends COSBase
             return new COSFloat(number);
         }
     }
+
+    /**
+     * This factory method will get the appropriate number object from the ASCII characters of a
+     * number. Plain integers and reals are converted without creating a string, anything else is
+     * handled like {@link #get(String)}.
+     *
+     * @param number buffer with the characters of the number.
+     * @param length the number of characters in the buffer.
+     *
+     * @return A number object, either float or int.
+     *
+     * @throws IOException If the characters are not a number.
+     */
+    public static COSNumber get( byte[] number, int length ) throws IOException
+    {
+        int i = 0;
+        boolean negative = false;
+        if (length > 1 && (number[0] == '-' || number[0] == '+'))
+        {
+            negative = number[0] == '-';
+            i++;
+        }
+
+        long digits = 0;
+        int significantDigits = 0;
+        int fractionDigits = -1;
+        boolean hasDigits = false;
+        for (; i < length; i++)
+        {
+            int c = number[i];
+            if (c >= '0' && c <= '9')
+            {
+                // up to 18 digits can't overflow a long
+                if (significantDigits == 18)
+                {
+                    return get(new String(number, 0, length, Charsets.ISO_8859_1));
+                }
+                digits = digits * 10 + (c - '0');
+                if (digits != 0)
+                {
+                    significantDigits++;
+                }
+                if (fractionDigits >= 0)
+                {
+                    fractionDigits++;
+                }
+                hasDigits = true;
+            }
+            else if (c == '.' && fractionDigits < 0)
+            {
+                fractionDigits = 0;
+            }
+            else
+            {
+                return get(new String(number, 0, length, Charsets.ISO_8859_1));
+            }
+        }
+
+        if (!hasDigits)
+        {
+            return get(new String(number, 0, length, Charsets.ISO_8859_1));
+        }
+        if (fractionDigits < 0)
+        {
+            return COSInteger.get(negative ? -digits : digits);
+        }
+        float value = NumberFormatUtil.toFloat(digits, fractionDigits);
+        if (Float.isNaN(value))
+        {
+            return new COSFloat(new String(number, 0, length, Charsets.ISO_8859_1));
+        }
+        return new COSFloat(negative ? -value : value);
+    }
 }
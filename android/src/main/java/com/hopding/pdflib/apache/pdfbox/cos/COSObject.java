@@ -2,6 +2,8 @@ package com.hopding.pdflib.apache.pdfbox.cos;
 
 import java.io.IOException;
 
+import android.util.Log;
+
 /**
  * This class represents a PDF object.
  *
@@ -13,6 +15,9 @@ public class COSObject extends COSBase implements COSUpdateInfo
     private long objectNumber;
     private int generationNumber;
     private boolean needToBeUpdated;
+    // written after the object is loaded, so a thread that reads it as null sees the object
+    private volatile ICOSParser parser;
+    private boolean loading;
 
     /**
      * Constructor.
@@ -37,9 +42,10 @@ public class COSObject extends COSBase implements COSUpdateInfo
     public COSBase getDictionaryObject( COSName key )
     {
         COSBase retval =null;
-        if( baseObject instanceof COSDictionary )
+        COSBase object = getObject();
+        if( object instanceof COSDictionary )
         {
-            retval = ((COSDictionary)baseObject).getDictionaryObject( key );
+            retval = ((COSDictionary)object).getDictionaryObject( key );
         }
         return retval;
     }
@@ -54,23 +60,75 @@ public class COSObject extends COSBase implements COSUpdateInfo
     public COSBase getItem( COSName key )
     {
         COSBase retval =null;
-        if( baseObject instanceof COSDictionary )
+        COSBase object = getObject();
+        if( object instanceof COSDictionary )
         {
-            retval = ((COSDictionary)baseObject).getItem( key );
+            retval = ((COSDictionary)object).getItem( key );
         }
         return retval;
     }
 
     /**
-     * This will get the object that this object encapsulates.
+     * This will get the object that this object encapsulates. If the object
+     * has not been parsed yet it is loaded on demand.
      *
      * @return The encapsulated object.
      */
     public COSBase getObject()
     {
+        ICOSParser currentParser = parser;
+        if( currentParser != null )
+        {
+            // loads share the parser's source, so only one at a time, and other threads wait
+            // for a load in progress instead of seeing the object as missing
+            synchronized( currentParser )
+            {
+                // only try once, the parser itself checks whether the object is loaded
+                if( parser != null && !loading )
+                {
+                    if( baseObject == null )
+                    {
+                        loading = true;
+                        try
+                        {
+                            currentParser.dereferenceCOSObject( this );
+                        }
+                        catch( IOException e )
+                        {
+                            Log.w("PdfBoxAndroid", "Can't dereference " + this, e);
+                        }
+                        finally
+                        {
+                            loading = false;
+                        }
+                    }
+                    parser = null;
+                }
+            }
+        }
         return baseObject;
     }
 
+    /**
+     * Sets the parser which loads the encapsulated object the first time it is requested.
+     *
+     * @param parser the parser of the document this object belongs to
+     */
+    public void setParser( ICOSParser parser )
+    {
+        this.parser = parser;
+    }
+
+    /**
+     * Indicates if the encapsulated object is available without parsing it first.
+     *
+     * @return true if the object is loaded or can't be loaded on demand
+     */
+    public boolean isDereferenced()
+    {
+        return baseObject != null || parser == null;
+    }
+
     /**
      * This will set the object that this object encapsulates.
      *
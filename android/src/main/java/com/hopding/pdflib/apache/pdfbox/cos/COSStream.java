@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import com.hopding.pdflib.apache.pdfbox.filter.CompressionOptions;
 import com.hopding.pdflib.apache.pdfbox.filter.DecodeResult;
 import com.hopding.pdflib.apache.pdfbox.filter.Filter;
 import com.hopding.pdflib.apache.pdfbox.filter.FilterFactory;
@@ -24,6 +25,9 @@ import android.util.Log;
 /**
  * This class represents a stream object in a PDF document.
  *
+ * The stream is decoded or encoded the first time it is read, the methods that do so are
+ * synchronized so that a document can be read from several threads.
+ *
  * @author Ben Litchfield
  */
 public class COSStream extends COSDictionary implements Closeable
@@ -44,6 +48,7 @@ public class COSStream extends COSDictionary implements Closeable
      */
     private RandomAccessFileOutputStream unFilteredStream;
     private DecodeResult decodeResult;
+    private CompressionOptions compressionOptions = CompressionOptions.DEFAULT;
     
     private File scratchFile;
 
@@ -135,7 +140,7 @@ public class COSStream extends COSDictionary implements Closeable
      *
      * @throws IOException when encoding/decoding causes an exception
      */
-    public InputStream getFilteredStream() throws IOException
+    public synchronized InputStream getFilteredStream() throws IOException
     {
     	if (buffer.isClosed())
     	{
@@ -162,7 +167,7 @@ public class COSStream extends COSDictionary implements Closeable
      *
      * @throws IOException 
      */
-    public long getFilteredLength() throws IOException
+    public synchronized long getFilteredLength() throws IOException
     {
         if (filteredStream == null)
         {
@@ -178,7 +183,7 @@ public class COSStream extends COSDictionary implements Closeable
      *
      * @throws IOException when encoding/decoding causes an exception
      */
-    public InputStream getUnfilteredStream() throws IOException
+    public synchronized InputStream getUnfilteredStream() throws IOException
     {
     	if (buffer.isClosed())
     	{
@@ -215,7 +220,7 @@ public class COSStream extends COSDictionary implements Closeable
      * @return the repaired stream parameters dictionary
      * @throws IOException when encoding/decoding causes an exception
      */
-    public DecodeResult getDecodeResult() throws IOException
+    public synchronized DecodeResult getDecodeResult() throws IOException
     {
         if (unFilteredStream == null)
         {
@@ -412,6 +417,27 @@ public class COSStream extends COSDictionary implements Closeable
                 doEncode( filterName, i );
             }
         }
+
+        if (compressionOptions.isStoreIfIncompressible() && isFlateOnly(filters)
+                && filteredStream.getLengthWritten() >= unFilteredStream.getLengthWritten())
+        {
+            // compression doesn't pay off, store the data as it is
+            removeItem(COSName.FILTER);
+            filteredStream = unFilteredStream;
+        }
+    }
+
+    /**
+     * Returns true if the given filters are just the Flate filter without parameters.
+     */
+    private boolean isFlateOnly(COSBase filters)
+    {
+        if (filters instanceof COSArray && ((COSArray)filters).size() == 1)
+        {
+            filters = ((COSArray)filters).get(0);
+        }
+        return filters == COSName.FLATE_DECODE
+                && getDictionaryObject(COSName.DECODE_PARMS, COSName.DP) == null;
     }
 
     /**
@@ -431,10 +457,33 @@ public class COSStream extends COSDictionary implements Closeable
                                                    filteredStream.getLength() ), BUFFER_SIZE );
         IOUtils.closeQuietly(filteredStream);
         filteredStream = new RandomAccessFileOutputStream( buffer );
-        filter.encode( input, filteredStream, this, filterIndex );
+        filter.encode( input, filteredStream, this, filterIndex, compressionOptions );
         IOUtils.closeQuietly(input);
     }
 
+    /**
+     * Returns how the data of this stream is compressed when it is encoded.
+     */
+    public CompressionOptions getCompressionOptions()
+    {
+        return compressionOptions;
+    }
+
+    /**
+     * Sets how the data of this stream is compressed when it is encoded. Streams created by a
+     * document get the settings of the document.
+     *
+     * @param compressionOptions The compression settings.
+     */
+    public void setCompressionOptions(CompressionOptions compressionOptions)
+    {
+        if (compressionOptions == null)
+        {
+            throw new IllegalArgumentException("compressionOptions cannot be null");
+        }
+        this.compressionOptions = compressionOptions;
+    }
+
     /**
      * This will return the filters to apply to the byte stream.
      * The method will return
@@ -464,6 +513,7 @@ public class COSStream extends COSDictionary implements Closeable
         unFilteredStream = null;
         IOUtils.closeQuietly(filteredStream);
         filteredStream = new RandomAccessFileOutputStream( buffer );
+        setNeedToBeUpdated(true);
         return new BufferedOutputStream( filteredStream, BUFFER_SIZE );
     }
 
@@ -518,6 +568,7 @@ public class COSStream extends COSDictionary implements Closeable
         filteredStream = null;
         IOUtils.closeQuietly(unFilteredStream);
         unFilteredStream = new RandomAccessFileOutputStream( buffer );
+        setNeedToBeUpdated(true);
         return new BufferedOutputStream( unFilteredStream, BUFFER_SIZE );
     }
     
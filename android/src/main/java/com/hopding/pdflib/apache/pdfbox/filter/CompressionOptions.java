@@ -0,0 +1,75 @@
+package com.hopding.pdflib.apache.pdfbox.filter;
+
+import java.util.zip.Deflater;
+
+/**
+ * The settings used to compress the streams of a document with the Flate filter.
+ *
+ * The settings are immutable, so that they can be shared by the streams of several documents.
+ *
+ * @see com.hopding.pdflib.apache.pdfbox.pdmodel.PDDocument#setCompressionOptions(CompressionOptions)
+ */
+public final class CompressionOptions
+{
+    /**
+     * The default settings: the default zlib level and strategy, and streams are always stored
+     * compressed.
+     */
+    public static final CompressionOptions DEFAULT =
+            new CompressionOptions(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY, false);
+
+    private final int level;
+    private final int strategy;
+    private final boolean storeIfIncompressible;
+
+    /**
+     * Constructor.
+     *
+     * @param level The compression level, from 0 (none) to 9 (best), or
+     * {@link Deflater#DEFAULT_COMPRESSION}.
+     * @param strategy The compression strategy, {@link Deflater#DEFAULT_STRATEGY},
+     * {@link Deflater#FILTERED} or {@link Deflater#HUFFMAN_ONLY}.
+     * @param storeIfIncompressible Whether a stream whose compressed data isn't smaller than its
+     * data is stored without the Flate filter.
+     */
+    public CompressionOptions(int level, int strategy, boolean storeIfIncompressible)
+    {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION)
+        {
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        }
+        if (strategy != Deflater.DEFAULT_STRATEGY && strategy != Deflater.FILTERED
+                && strategy != Deflater.HUFFMAN_ONLY)
+        {
+            throw new IllegalArgumentException("Invalid compression strategy " + strategy);
+        }
+        this.level = level;
+        this.strategy = strategy;
+        this.storeIfIncompressible = storeIfIncompressible;
+    }
+
+    /**
+     * Returns the compression level.
+     */
+    public int getLevel()
+    {
+        return level;
+    }
+
+    /**
+     * Returns the compression strategy.
+     */
+    public int getStrategy()
+    {
+        return strategy;
+    }
+
+    /**
+     * Returns whether a stream whose compressed data isn't smaller than its data is stored
+     * without the Flate filter.
+     */
+    public boolean isStoreIfIncompressible()
+    {
+        return storeIfIncompressible;
+    }
+}
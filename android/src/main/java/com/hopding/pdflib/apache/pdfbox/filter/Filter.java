@@ -46,13 +46,36 @@ public abstract class Filter
     public final void encode(InputStream input, OutputStream encoded, COSDictionary parameters,
                             int index) throws IOException
     {
-        encode(input, encoded, parameters.asUnmodifiableDictionary());
+        encode(input, encoded, parameters, index, CompressionOptions.DEFAULT);
+    }
+
+    /**
+     * Encodes data with the given compression settings.
+     * @param input the byte stream to encode
+     * @param encoded the stream where encoded data will be written
+     * @param parameters the parameters used for encoding
+     * @param index the index to the filter being encoded
+     * @param options the compression settings, used by filters which compress
+     * @throws IOException if the stream cannot be encoded
+     */
+    public final void encode(InputStream input, OutputStream encoded, COSDictionary parameters,
+                            int index, CompressionOptions options) throws IOException
+    {
+        COSDictionary unmodifiable = parameters.asUnmodifiableDictionary();
+        encode(input, encoded, unmodifiable, getDecodeParams(unmodifiable, index), options);
     }
 
     // implemented in subclasses
     protected abstract void encode(InputStream input, OutputStream encoded,
                                    COSDictionary parameters) throws IOException;
 
+    // overridden by filters which compress, or apply the decode params of the filter
+    protected void encode(InputStream input, OutputStream encoded, COSDictionary parameters,
+                          COSDictionary decodeParams, CompressionOptions options) throws IOException
+    {
+        encode(input, encoded, parameters);
+    }
+
     // gets the decode params for a specific filter index, this is used to
     // normalise the DecodeParams entry so that it is always a dictionary
     protected static COSDictionary getDecodeParams(COSDictionary dictionary, int index)
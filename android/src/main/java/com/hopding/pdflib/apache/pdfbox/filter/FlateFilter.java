@@ -1,11 +1,11 @@
 package com.hopding.pdflib.apache.pdfbox.filter;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
 
@@ -23,7 +23,7 @@ import android.util.Log;
  */
 final class FlateFilter extends Filter
 {
-    private static final int BUFFER_SIZE = 16348;
+    private static final int BUFFER_SIZE = 0x10000;
 
     @Override
     public DecodeResult decode(InputStream encoded, OutputStream decoded,
@@ -46,11 +46,10 @@ final class FlateFilter extends Filter
                 int columns = decodeParams.getInt(COSName.COLUMNS, 1);
                 ByteArrayOutputStream baos = new ByteArrayOutputStream();
                 decompress(encoded, baos);
-                ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
-                Predictor.decodePredictor(predictor, colors, bitsPerPixel, columns, bais, decoded);
+                byte[] bytes = baos.toByteArray();
+                Predictor.decodePredictor(predictor, colors, bitsPerPixel, columns, bytes,
+                        bytes.length, decoded);
                 decoded.flush();
-                baos.reset();
-                bais.reset();
             }
             else
             {
@@ -72,29 +71,41 @@ final class FlateFilter extends Filter
     // missing Z_STREAM_END, see PDFBOX-1232 for details
     private static void decompress(InputStream in, OutputStream out) throws IOException, DataFormatException 
     { 
-        byte[] buf = new byte[2048]; 
-        int read = in.read(buf); 
-        if (read > 0) 
-        { 
-            Inflater inflater = new Inflater(); 
-            inflater.setInput(buf,0,read); 
-            byte[] res = new byte[2048]; 
-            while (true) 
+        Codec codec = Codec.acquire();
+        try
+        {
+            byte[] buf = codec.input;
+            int read = in.read(buf); 
+            if (read > 0) 
             { 
-                int resRead = inflater.inflate(res); 
-                if (resRead != 0) 
-                { 
-                    out.write(res,0,resRead); 
-                    continue; 
-                } 
-                if (inflater.finished() || inflater.needsDictionary() || in.available() == 0) 
-                {
-                    break;
-                } 
-                read = in.read(buf); 
+                Inflater inflater = codec.inflater;
                 inflater.setInput(buf,0,read); 
+                byte[] res = codec.output;
+                while (true) 
+                { 
+                    int resRead = inflater.inflate(res); 
+                    if (resRead != 0) 
+                    { 
+                        out.write(res,0,resRead); 
+                        continue; 
+                    } 
+                    if (inflater.finished() || inflater.needsDictionary() || in.available() == 0) 
+                    {
+                        break;
+                    } 
+                    read = in.read(buf); 
+                    if (read <= 0)
+                    {
+                        break;
+                    }
+                    inflater.setInput(buf,0,read); 
+                }
             }
         }
+        finally
+        {
+            codec.release();
+        }
         out.flush();
     }
     
@@ -102,18 +113,143 @@ final class FlateFilter extends Filter
     protected void encode(InputStream input, OutputStream encoded, COSDictionary parameters)
             throws IOException
     {
-        DeflaterOutputStream out = new DeflaterOutputStream(encoded);
-        int amountRead;
-        int mayRead = input.available();
-        if (mayRead > 0)
+        encode(input, encoded, parameters, null, CompressionOptions.DEFAULT);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * If the decode params have a Predictor, it is applied to the data before it is compressed;
+     * with a PNG predictor the best one is chosen for each row.
+     */
+    @Override
+    protected void encode(InputStream input, OutputStream encoded, COSDictionary parameters,
+            COSDictionary decodeParams, CompressionOptions options) throws IOException
+    {
+        int predictor = -1;
+        if (decodeParams != null)
+        {
+            predictor = decodeParams.getInt(COSName.PREDICTOR);
+        }
+
+        Codec codec = Codec.acquire();
+        try
         {
-            byte[] buffer = new byte[Math.min(mayRead,BUFFER_SIZE)];
-            while ((amountRead = input.read(buffer, 0, Math.min(mayRead,BUFFER_SIZE))) != -1)
+            Deflater deflater = codec.getDeflater();
+            deflater.setLevel(options.getLevel());
+            deflater.setStrategy(options.getStrategy());
+            byte[] buffer = codec.input;
+            int amountRead;
+            if (predictor > 1)
             {
-                out.write(buffer, 0, amountRead);
+                int colors = Math.min(decodeParams.getInt(COSName.COLORS, 1), 32);
+                int bitsPerComponent = decodeParams.getInt(COSName.BITS_PER_COMPONENT, 8);
+                int columns = decodeParams.getInt(COSName.COLUMNS, 1);
+                // the deflater isn't ended when the stream is closed, as it isn't its own
+                OutputStream predicted = new PredictorOutputStream(
+                        new DeflaterOutputStream(encoded, deflater, BUFFER_SIZE),
+                        predictor, colors, bitsPerComponent, columns);
+                while ((amountRead = input.read(buffer)) != -1)
+                {
+                    predicted.write(buffer, 0, amountRead);
+                }
+                predicted.close();
+                return;
+            }
+            byte[] res = codec.output;
+            while ((amountRead = input.read(buffer)) != -1)
+            {
+                deflater.setInput(buffer, 0, amountRead);
+                while (!deflater.needsInput())
+                {
+                    int length = deflater.deflate(res);
+                    encoded.write(res, 0, length);
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished())
+            {
+                int length = deflater.deflate(res);
+                encoded.write(res, 0, length);
+            }
+        }
+        finally
+        {
+            codec.release();
+        }
+        encoded.close();
+    }
+
+    /**
+     * The inflater, deflater and buffers of a thread, which are reset and reused for each
+     * stream instead of leaving the native memory of a new instance per stream to the finalizer.
+     */
+    private static final class Codec
+    {
+        private static final ThreadLocal<Codec> CODECS = new ThreadLocal<Codec>()
+        {
+            @Override
+            protected Codec initialValue()
+            {
+                return new Codec(true);
+            }
+        };
+
+        private final boolean pooled;
+        private final Inflater inflater = new Inflater();
+        private Deflater deflater;
+        private final byte[] input = new byte[BUFFER_SIZE];
+        private final byte[] output = new byte[BUFFER_SIZE];
+        private boolean inUse;
+
+        private Codec(boolean pooled)
+        {
+            this.pooled = pooled;
+        }
+
+        /**
+         * Returns the codec of the current thread, or a new one if it is in use, e.g. by a
+         * stream which is decoded while decoding another one.
+         */
+        static Codec acquire()
+        {
+            Codec codec = CODECS.get();
+            if (codec.inUse)
+            {
+                codec = new Codec(false);
+            }
+            codec.inUse = true;
+            return codec;
+        }
+
+        Deflater getDeflater()
+        {
+            if (deflater == null)
+            {
+                deflater = new Deflater();
+            }
+            return deflater;
+        }
+
+        void release()
+        {
+            inUse = false;
+            if (pooled)
+            {
+                inflater.reset();
+                if (deflater != null)
+                {
+                    deflater.reset();
+                }
+            }
+            else
+            {
+                inflater.end();
+                if (deflater != null)
+                {
+                    deflater.end();
+                }
             }
         }
-        out.close();
-        encoded.flush();
     }
 }
@@ -15,18 +15,13 @@
  */
 package com.hopding.pdflib.apache.pdfbox.filter;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
-import com.hopding.pdflib.apache.javax.imageio.stream.MemoryCacheImageInputStream;
-import com.hopding.pdflib.apache.javax.imageio.stream.MemoryCacheImageOutputStream;
 import com.hopding.pdflib.apache.pdfbox.cos.COSDictionary;
 import com.hopding.pdflib.apache.pdfbox.cos.COSName;
 
@@ -50,6 +45,16 @@ public class LZWFilter extends Filter
      * The LZW end of data code.
      */
     public static final long EOD = 257;
+
+    // the codes have at most 12 bits
+    private static final int MAX_CODES = 4096;
+
+    // the encoder's hash table of the codes, at most half full
+    private static final int HASH_SIZE = 8192;
+    private static final int HASH_SHIFT = 19;
+    private static final int HASH_MULTIPLIER = 0x9E3779B1;
+
+    private static final int BUFFER_SIZE = 8192;
     
     //BEWARE: codeTable must be local to each method, because there is only
     // one instance of each filter
@@ -81,11 +86,10 @@ public class LZWFilter extends Filter
             int columns = decodeParams.getInt(COSName.COLUMNS, 1);
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             doLZWDecode(encoded, baos, earlyChange);
-            ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
-            Predictor.decodePredictor(predictor, colors, bitsPerPixel, columns, bais, decoded);
+            byte[] bytes = baos.toByteArray();
+            Predictor.decodePredictor(predictor, colors, bitsPerPixel, columns, bytes,
+                    bytes.length, decoded);
             decoded.flush();
-            baos.reset();
-            bais.reset();
         }
         else
         {
@@ -96,48 +100,84 @@ public class LZWFilter extends Filter
 
     private static void doLZWDecode(InputStream encoded, OutputStream decoded, int earlyChange) throws IOException
     {
-        List<byte[]> codeTable = new ArrayList<byte[]>();
+        // the code table as the prefix code and the last byte of each code, with the length
+        // and the first byte of the bytes it stands for
+        int[] prefix = new int[MAX_CODES];
+        byte[] suffix = new byte[MAX_CODES];
+        byte[] first = new byte[MAX_CODES];
+        int[] length = new int[MAX_CODES];
+        for (int i = 0; i < 256; i++)
+        {
+            prefix[i] = -1;
+            suffix[i] = (byte) i;
+            first[i] = (byte) i;
+            length[i] = 1;
+        }
+        int tableSize = (int) EOD + 1;
         int chunk = 9;
-        final MemoryCacheImageInputStream in = new MemoryCacheImageInputStream(encoded);
-        long nextCommand;
-        long prevCommand = -1;
+        final CodeReader in = new CodeReader(encoded);
+        // the bytes of a code are written from their end to their start, so the buffer keeps
+        // room for the longest one
+        byte[] buffer = new byte[BUFFER_SIZE + MAX_CODES];
+        int position = 0;
+        int nextCommand;
+        int prevCommand = -1;
 
         try
         {
-            while ((nextCommand = in.readBits(chunk)) != EOD)
+            while ((nextCommand = in.read(chunk)) != EOD)
             {
                 if (nextCommand == CLEAR_TABLE)
                 {
                     chunk = 9;
-                    codeTable = createCodeTable();
+                    tableSize = (int) EOD + 1;
                     prevCommand = -1;
                 }
                 else
                 {
-                    if (nextCommand < codeTable.size())
+                    int code = nextCommand;
+                    if (nextCommand < tableSize)
                     {
-                        byte[] data = codeTable.get((int) nextCommand);
-                        byte firstByte = data[0];
-                        decoded.write(data);
-                        if (prevCommand != -1)
+                        if (prevCommand != -1 && tableSize < MAX_CODES)
                         {
-                            data = codeTable.get((int) prevCommand);
-                            byte[] newData = Arrays.copyOf(data, data.length + 1);
-                            newData[data.length] = firstByte;
-                            codeTable.add(newData);
+                            prefix[tableSize] = prevCommand;
+                            suffix[tableSize] = first[nextCommand];
+                            first[tableSize] = first[prevCommand];
+                            length[tableSize] = length[prevCommand] + 1;
+                            tableSize++;
                         }
                     }
                     else
                     {
-                        byte[] data = codeTable.get((int) prevCommand);
-                        byte[] newData = Arrays.copyOf(data, data.length + 1);
-                        newData[data.length] = data[0];
-                        decoded.write(newData);
-                        codeTable.add(newData);
+                        // the code being defined: the previous bytes and their first byte
+                        if (prevCommand == -1)
+                        {
+                            throw new IOException("Invalid LZW code " + nextCommand
+                                    + " at the start of the code table");
+                        }
+                        code = tableSize;
+                        prefix[code] = prevCommand;
+                        suffix[code] = first[prevCommand];
+                        first[code] = first[prevCommand];
+                        length[code] = length[prevCommand] + 1;
+                        tableSize++;
+                    }
+
+                    int end = position + length[code];
+                    for (int i = end - 1, c = code; i >= position; i--)
+                    {
+                        buffer[i] = suffix[c];
+                        c = prefix[c];
+                    }
+                    position = end;
+                    if (position >= BUFFER_SIZE)
+                    {
+                        decoded.write(buffer, 0, position);
+                        position = 0;
                     }
-                    
-                    chunk = calculateChunk(codeTable.size(), earlyChange);
-                    prevCommand = nextCommand;
+
+                    chunk = calculateChunk(tableSize, earlyChange);
+                    prevCommand = code;
                 }
             }
         }
@@ -145,6 +185,7 @@ public class LZWFilter extends Filter
         {
         	Log.w("PdfBoxAndroid", "Premature EOF in LZW stream, EOD code missing");
         }
+        decoded.write(buffer, 0, position);
         decoded.flush();
     }
 
@@ -155,55 +196,61 @@ public class LZWFilter extends Filter
     protected void encode(InputStream rawData, OutputStream encoded, COSDictionary parameters)
             throws IOException
     {
-        List<byte[]> codeTable = createCodeTable();
+        // the code table as a hash table of the codes by their prefix code and last byte
+        int[] keys = new int[HASH_SIZE];
+        short[] codes = new short[HASH_SIZE];
+        Arrays.fill(keys, -1);
+        int tableSize = (int) EOD + 1;
         int chunk = 9;
 
-        byte[] inputPattern = null;
-        final MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(encoded);
-        out.writeBits(CLEAR_TABLE, chunk);
+        final CodeWriter out = new CodeWriter(encoded);
+        out.write(CLEAR_TABLE, chunk);
         int foundCode = -1;
-        int r;
-        while ((r = rawData.read()) != -1)
+        byte[] input = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = rawData.read(input)) != -1)
         {
-            byte by = (byte) r;
-            if (inputPattern == null)
-            {
-            	inputPattern = new byte[] { by };
-                foundCode = by & 0xff;
-            }
-            else
+            for (int i = 0; i < read; i++)
             {
-                inputPattern = Arrays.copyOf(inputPattern, inputPattern.length + 1);
-                inputPattern[inputPattern.length - 1] = by;
-                int newFoundCode = findPatternCode(codeTable, inputPattern);
-                if (newFoundCode == -1)
+                int by = input[i] & 0xff;
+                if (foundCode == -1)
                 {
-                    // use previous
-                    chunk = calculateChunk(codeTable.size() - 1, 1);
-                    out.writeBits(foundCode, chunk);
-                    // create new table entry
-                    codeTable.add(inputPattern);
-
-                    if (codeTable.size() == 4096)
-                    {
-                        // code table is full
-                        out.writeBits(CLEAR_TABLE, chunk);
-                        codeTable = createCodeTable();
-                    }
-
-                    inputPattern = new byte[] { by };
-                    foundCode = by & 0xff;
+                    foundCode = by;
+                    continue;
                 }
-                else
+                int key = foundCode << 8 | by;
+                int slot = key * HASH_MULTIPLIER >>> HASH_SHIFT;
+                while (keys[slot] != -1 && keys[slot] != key)
+                {
+                    slot = slot + 1 & HASH_SIZE - 1;
+                }
+                if (keys[slot] == key)
                 {
-                    foundCode = newFoundCode;
+                    foundCode = codes[slot];
+                    continue;
                 }
+                // use previous
+                chunk = calculateChunk(tableSize - 1, 1);
+                out.write(foundCode, chunk);
+                // create new table entry
+                keys[slot] = key;
+                codes[slot] = (short) tableSize;
+                tableSize++;
+
+                if (tableSize == MAX_CODES)
+                {
+                    // code table is full
+                    out.write(CLEAR_TABLE, chunk);
+                    Arrays.fill(keys, -1);
+                    tableSize = (int) EOD + 1;
+                }
+                foundCode = by;
             }
         }
         if (foundCode != -1)
         {
-            chunk = calculateChunk(codeTable.size() - 1, 1);
-            out.writeBits(foundCode, chunk);
+            chunk = calculateChunk(tableSize - 1, 1);
+            out.write(foundCode, chunk);
         }
 
         // PPDFBOX-1977: the decoder wouldn't know that the encoder would output 
@@ -211,93 +258,126 @@ public class LZWFilter extends Filter
         // possibly adjusted the chunk. Therefore, the encoder must behave as 
         // if the code table had just grown and thus it must be checked it is
         // needed to adjust the chunk, based on an increased table size parameter
-        chunk = calculateChunk(codeTable.size(), 1);
+        chunk = calculateChunk(tableSize, 1);
 
-        out.writeBits(EOD, chunk);
-        // pad with 0
-        out.writeBits(0, 7);
-
-        // must do or file will be empty :-(
+        out.write(EOD, chunk);
+        // pad the last byte with 0
         out.flush();
-//        out.close();
     }
 
     /**
-     * Find the longest matching pattern in the code table.
+     * Calculate the appropriate chunk size
      *
-     * @param codeTable The LZW code table.
-     * @param pattern The pattern to be searched for.
-     * @return The index of the longest matching pattern or -1 if nothing is
-     * found.
+     * @param tabSize the size of the code table
+     * @param earlyChange 0 or 1 for early chunk increase
+     *
+     * @return a value between 9 and 12
      */
-    private static int findPatternCode(List<byte[]> codeTable, byte[] pattern)
+    private static int calculateChunk(int tabSize, int earlyChange)
     {
-        int foundCode = -1;
-        int foundLen = 0;
-        for (int i = codeTable.size() - 1; i >= 0; --i)
+        if (tabSize >= 2048 - earlyChange)
         {
-            if (i <= EOD)
-            {
-                // we're in the single byte area
-                if (foundCode != -1)
-                {
-                    // we already found pattern with size > 1
-                	return foundCode;
-                }
-                else if (pattern.length > 1)
-                {
-                    // we won't find anything here anyway
-                	return -1;
-                }
-            }
-            byte[] tryPattern = codeTable.get(i);
-            if ((foundCode != -1 || tryPattern.length > foundLen) && Arrays.equals(tryPattern, pattern))
-            {
-            	foundCode = i;
-            	foundLen = tryPattern.length;
-            }
+            return 12;
         }
-        return foundCode;
+        if (tabSize >= 1024 - earlyChange)
+        {
+            return 11;
+        }
+        if (tabSize >= 512 - earlyChange)
+        {
+            return 10;
+        }
+        return 9;
     }
 
     /**
-     * Init the code table with 1 byte entries and the EOD and CLEAR_TABLE
-     * markers.
+     * Reads the codes of an LZW stream, most significant bit first.
      */
-    private static List<byte[]> createCodeTable()
+    private static final class CodeReader
     {
-        List<byte[]> codeTable = new ArrayList<byte[]>(4096);
-        for (int i = 0; i < 256; ++i)
+        private final InputStream in;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+        private int bits;
+        private int bitCount;
+
+        CodeReader(InputStream in)
         {
-        	codeTable.add(new byte[] { (byte) (i & 0xFF) });
+            this.in = in;
+        }
+
+        /**
+         * Reads a code of the given number of bits.
+         *
+         * @throws EOFException if the stream ends before the code.
+         */
+        int read(int numBits) throws IOException
+        {
+            while (bitCount < numBits)
+            {
+                if (position == limit)
+                {
+                    limit = in.read(buffer);
+                    position = 0;
+                    if (limit <= 0)
+                    {
+                        limit = 0;
+                        throw new EOFException();
+                    }
+                }
+                bits = bits << 8 | buffer[position++] & 0xff;
+                bitCount += 8;
+            }
+            bitCount -= numBits;
+            return bits >>> bitCount & (1 << numBits) - 1;
         }
-        codeTable.add(null); // 256 EOD
-        codeTable.add(null); // 257 CLEAR_TABLE
-        return codeTable;
     }
 
     /**
-     * Calculate the appropriate chunk size
-     *
-     * @param tabSize the size of the code table
-     * @param earlyChange 0 or 1 for early chunk increase
-     *
-     * @return a value between 9 and 12
+     * Writes the codes of an LZW stream, most significant bit first.
      */
-    private static int calculateChunk(int tabSize, int earlyChange)
+    private static final class CodeWriter
     {
-        if (tabSize >= 2048 - earlyChange)
+        private final OutputStream out;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int bits;
+        private int bitCount;
+
+        CodeWriter(OutputStream out)
         {
-            return 12;
+            this.out = out;
         }
-        if (tabSize >= 1024 - earlyChange)
+
+        void write(long code, int numBits) throws IOException
         {
-            return 11;
+            bits = bits << numBits | (int) code;
+            bitCount += numBits;
+            while (bitCount >= 8)
+            {
+                bitCount -= 8;
+                if (position == buffer.length)
+                {
+                    out.write(buffer, 0, position);
+                    position = 0;
+                }
+                buffer[position++] = (byte) (bits >>> bitCount);
+            }
         }
-        if (tabSize >= 512 - earlyChange)
+
+        /**
+         * Writes the buffered codes, the last byte padded with 0 bits.
+         */
+        void flush() throws IOException
         {
-            return 10;
+            if (bitCount > 0)
+            {
+                write(0, 8 - bitCount);
+            }
+            out.write(buffer, 0, position);
+            position = 0;
+            out.flush();
         }
-        return 9;
     }
 }
@@ -1,163 +1,220 @@
 package com.hopding.pdflib.apache.pdfbox.filter;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 
-import com.hopding.pdflib.apache.pdfbox.io.IOUtils;
-
 /**
- * Helper class to contain predictor decoding used by Flate and LZW filter. 
+ * Helper class to contain predictor decoding used by Flate and LZW filter.
  * To see the history, look at the FlateFilter class.
+ *
+ * Each predictor has a loop of its own, which handles the first pixel of a row separately so
+ * that the loop over the rest of the row has no branches.
  */
 public final class Predictor
 {
+	// the PNG predictors, as written in front of each row
+	static final int PNG_NONE = 0;
+	static final int PNG_SUB = 1;
+	static final int PNG_UP = 2;
+	static final int PNG_AVERAGE = 3;
+	static final int PNG_PAETH = 4;
+
 	private Predictor()
 	{
 	}
-	
-	static void decodePredictor(int predictor, int colors, int bitsPerComponent, int columns, InputStream in, OutputStream out)
-			throws IOException
+
+	/**
+	 * Decodes the rows of the given data and writes them to the given stream. The data is
+	 * decoded in place.
+	 *
+	 * @param predictor the Predictor of the decode parameters.
+	 * @param colors the number of color components per pixel.
+	 * @param bitsPerComponent the number of bits per color component.
+	 * @param columns the number of pixels per row.
+	 * @param data the predicted data, which is overwritten.
+	 * @param length the length of the data.
+	 * @param out the stream to write the decoded rows to.
+	 * @throws IOException if the predictor isn't supported or the rows can't be written.
+	 */
+	static void decodePredictor(int predictor, int colors, int bitsPerComponent, int columns,
+			byte[] data, int length, OutputStream out) throws IOException
 	{
 		if (predictor == 1)
 		{
 			// no prediction
-			IOUtils.copy(in, out);
+			out.write(data, 0, length);
+			return;
 		}
-		else
+
+		// calculate sizes
+		final int bitsPerPixel = colors * bitsPerComponent;
+		final int bytesPerPixel = (bitsPerPixel + 7) / 8;
+		final int rowLength = (columns * bitsPerPixel + 7) / 8;
+		// test for PNG predictor; each value >= 10 (not only 15) indicates usage of PNG predictor
+		final boolean png = predictor >= 10;
+		if (rowLength <= 0 && !png)
 		{
-			// calculate sizes
-			final int bitsPerPixel = colors * bitsPerComponent;
-			final int bytesPerPixel = (bitsPerPixel + 7) / 8;
-			final int rowlength = (columns * bitsPerPixel + 7) / 8;
-			byte[] actline = new byte[rowlength];
-			byte[] lastline = new byte[rowlength];
+			return;
+		}
 
-			int linepredictor = predictor;
+		// the rows are decoded at the start of the data, the previous one is all zeros at first
+		byte[] previous = new byte[rowLength];
+		int previousOffset = 0;
+		int read = 0;
+		int written = 0;
+		while (read < length)
+		{
+			int linePredictor = predictor;
+			if (png)
+			{
+				// PNG predictor; each row starts with predictor type (0, 1, 2, 3, 4)
+				// add 10 to tread value 0 as 10, 1 as 11, ...
+				linePredictor = 10 + (data[read++] & 0xff);
+			}
+			if (length - read < rowLength)
+			{
+				// a truncated last row keeps the bytes of the previous row after its end
+				byte[] row = new byte[rowLength];
+				System.arraycopy(previous, previousOffset, row, 0, rowLength);
+				System.arraycopy(data, read, row, 0, length - read);
+				decodeRow(linePredictor, bitsPerComponent, bytesPerPixel, row, 0,
+						previous, previousOffset, rowLength);
+				out.write(data, 0, written);
+				out.write(row);
+				return;
+			}
+			// the row moves towards the start of the data, never over bytes which weren't read
+			System.arraycopy(data, read, data, written, rowLength);
+			decodeRow(linePredictor, bitsPerComponent, bytesPerPixel, data, written,
+					previous, previousOffset, rowLength);
+			previous = data;
+			previousOffset = written;
+			read += rowLength;
+			written += rowLength;
+		}
+		out.write(data, 0, written);
+	}
 
-			while (in.available() > 0)
+	/**
+	 * Decodes a row in place, as specified in PNG-Specification 1.2.
+	 */
+	private static void decodeRow(int linePredictor, int bitsPerComponent, int bytesPerPixel,
+			byte[] row, int offset, byte[] previous, int previousOffset, int length)
+			throws IOException
+	{
+		switch (linePredictor)
+		{
+		case 2:
+			// PRED TIFF SUB
+			// TODO decode tiff with bpc smaller 8
+			// e.g. for 4 bpc each nibble must be subtracted separately
+			if (bitsPerComponent == 16)
+			{
+				decodeTiff16(row, offset, bytesPerPixel, length);
+				break;
+			}
+			if (bitsPerComponent < 8)
 			{
-				// test for PNG predictor; each value >= 10 (not only 15) indicates usage of PNG predictor
-				if (predictor >= 10)
-				{
-					// PNG predictor; each row starts with predictor type (0, 1, 2, 3, 4)
-					// read per line predictor
-					linepredictor = in.read();
-					if (linepredictor == -1)
-					{
-						return;
-					}
-					// add 10 to tread value 0 as 10, 1 as 11, ...
-					linepredictor += 10;
-				}
+				throw new IOException("TIFF-Predictor with " + bitsPerComponent
+						+ " bits per component not supported; please open JIRA issue with sample PDF");
+			}
+			// for 8 bits per component it is the same algorithm as PRED SUB of PNG format
+			decodeSub(row, offset, bytesPerPixel, length);
+			break;
+		case 10:
+			// PRED NONE
+			break;
+		case 11:
+			decodeSub(row, offset, bytesPerPixel, length);
+			break;
+		case 12:
+			decodeUp(row, offset, previous, previousOffset, length);
+			break;
+		case 13:
+			decodeAverage(row, offset, previous, previousOffset, bytesPerPixel, length);
+			break;
+		case 14:
+			decodePaeth(row, offset, previous, previousOffset, bytesPerPixel, length);
+			break;
+		default:
+			break;
+		}
+	}
+
+	private static void decodeSub(byte[] row, int offset, int bytesPerPixel, int length)
+	{
+		for (int i = offset + bytesPerPixel, end = offset + length; i < end; i++)
+		{
+			row[i] += row[i - bytesPerPixel];
+		}
+	}
+
+	private static void decodeUp(byte[] row, int offset, byte[] previous, int previousOffset,
+			int length)
+	{
+		for (int i = 0; i < length; i++)
+		{
+			row[offset + i] += previous[previousOffset + i];
+		}
+	}
 
-				// read line
-				int i, offset = 0;
-				while (offset < rowlength && ((i = in.read(actline, offset, rowlength - offset)) != -1))
-				{
-					offset += i;
-				}
+	private static void decodeAverage(byte[] row, int offset, byte[] previous,
+			int previousOffset, int bytesPerPixel, int length)
+	{
+		int first = Math.min(bytesPerPixel, length);
+		for (int i = 0; i < first; i++)
+		{
+			row[offset + i] += (previous[previousOffset + i] & 0xff) >>> 1;
+		}
+		for (int i = first; i < length; i++)
+		{
+			int left = row[offset + i - bytesPerPixel] & 0xff;
+			int up = previous[previousOffset + i] & 0xff;
+			row[offset + i] += (left + up) >>> 1;
+		}
+	}
 
-				// do prediction as specified in PNG-Specification 1.2
-				switch (linepredictor)
-				{
-				case 2:
-					// PRED TIFF SUB
-					// TODO decode tiff with bpc smaller 8
-					// e.g. for 4 bpc each nibble must be subtracted separately
-					if (bitsPerComponent == 16)
-					{
-						for (int p = 0; p < rowlength; p += 2)
-						{
-							int sub = ((actline[p] & 0xff) << 8) + (actline[p + 1] & 0xff);
-							int left = p - bytesPerPixel >= 0
-									? (((actline[p - bytesPerPixel] & 0xff) << 8)
-											+ (actline[p - bytesPerPixel + 1] & 0xff))
-											: 0;
-									actline[p] = (byte) (((sub + left) >> 8) & 0xff);
-									actline[p + 1] = (byte) ((sub + left) & 0xff);
-						}
-						break;
-					}
-					if (bitsPerComponent < 8)
-					{
-						throw new IOException("TIFF-Predictor with " + bitsPerComponent
-								+ " bits per component not supported; please open JIRA issue with sample PDF");
-					}
-					// for 8 bits per component it is the same algorithm as PRED SUB of PNG format
-					for (int p = 0; p < rowlength; p++)
-					{
-						int sub = actline[p] & 0xff;
-						int left = p - bytesPerPixel >= 0 ? actline[p - bytesPerPixel] & 0xff : 0;
-						actline[p] = (byte) (sub + left);
-					}
-					break;
-				case 10:
-					// PRED NONE
-					// do nothing
-					break;
-				case 11:
-					// PRED SUB
-					for (int p = 0; p < rowlength; p++)
-					{
-						int sub = actline[p];
-						int left = p - bytesPerPixel >= 0 ? actline[p - bytesPerPixel] : 0;
-						actline[p] = (byte) (sub + left);
-					}
-					break;
-				case 12:
-					// PRED UP
-					for (int p = 0; p < rowlength; p++)
-					{
-						int up = actline[p] & 0xff;
-						int prior = lastline[p] & 0xff;
-						actline[p] = (byte) ((up + prior) & 0xff);
-					}
-					break;
-				case 13:
-					// PRED AVG
-					for (int p = 0; p < rowlength; p++)
-					{
-						int avg = actline[p] & 0xff;
-						int left = p - bytesPerPixel >= 0 ? actline[p - bytesPerPixel] & 0xff : 0;
-						int up = lastline[p] & 0xff;
-						actline[p] = (byte) ((avg + ((left + up) / 2)) & 0xff);
-					}
-					break;
-				case 14:
-					// PRED PAETH
-					for (int p = 0; p < rowlength; p++)
-					{
-						int paeth = actline[p] & 0xff;
-						int a = p - bytesPerPixel >= 0 ? actline[p - bytesPerPixel] & 0xff : 0;// left
-						int b = lastline[p] & 0xff;// upper
-						int c = p - bytesPerPixel >= 0 ? lastline[p - bytesPerPixel] & 0xff : 0;// upperleft
-						int value = a + b - c;
-						int absa = Math.abs(value - a);
-						int absb = Math.abs(value - b);
-						int absc = Math.abs(value - c);
+	private static void decodePaeth(byte[] row, int offset, byte[] previous, int previousOffset,
+			int bytesPerPixel, int length)
+	{
+		// without a left and upper left pixel, the upper one is the prediction
+		int first = Math.min(bytesPerPixel, length);
+		for (int i = 0; i < first; i++)
+		{
+			row[offset + i] += previous[previousOffset + i];
+		}
+		for (int i = first; i < length; i++)
+		{
+			int a = row[offset + i - bytesPerPixel] & 0xff; // left
+			int b = previous[previousOffset + i] & 0xff; // upper
+			int c = previous[previousOffset + i - bytesPerPixel] & 0xff; // upper left
+			row[offset + i] += paeth(a, b, c);
+		}
+	}
 
-						if (absa <= absb && absa <= absc)
-						{
-							actline[p] = (byte) ((paeth + a) & 0xff);
-						}
-						else if (absb <= absc)
-						{
-							actline[p] = (byte) ((paeth + b) & 0xff);
-						}
-						else
-						{
-							actline[p] = (byte) ((paeth + c) & 0xff);
-						}
-					}
-					break;
-				default:
-					break;
-				}
-				System.arraycopy(actline, 0, lastline, 0, rowlength);
-				out.write(actline);
-			}
+	private static void decodeTiff16(byte[] row, int offset, int bytesPerPixel, int length)
+	{
+		for (int p = bytesPerPixel; p + 1 < length; p += 2)
+		{
+			int i = offset + p;
+			int sub = ((row[i] & 0xff) << 8) + (row[i + 1] & 0xff);
+			int left = ((row[i - bytesPerPixel] & 0xff) << 8) + (row[i - bytesPerPixel + 1] & 0xff);
+			row[i] = (byte) ((sub + left) >> 8);
+			row[i + 1] = (byte) (sub + left);
 		}
 	}
 
+	/**
+	 * Returns whichever of the left, upper and upper left bytes is closest to left + upper -
+	 * upper left, preferring them in that order.
+	 */
+	static int paeth(int a, int b, int c)
+	{
+		int pa = Math.abs(b - c);
+		int pb = Math.abs(a - c);
+		int pc = Math.abs(a + b - c - c);
+		// selects without nested branches, which mispredict on noisy images
+		int upper = pb <= pc ? b : c;
+		return pa <= Math.min(pb, pc) ? a : upper;
+	}
 }
@@ -0,0 +1,254 @@
+package com.hopding.pdflib.apache.pdfbox.filter;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream which applies a predictor to the rows of samples written to it, so that
+ * they compress better, the counterpart of the predictor decoding of the Flate and LZW filters.
+ *
+ * With a PNG predictor (10 to 15) every row is written with whichever of the PNG predictors
+ * gives the bytes of the lowest entropy. Unlike the smallest sum of absolute differences
+ * suggested by the PNG specification, this keeps rows of noise or of few distinct values, as in
+ * scans and line art, unpredicted when that compresses better. The TIFF predictor (2) is
+ * supported for 8 and 16 bits per component.
+ */
+public final class PredictorOutputStream extends FilterOutputStream
+{
+	private final int predictor;
+	private final int bitsPerComponent;
+	private final int bytesPerPixel;
+	private final int rowLength;
+
+	private byte[] row;
+	private byte[] previous;
+	private int rowFill;
+
+	// the row as encoded with each PNG predictor, led by the predictor
+	private final byte[][] encoded;
+	// the number of times each byte value occurs in an encoded row, and n * ln(n) for each n
+	private final int[] histogram;
+	private final float[] nLogN;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param out the stream to write the predicted rows to.
+	 * @param predictor the Predictor of the decode parameters.
+	 * @param colors the number of color components per pixel.
+	 * @param bitsPerComponent the number of bits per color component.
+	 * @param columns the number of pixels per row.
+	 * @throws IOException if the predictor isn't supported.
+	 */
+	public PredictorOutputStream(OutputStream out, int predictor, int colors,
+			int bitsPerComponent, int columns) throws IOException
+	{
+		super(out);
+		if (predictor == 2 && bitsPerComponent != 8 && bitsPerComponent != 16)
+		{
+			throw new IOException("TIFF-Predictor with " + bitsPerComponent
+					+ " bits per component not supported");
+		}
+		this.predictor = predictor;
+		this.bitsPerComponent = bitsPerComponent;
+		int bitsPerPixel = colors * bitsPerComponent;
+		bytesPerPixel = (bitsPerPixel + 7) / 8;
+		rowLength = (columns * bitsPerPixel + 7) / 8;
+		row = new byte[rowLength];
+		previous = new byte[rowLength];
+		if (predictor >= 10)
+		{
+			encoded = new byte[5][rowLength + 1];
+			histogram = new int[256];
+			nLogN = new float[rowLength + 1];
+			for (int n = 2; n <= rowLength; n++)
+			{
+				nLogN[n] = (float) (n * Math.log(n));
+			}
+		}
+		else
+		{
+			encoded = null;
+			histogram = null;
+			nLogN = null;
+		}
+	}
+
+	@Override
+	public void write(int b) throws IOException
+	{
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException
+	{
+		if (predictor < 2 || predictor > 2 && predictor < 10 || rowLength == 0)
+		{
+			// no prediction
+			out.write(b, off, len);
+			return;
+		}
+		while (len > 0)
+		{
+			int count = Math.min(len, rowLength - rowFill);
+			System.arraycopy(b, off, row, rowFill, count);
+			rowFill += count;
+			off += count;
+			len -= count;
+			if (rowFill == rowLength)
+			{
+				writeRow();
+			}
+		}
+	}
+
+	/**
+	 * Writes a partial last row as it is, and closes the stream.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (rowFill > 0)
+		{
+			if (encoded != null)
+			{
+				out.write(Predictor.PNG_NONE);
+			}
+			out.write(row, 0, rowFill);
+			rowFill = 0;
+		}
+		super.close();
+	}
+
+	private void writeRow() throws IOException
+	{
+		if (encoded == null)
+		{
+			// TIFF, the samples are written in place as the row isn't needed afterwards
+			if (bitsPerComponent == 16)
+			{
+				encodeTiff16(row);
+			}
+			else
+			{
+				for (int i = rowLength - 1; i >= bytesPerPixel; i--)
+				{
+					row[i] -= row[i - bytesPerPixel];
+				}
+			}
+			out.write(row);
+		}
+		else
+		{
+			byte[] best = encoded[choosePNGPredictor()];
+			out.write(best, 0, rowLength + 1);
+			byte[] swap = previous;
+			previous = row;
+			row = swap;
+		}
+		rowFill = 0;
+	}
+
+	/**
+	 * Encodes the row with each PNG predictor and returns the one whose bytes have the lowest
+	 * entropy.
+	 */
+	private int choosePNGPredictor()
+	{
+		final byte[] cur = row;
+		final byte[] up = previous;
+		final int n = rowLength;
+		final int bpp = Math.min(bytesPerPixel, n);
+
+		byte[] none = encoded[Predictor.PNG_NONE];
+		none[0] = Predictor.PNG_NONE;
+		System.arraycopy(cur, 0, none, 1, n);
+
+		byte[] sub = encoded[Predictor.PNG_SUB];
+		sub[0] = Predictor.PNG_SUB;
+		System.arraycopy(cur, 0, sub, 1, bpp);
+		for (int i = bpp; i < n; i++)
+		{
+			sub[i + 1] = (byte) (cur[i] - cur[i - bpp]);
+		}
+
+		byte[] upRow = encoded[Predictor.PNG_UP];
+		upRow[0] = Predictor.PNG_UP;
+		for (int i = 0; i < n; i++)
+		{
+			upRow[i + 1] = (byte) (cur[i] - up[i]);
+		}
+
+		byte[] average = encoded[Predictor.PNG_AVERAGE];
+		average[0] = Predictor.PNG_AVERAGE;
+		for (int i = 0; i < bpp; i++)
+		{
+			average[i + 1] = (byte) (cur[i] - ((up[i] & 0xff) >>> 1));
+		}
+		for (int i = bpp; i < n; i++)
+		{
+			average[i + 1] = (byte) (cur[i] - (((cur[i - bpp] & 0xff) + (up[i] & 0xff)) >>> 1));
+		}
+
+		byte[] paeth = encoded[Predictor.PNG_PAETH];
+		paeth[0] = Predictor.PNG_PAETH;
+		for (int i = 0; i < bpp; i++)
+		{
+			paeth[i + 1] = (byte) (cur[i] - up[i]);
+		}
+		for (int i = bpp; i < n; i++)
+		{
+			paeth[i + 1] = (byte) (cur[i]
+					- Predictor.paeth(cur[i - bpp] & 0xff, up[i] & 0xff, up[i - bpp] & 0xff));
+		}
+
+		int best = Predictor.PNG_NONE;
+		double bestScore = score(none);
+		for (int p = Predictor.PNG_SUB; p <= Predictor.PNG_PAETH; p++)
+		{
+			double score = score(encoded[p]);
+			if (score > bestScore)
+			{
+				best = p;
+				bestScore = score;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the sum of n * ln(n) over the number of occurrences n of each byte value in the
+	 * encoded row, which is the larger the lower the entropy of the row is.
+	 */
+	private double score(byte[] encodedRow)
+	{
+		final int[] counts = histogram;
+		for (int i = 1; i <= rowLength; i++)
+		{
+			counts[encodedRow[i] & 0xff]++;
+		}
+		double score = 0;
+		for (int i = 0; i < 256; i++)
+		{
+			score += nLogN[counts[i]];
+			counts[i] = 0;
+		}
+		return score;
+	}
+
+	private void encodeTiff16(byte[] samples)
+	{
+		// from right to left, the samples the decoder adds to are still the original ones
+		for (int p = rowLength - 2 - ((rowLength - bytesPerPixel) & 1); p >= bytesPerPixel; p -= 2)
+		{
+			int value = ((samples[p] & 0xff) << 8) + (samples[p + 1] & 0xff);
+			int left = ((samples[p - bytesPerPixel] & 0xff) << 8)
+					+ (samples[p - bytesPerPixel + 1] & 0xff);
+			int difference = value - left;
+			samples[p] = (byte) (difference >> 8);
+			samples[p + 1] = (byte) difference;
+		}
+	}
+}
@@ -3,73 +3,88 @@ package com.hopding.pdflib.apache.pdfbox.io;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * An implementation of the RandomAccess interface to store a pdf in memory.
- * The data will be stored in chunks organized in an ArrayList.  
+ * The data will be stored in chunks which start small and double in size every
+ * few chunks up to a maximum, so that small streams stay small while large ones
+ * don't need many thousands of arrays. Each position maps to its chunk
+ * arithmetically.
+ * Chunks are returned to a shared pool when the buffer is closed and reused by
+ * the next buffers.
  *
  */
 public class RandomAccessBuffer implements RandomAccess, Closeable, Cloneable
 {
-    // chunk size is 1kb
-    private static final int CHUNK_SIZE = 1024;
-    // list containing all chunks
-    private List<byte[]> bufferList = null;
-    // current chunk
-    private byte[] currentBuffer;
+    // the first chunk is 1kb
+    private static final int MIN_CHUNK_SHIFT = 10;
+    // chunks stop growing at 4mb
+    private static final int MAX_CHUNK_SHIFT = 22;
+    // the chunk size doubles after every 8 chunks, so at most 1/8 of the memory is unused
+    private static final int GROUP_SHIFT = 3;
+    private static final int CHUNKS_PER_GROUP = 1 << GROUP_SHIFT;
+    // index of the first chunk with the maximum size
+    private static final int FIRST_MAX_CHUNK = (MAX_CHUNK_SHIFT - MIN_CHUNK_SHIFT) << GROUP_SHIFT;
+    // upper limit of the memory held by the pool of unused chunks
+    private static final long MAX_POOLED_BYTES = 8 * 1024 * 1024;
+
+    // unused chunks, one list per chunk size
+    private static final List<List<byte[]>> POOL = new ArrayList<List<byte[]>>();
+    private static long pooledBytes = 0;
+
+    static
+    {
+        for (int shift = MIN_CHUNK_SHIFT; shift <= MAX_CHUNK_SHIFT; shift++)
+        {
+            POOL.add(new ArrayList<byte[]>());
+        }
+    }
+
+    // all chunks, the first chunkCount ones are in use
+    private byte[][] chunks;
+    private int chunkCount;
+    // current chunk and its start within the whole buffer
+    private byte[] currentChunk;
+    private long currentChunkStart;
     // current pointer to the whole buffer
     private long pointer;
-    // current pointer for the current chunk
-    private long currentBufferPointer;
     // size of the whole buffer
     private long size;
-    // current chunk list index
-    private int bufferListIndex;
-    // maximum chunk list index
-    private int bufferListMaxIndex;
 
     /**
      * Default constructor.
      */
     public RandomAccessBuffer()
     {
-        // starting with one chunk
-        bufferList = new ArrayList<byte[]>();
-        currentBuffer = new byte[CHUNK_SIZE];
-        bufferList.add(currentBuffer);
+        // the chunks are allocated on the first write
+        chunks = new byte[4][];
+        chunkCount = 0;
         pointer = 0;
-        currentBufferPointer = 0;
         size = 0;
-        bufferListIndex = 0;
-        bufferListMaxIndex = 0;
     }
 
     @Override
     public RandomAccessBuffer clone()
     {
         RandomAccessBuffer copy = new RandomAccessBuffer();
-
-        copy.bufferList = new ArrayList<byte[]>(bufferList.size());
-        for (byte [] buffer : bufferList)
-        {
-            byte [] newBuffer = new byte [buffer.length];
-            System.arraycopy(buffer,0,newBuffer,0,buffer.length);
-            copy.bufferList.add(newBuffer);
-        }
-        if (currentBuffer!=null)
+        if (chunks == null)
         {
-            copy.currentBuffer = copy.bufferList.get(copy.bufferList.size()-1);
+            copy.chunks = null;
+            return copy;
         }
-        else
+
+        copy.ensureCapacity(size);
+        long copied = 0;
+        for (int i = 0; copied < size; i++)
         {
-            copy.currentBuffer = null;
+            int length = (int) Math.min(chunks[i].length, size - copied);
+            System.arraycopy(chunks[i], 0, copy.chunks[i], 0, length);
+            copied += length;
         }
         copy.pointer = pointer;
-        copy.currentBufferPointer = currentBufferPointer;
         copy.size = size;
-        copy.bufferListIndex = bufferListIndex;
-        copy.bufferListMaxIndex = bufferListMaxIndex;
 
         return copy;
     }
@@ -80,12 +95,19 @@ public class RandomAccessBuffer implements RandomAccess, Closeable, Cloneable
     @Override
     public void close() throws IOException
     {
-        currentBuffer = null;
-        bufferList.clear();
+        if (chunks == null)
+        {
+            return;
+        }
+        for (int i = 0; i < chunkCount; i++)
+        {
+            release(chunks[i]);
+        }
+        chunks = null;
+        chunkCount = 0;
+        currentChunk = null;
         pointer = 0;
-        currentBufferPointer = 0;
         size = 0;
-        bufferListIndex = 0;
     }
 
     /**
@@ -96,10 +118,6 @@ public class RandomAccessBuffer implements RandomAccess, Closeable, Cloneable
     {
         checkClosed();
         pointer = position;
-        // calculate the chunk list index
-        bufferListIndex = (int)(position / CHUNK_SIZE);
-        currentBufferPointer = position % CHUNK_SIZE;
-        currentBuffer = bufferList.get(bufferListIndex);
     }
 
     /**
@@ -111,7 +129,7 @@ public class RandomAccessBuffer implements RandomAccess, Closeable, Cloneable
        checkClosed();
        return pointer;
     }
-    
+
     /**
      * {@inheritDoc}
      */
@@ -123,20 +141,8 @@ public class RandomAccessBuffer implements RandomAccess, Closeable, Cloneable
         {
             return -1;
         }
-        if (currentBufferPointer >= CHUNK_SIZE)
-        {
-            if (bufferListIndex >= bufferListMaxIndex)
-            {
-                return -1;
-            }
-            else
-            {
-                currentBuffer = bufferList.get(++bufferListIndex);
-                currentBufferPointer = 0;
-            }
-        }
-        pointer++;
-        return currentBuffer[(int)currentBufferPointer++] & 0xff;
+        locate();
+        return currentChunk[(int) (pointer++ - currentChunkStart)] & 0xff;
     }
 
     /**
@@ -150,37 +156,17 @@ public class RandomAccessBuffer implements RandomAccess, Closeable, Cloneable
         {
             return 0;
         }
-        int maxLength = (int) Math.min(length, this.size-pointer);
-        long remainingBytes = CHUNK_SIZE - currentBufferPointer;
-        if (maxLength >= remainingBytes)
+        int maxLength = (int) Math.min(length, this.size - pointer);
+        int bytesRead = 0;
+        while (bytesRead < maxLength)
         {
-            // copy the first bytes from the current buffer
-            System.arraycopy(currentBuffer, (int)currentBufferPointer, b, offset, (int)remainingBytes);
-            int newOffset = offset + (int)remainingBytes;
-            long remainingBytes2Read = length - remainingBytes;
-            // determine how many buffers are needed to get the remaining amount bytes
-            int numberOfArrays = (int)remainingBytes2Read / CHUNK_SIZE;
-            for (int i=0;i<numberOfArrays;i++) 
-            {
-                nextBuffer();
-                System.arraycopy(currentBuffer, 0, b, newOffset, CHUNK_SIZE);
-                newOffset += CHUNK_SIZE;
-            }
-            remainingBytes2Read = remainingBytes2Read % CHUNK_SIZE;
-            // are there still some bytes to be read?
-            if (remainingBytes2Read > 0)
-            {
-                nextBuffer();
-                System.arraycopy(currentBuffer, 0, b, newOffset, (int)remainingBytes2Read);
-                currentBufferPointer += remainingBytes2Read;
-            }
+            locate();
+            int chunkOffset = (int) (pointer - currentChunkStart);
+            int count = Math.min(maxLength - bytesRead, currentChunk.length - chunkOffset);
+            System.arraycopy(currentChunk, chunkOffset, b, offset + bytesRead, count);
+            bytesRead += count;
+            pointer += count;
         }
-        else
-        {
-            System.arraycopy(currentBuffer, (int)currentBufferPointer, b, offset, maxLength);
-            currentBufferPointer += maxLength;
-        }
-        pointer += maxLength;
         return maxLength;
     }
 
@@ -201,30 +187,12 @@ public class RandomAccessBuffer implements RandomAccess, Closeable, Cloneable
     public void write(int b) throws IOException
     {
         checkClosed();
-        // end of buffer reached?
-        if (currentBufferPointer >= CHUNK_SIZE) 
-        {
-            if (pointer + CHUNK_SIZE >= Integer.MAX_VALUE) 
-            {
-                throw new IOException("RandomAccessBuffer overflow");
-            }
-            expandBuffer();
-        }
-        currentBuffer[(int)currentBufferPointer++] = (byte)b;
-        pointer++;
+        prepareWrite(pointer + 1);
+        currentChunk[(int) (pointer++ - currentChunkStart)] = (byte) b;
         if (pointer > this.size)
         {
             this.size = pointer;
         }
-        // end of buffer reached now?
-        if (currentBufferPointer >= CHUNK_SIZE) 
-        {
-            if (pointer + CHUNK_SIZE >= Integer.MAX_VALUE) 
-            {
-                throw new IOException("RandomAccessBuffer overflow");
-            }
-            expandBuffer();
-        }
     }
 
     /**
@@ -234,44 +202,21 @@ public class RandomAccessBuffer implements RandomAccess, Closeable, Cloneable
     public void write(byte[] b, int offset, int length) throws IOException
     {
         checkClosed();
-        long newSize = pointer + length;
-        long remainingBytes = CHUNK_SIZE - currentBufferPointer;
-        if (length >= remainingBytes)
+        if (length <= 0)
         {
-            if (newSize > Integer.MAX_VALUE) 
-            {
-                throw new IOException("RandomAccessBuffer overflow");
-            }
-            // copy the first bytes to the current buffer
-            System.arraycopy(b, offset, currentBuffer, (int)currentBufferPointer, (int)remainingBytes);
-            int newOffset = offset + (int)remainingBytes;
-            long remainingBytes2Write = length - remainingBytes;
-            // determine how many buffers are needed for the remaining bytes
-            int numberOfNewArrays = (int)remainingBytes2Write / CHUNK_SIZE;
-            for (int i=0;i<numberOfNewArrays;i++) 
-            {
-                expandBuffer();
-                System.arraycopy(b, newOffset, currentBuffer, (int)currentBufferPointer, CHUNK_SIZE);
-                newOffset += CHUNK_SIZE;
-            }
-            // are there still some bytes to be written?
-            remainingBytes2Write -= numberOfNewArrays * (long) CHUNK_SIZE;
-            if (remainingBytes2Write >= 0)
-            {
-                expandBuffer();
-                if (remainingBytes2Write > 0)
-                {
-                    System.arraycopy(b, newOffset, currentBuffer, (int)currentBufferPointer, (int)remainingBytes2Write);
-                }
-                currentBufferPointer = remainingBytes2Write;
-            }
+            return;
         }
-        else
+        prepareWrite(pointer + length);
+        int bytesWritten = 0;
+        while (bytesWritten < length)
         {
-            System.arraycopy(b, offset, currentBuffer, (int)currentBufferPointer, length);
-            currentBufferPointer += length;
+            locate();
+            int chunkOffset = (int) (pointer - currentChunkStart);
+            int count = Math.min(length - bytesWritten, currentChunk.length - chunkOffset);
+            System.arraycopy(b, offset + bytesWritten, currentChunk, chunkOffset, count);
+            bytesWritten += count;
+            pointer += count;
         }
-        pointer += length;
         if (pointer > this.size)
         {
             this.size = pointer;
@@ -279,52 +224,143 @@ public class RandomAccessBuffer implements RandomAccess, Closeable, Cloneable
     }
 
     /**
-     * create a new buffer chunk and adjust all pointers and indices.
+     * Makes room for a write ending at the given position and makes the chunk at the
+     * current pointer the current chunk. Pooled chunks aren't cleared, so a gap between
+     * the end of the data and the pointer is filled with zeros.
+     */
+    private void prepareWrite(long end)
+    {
+        ensureCapacity(end);
+        if (pointer > size)
+        {
+            long position = size;
+            while (position < pointer)
+            {
+                int index = chunkIndex(position);
+                long start = chunkStart(index);
+                int to = (int) Math.min(chunks[index].length, pointer - start);
+                Arrays.fill(chunks[index], (int) (position - start), to, (byte) 0);
+                position = start + to;
+            }
+        }
+        locate();
+    }
+
+    /**
+     * Adds chunks until the buffer can hold the given number of bytes.
      */
-    private void expandBuffer() 
+    private void ensureCapacity(long capacity)
     {
-        if (bufferListMaxIndex > bufferListIndex)
+        while (chunkStart(chunkCount) < capacity)
         {
-            // there is already an existing chunk
-            nextBuffer();
+            if (chunkCount == chunks.length)
+            {
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            }
+            chunks[chunkCount] = acquire(chunkSize(chunkCount));
+            chunkCount++;
         }
-        else
+    }
+
+    /**
+     * Makes the chunk containing the pointer the current chunk.
+     */
+    private void locate()
+    {
+        if (currentChunk == null || pointer < currentChunkStart
+                || pointer >= currentChunkStart + currentChunk.length)
+        {
+            int index = chunkIndex(pointer);
+            currentChunk = chunks[index];
+            currentChunkStart = chunkStart(index);
+        }
+    }
+
+    private static int chunkIndex(long position)
+    {
+        int group = 63 - Long.numberOfLeadingZeros((position >>> (MIN_CHUNK_SHIFT + GROUP_SHIFT)) + 1);
+        if (group < MAX_CHUNK_SHIFT - MIN_CHUNK_SHIFT)
+        {
+            return (group << GROUP_SHIFT)
+                    + (int) ((position - groupStart(group)) >>> (MIN_CHUNK_SHIFT + group));
+        }
+        return FIRST_MAX_CHUNK + (int) ((position - groupStart(MAX_CHUNK_SHIFT - MIN_CHUNK_SHIFT))
+                >>> MAX_CHUNK_SHIFT);
+    }
+
+    private static long chunkStart(int index)
+    {
+        if (index < FIRST_MAX_CHUNK)
         {
-            // create a new chunk and add it to the buffer
-            currentBuffer = new byte[CHUNK_SIZE];
-            bufferList.add(currentBuffer);
-            currentBufferPointer = 0;
-            bufferListMaxIndex++;
-            bufferListIndex++;
+            int group = index >>> GROUP_SHIFT;
+            return groupStart(group)
+                    + ((long) (index & (CHUNKS_PER_GROUP - 1)) << (MIN_CHUNK_SHIFT + group));
         }
+        return groupStart(MAX_CHUNK_SHIFT - MIN_CHUNK_SHIFT)
+                + ((long) (index - FIRST_MAX_CHUNK) << MAX_CHUNK_SHIFT);
+    }
+
+    private static int chunkSize(int index)
+    {
+        return 1 << (MIN_CHUNK_SHIFT + Math.min(index >>> GROUP_SHIFT, MAX_CHUNK_SHIFT - MIN_CHUNK_SHIFT));
+    }
+
+    // start of the group of chunks which are 2^group times the size of the first chunk
+    private static long groupStart(int group)
+    {
+        return ((1L << group) - 1) << (MIN_CHUNK_SHIFT + GROUP_SHIFT);
+    }
+
+    /**
+     * Takes a chunk of the given size from the pool or allocates a new one.
+     */
+    private static byte[] acquire(int chunkSize)
+    {
+        List<byte[]> free = POOL.get(Integer.numberOfTrailingZeros(chunkSize) - MIN_CHUNK_SHIFT);
+        synchronized (POOL)
+        {
+            if (!free.isEmpty())
+            {
+                pooledBytes -= chunkSize;
+                return free.remove(free.size() - 1);
+            }
+        }
+        return new byte[chunkSize];
     }
 
     /**
-     * switch to the next buffer chunk and reset the buffer pointer.
+     * Returns a chunk to the pool unless the pool is already full.
      */
-    private void nextBuffer() 
+    private static void release(byte[] chunk)
     {
-        currentBufferPointer = 0;
-        currentBuffer = bufferList.get(++bufferListIndex);
+        List<byte[]> free = POOL.get(Integer.numberOfTrailingZeros(chunk.length) - MIN_CHUNK_SHIFT);
+        synchronized (POOL)
+        {
+            if (pooledBytes + chunk.length <= MAX_POOLED_BYTES)
+            {
+                pooledBytes += chunk.length;
+                free.add(chunk);
+            }
+        }
     }
-    
+
     /**
      * Ensure that the RandomAccessBuffer is not closed
      * @throws IOException
      */
     private void checkClosed () throws IOException
     {
-        if (currentBuffer==null)
+        if (chunks==null)
         {
-            // consider that the rab is closed if there is no current buffer
+            // consider that the rab is closed if there are no chunks
             throw new IOException("RandomAccessBuffer already closed");
         }
-        
+
     }
-    
+
     @Override
     public boolean isClosed()
     {
-    	return currentBuffer == null;
+    	return chunks == null;
     }
 }
@@ -0,0 +1,166 @@
+package com.hopding.pdflib.apache.pdfbox.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Provides {@link InputStream} access to a memory mapped file. Start of next
+ * bytes to read can be set via seek method.
+ *
+ * Unlike {@link RandomAccessBufferedFileInputStream} no bytes are copied into
+ * a page cache, reads are served directly from the mapped memory and the
+ * operating system decides which parts of the file stay resident. The file is
+ * mapped in windows which are created on first access, so files larger than
+ * 2GB can be read and only the regions that are touched use address space.
+ *
+ * The mapping is released by the garbage collector after the stream has been
+ * closed and is no longer referenced.
+ */
+public class RandomAccessMappedFileInputStream
+extends InputStream implements RandomAccessRead
+{
+
+    private static final int WINDOW_SIZE_SHIFT = 24;
+    private static final int WINDOW_SIZE = 1 << WINDOW_SIZE_SHIFT;
+    private static final int WINDOW_OFFSET_MASK = WINDOW_SIZE - 1;
+
+    private final RandomAccessFile raFile;
+    private final FileChannel channel;
+    private final long fileLength;
+    private final MappedByteBuffer[] windows;
+
+    private MappedByteBuffer curWindow;
+    private int curWindowIndex = -1;
+    private long fileOffset = 0;
+    private boolean isClosed;
+
+    /** Create input stream instance for given file. */
+    public RandomAccessMappedFileInputStream( File file ) throws IOException
+    {
+        raFile = new RandomAccessFile(file, "r");
+        channel = raFile.getChannel();
+        fileLength = channel.size();
+        windows = new MappedByteBuffer[(int) ( ( fileLength + WINDOW_SIZE - 1 ) >>> WINDOW_SIZE_SHIFT )];
+    }
+
+    /** Returns offset in file at which next byte would be read. */
+    @Override
+    public long getPosition()
+    {
+        return fileOffset;
+    }
+
+    /**
+     * Seeks to new position. The window containing the position is mapped
+     * when it is read from.
+     */
+    @Override
+    public void seek( final long newOffset ) throws IOException
+    {
+        if ( isClosed )
+        {
+            throw new IOException( "RandomAccessMappedFileInputStream already closed" );
+        }
+        fileOffset = newOffset;
+    }
+
+    /**
+     * Makes the window containing the current file offset the current one,
+     * mapping it if this hasn't been done before.
+     */
+    private MappedByteBuffer window() throws IOException
+    {
+        int index = (int) ( fileOffset >>> WINDOW_SIZE_SHIFT );
+        if ( index != curWindowIndex )
+        {
+            MappedByteBuffer window = windows[index];
+            if ( window == null )
+            {
+                long start = (long) index << WINDOW_SIZE_SHIFT;
+                long size = Math.min( WINDOW_SIZE, fileLength - start );
+                window = channel.map( FileChannel.MapMode.READ_ONLY, start, size );
+                windows[index] = window;
+            }
+            curWindow = window;
+            curWindowIndex = index;
+        }
+        return curWindow;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if ( fileOffset >= fileLength )
+        {
+            return -1;
+        }
+
+        int b = window().get( (int) fileOffset & WINDOW_OFFSET_MASK ) & 0xff;
+        fileOffset++;
+        return b;
+    }
+
+    @Override
+    public int read( byte[] b, int off, int len ) throws IOException
+    {
+        if ( fileOffset >= fileLength )
+        {
+            return -1;
+        }
+
+        MappedByteBuffer window = window();
+        int offsetWithinWindow = (int) fileOffset & WINDOW_OFFSET_MASK;
+        int commonLen = Math.min( window.limit() - offsetWithinWindow, len );
+
+        // there is no absolute bulk get on Android, position the window first
+        window.position( offsetWithinWindow );
+        window.get( b, off, commonLen );
+
+        fileOffset += commonLen;
+
+        return commonLen;
+    }
+
+    @Override
+    public int available() throws IOException
+    {
+        return (int) Math.min( fileLength - fileOffset, Integer.MAX_VALUE );
+    }
+
+    @Override
+    public long skip( long n ) throws IOException
+    {
+        long toSkip = Math.min( n, fileLength - fileOffset );
+        fileOffset += toSkip;
+        return toSkip;
+    }
+
+    @Override
+    public long length() throws IOException
+    {
+        return fileLength;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        raFile.close();
+        for ( int i = 0; i < windows.length; i++ )
+        {
+            windows[i] = null;
+        }
+        curWindow = null;
+        curWindowIndex = -1;
+        isClosed = true;
+    }
+
+    @Override
+    public boolean isClosed()
+    {
+        return isClosed;
+    }
+}
@@ -3,14 +3,18 @@ package com.hopding.pdflib.apache.pdfbox.multipdf;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.hopding.pdflib.apache.pdfbox.cos.COSArray;
 import com.hopding.pdflib.apache.pdfbox.cos.COSBase;
@@ -25,6 +29,7 @@ import com.hopding.pdflib.apache.pdfbox.pdmodel.PDDocumentCatalog;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDDocumentInformation;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDDocumentNameDictionary;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDPage;
+import com.hopding.pdflib.apache.pdfbox.pdmodel.PDPageTree;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDResources;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PageMode;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.common.COSArrayList;
@@ -42,6 +47,10 @@ import com.hopding.pdflib.apache.pdfbox.pdmodel.interactive.form.PDFieldTreeNode
  * This class will take a list of pdf documents and merge them, saving the
  * result in a new document.
  *
+ * The pages of each source are written as soon as they have been appended and the source is
+ * closed, so that only a window of sources is held in memory. The next sources of the window
+ * are loaded on other threads meanwhile.
+ *
  * @author Ben Litchfield
  */
 public class PDFMergerUtility
@@ -52,6 +61,8 @@ public class PDFMergerUtility
 	private String destinationFileName;
 	private OutputStream destinationStream;
 	private boolean ignoreAcroFormErrors = false;
+	private int threadCount = 1;
+	private int documentWindow = 2;
 
 	/**
 	 * Instantiate a new PDFMergerUtility.
@@ -146,6 +157,56 @@ public class PDFMergerUtility
 		sources.addAll(sourcesList);
 	}
 
+	/**
+	 * Get the number of threads the sources are loaded on.
+	 *
+	 * @return Returns the number of threads.
+	 */
+	public int getThreadCount()
+	{
+		return threadCount;
+	}
+
+	/**
+	 * Set the number of threads the sources are loaded on by {@link #mergeDocuments()}. The
+	 * default is 1, which loads the next source while the current one is appended.
+	 *
+	 * @param threadCount The number of threads.
+	 */
+	public void setThreadCount(int threadCount)
+	{
+		if (threadCount < 1)
+		{
+			throw new IllegalArgumentException("threadCount must be at least 1, got " + threadCount);
+		}
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Get the number of sources which are held in memory at the same time.
+	 *
+	 * @return Returns the number of sources.
+	 */
+	public int getDocumentWindow()
+	{
+		return documentWindow;
+	}
+
+	/**
+	 * Set the number of sources which are held in memory at the same time, the one being
+	 * appended and those loaded ahead of it. The default is 2.
+	 *
+	 * @param documentWindow The number of sources.
+	 */
+	public void setDocumentWindow(int documentWindow)
+	{
+		if (documentWindow < 1)
+		{
+			throw new IllegalArgumentException("documentWindow must be at least 1, got " + documentWindow);
+		}
+		this.documentWindow = documentWindow;
+	}
+
 	/**
 	 * Merge the list of source documents, saving the result in the destination
 	 * file.
@@ -154,45 +215,85 @@ public class PDFMergerUtility
 	 */
 	public void mergeDocuments() throws IOException
 	{
-		PDDocument destination = null;
-		InputStream sourceFile;
-		PDDocument source;
 		if (sources != null && sources.size() > 0)
 		{
-			ArrayList<PDDocument> tobeclosed = new ArrayList<PDDocument>();
-
+			ExecutorService executor = Executors.newFixedThreadPool(threadCount);
 			try
 			{
-				Iterator<InputStream> sit = sources.iterator();
-				destination = new PDDocument();
+				mergeDocuments(executor);
+			}
+			finally
+			{
+				executor.shutdown();
+			}
+		}
+	}
 
-				while (sit.hasNext())
+	/**
+	 * Merge the list of source documents, saving the result in the destination
+	 * file. The sources are loaded on the given executor.
+	 *
+	 * @param executor The executor to load the sources on.
+	 * @throws IOException If there is an error saving the document.
+	 */
+	public void mergeDocuments(Executor executor) throws IOException
+	{
+		if (sources == null || sources.isEmpty())
+		{
+			return;
+		}
+		List<SourceLoader> loaders = new ArrayList<SourceLoader>(sources.size());
+		for (InputStream sourceFile : sources)
+		{
+			loaders.add(new SourceLoader(sourceFile));
+		}
+		PDDocument destination = new PDDocument();
+		try
+		{
+			OutputStream output = destinationStream;
+			if (output == null)
+			{
+				output = new FileOutputStream(destinationFileName);
+			}
+			destination.beginSave(output);
+
+			int nextLoader = 0;
+			while (nextLoader < Math.min(documentWindow, loaders.size()))
+			{
+				executor.execute(loaders.get(nextLoader++));
+			}
+			for (SourceLoader loader : loaders)
+			{
+				try
 				{
-					sourceFile = sit.next();
-					source = PDDocument.load(sourceFile);
-					tobeclosed.add(source);
+					PDDocument source = loader.await();
+					int firstPage = destination.getNumberOfPages();
 					appendDocument(destination, source);
+					// the appended pages don't refer to the source anymore, write them right away
+					PDPageTree pages = destination.getPages();
+					for (int i = firstPage; i < pages.getCount(); i++)
+					{
+						destination.savePage(pages.get(i), true);
+					}
 				}
-				if (destinationStream == null)
+				finally
 				{
-					destination.save(destinationFileName);
+					loader.release();
 				}
-				else
+				if (nextLoader < loaders.size())
 				{
-					destination.save(destinationStream);
+					executor.execute(loaders.get(nextLoader++));
 				}
 			}
-			finally
+			destination.endSave();
+		}
+		finally
+		{
+			for (SourceLoader loader : loaders)
 			{
-				if (destination != null)
-				{
-					destination.close();
-				}
-				for (PDDocument doc : tobeclosed)
-				{
-					doc.close();
-				}
+				loader.release();
 			}
+			destination.close();
 		}
 	}
 
@@ -224,9 +325,13 @@ public class PDFMergerUtility
 			throw new IOException("Error: can't merge source document containing dynamic XFA form content.");
 		}
 		
+		// everything taken from the source is cloned, so that it can be closed before the
+		// destination is saved
+		PDFCloneUtility cloner = new PDFCloneUtility(destination);
+
 		PDDocumentInformation destInfo = destination.getDocumentInformation();
 		PDDocumentInformation srcInfo = source.getDocumentInformation();
-		destInfo.getDictionary().mergeInto(srcInfo.getDictionary());
+		mergeInto(cloner, destInfo.getDictionary(), srcInfo.getDictionary());
 
 		// use the highest version number for the resulting pdf
 		float destVersion = destination.getVersion();
@@ -239,11 +344,11 @@ public class PDFMergerUtility
 
 		if (destCatalog.getOpenAction() == null)
 		{
-			destCatalog.setOpenAction(srcCatalog.getOpenAction());
+			// a destination refers to the clone of its page
+			destCatalog.getCOSObject().setItem(COSName.OPEN_ACTION, cloner.cloneForNewDocument(
+					srcCatalog.getCOSObject().getDictionaryObject(COSName.OPEN_ACTION)));
 		}
 
-		PDFCloneUtility cloner = new PDFCloneUtility(destination);
-
 		try
 		{
 			PDAcroForm destAcroForm = destCatalog.getAcroForm();
@@ -361,7 +466,7 @@ public class PDFMergerUtility
 		if (destMetadata == null && srcMetadata != null)
 		{
 			PDStream newStream = new PDStream(destination, srcMetadata.getUnfilteredStream(), false);
-			newStream.getStream().mergeInto(srcMetadata);
+			mergeInto(cloner, newStream.getStream(), srcMetadata);
 			newStream.addCompression();
 			destCatalog.getCOSObject().setItem(COSName.METADATA, newStream);
 		}
@@ -417,7 +522,6 @@ public class PDFMergerUtility
 			}
 		}
 
-		Map<COSDictionary, COSDictionary> objMapping = new HashMap<COSDictionary, COSDictionary>();
 		for (PDPage page : srcCatalog.getPages())
 		{
 			PDPage newPage = new PDPage((COSDictionary) cloner.cloneForNewDocument(page.getCOSObject()));
@@ -429,20 +533,14 @@ public class PDFMergerUtility
 			if (mergeStructTree)
 			{
 				updateStructParentEntries(newPage, destParentTreeNextKey);
-				objMapping.put(page.getCOSObject(), newPage.getCOSObject());
-				List<PDAnnotation> oldAnnots = page.getAnnotations();
-				List<PDAnnotation> newAnnots = newPage.getAnnotations();
-				for (int i = 0; i < oldAnnots.size(); i++)
-				{
-					objMapping.put(oldAnnots.get(i).getDictionary(), newAnnots.get(i).getDictionary());
-				}
-				// TODO update mapping for XObjects
 			}
 			destination.addPage(newPage);
 		}
 		if (mergeStructTree)
 		{
-			updatePageReferences(srcNumbersArray, objMapping);
+			// the pages, annotations and XObjects the structure refers to have been cloned
+			// already, so the cloned structure refers to the cloned ones
+			srcNumbersArray = (COSArray) cloner.cloneForNewDocument(srcNumbersArray);
 			for (int i = 0; i < srcNumbersArray.size() / 2; i++)
 			{
 				destNumbersArray.add(COSInteger.get(destParentTreeNextKey + i));
@@ -457,7 +555,7 @@ public class PDFMergerUtility
 			COSDictionary kDictLevel0 = new COSDictionary();
 			COSArray newKArray = new COSArray();
 			COSArray destKArray = destStructTree.getKArray();
-			COSArray srcKArray = srcStructTree.getKArray();
+			COSArray srcKArray = (COSArray) cloner.cloneForNewDocument(srcStructTree.getKArray());
 			if (destKArray != null && srcKArray != null)
 			{
 				updateParentEntry(destKArray, kDictLevel0);
@@ -537,46 +635,19 @@ public class PDFMergerUtility
 	}
 
 	/**
-	 * Update the Pg and Obj references to the new (merged) page.
+	 * Adds clones of the entries of the source dictionary which the destination doesn't have.
 	 *
-	 * @param parentTreeEntry
-	 * @param objMapping mapping between old and new references
+	 * @param cloner the object cloner for the destination document
+	 * @param dest the dictionary to add the entries to
+	 * @param src the dictionary to take the entries from
 	 */
-	private void updatePageReferences(COSDictionary parentTreeEntry, Map<COSDictionary, COSDictionary> objMapping)
-	{
-		COSBase page = parentTreeEntry.getDictionaryObject(COSName.PG);
-		if (page instanceof COSDictionary && objMapping.containsKey(page))
-		{
-			parentTreeEntry.setItem(COSName.PG, objMapping.get(page));
-		}
-		COSBase obj = parentTreeEntry.getDictionaryObject(COSName.OBJ);
-		if (obj instanceof COSDictionary && objMapping.containsKey(page))
-		{
-			parentTreeEntry.setItem(COSName.OBJ, objMapping.get(obj));
-		}
-		COSBase kSubEntry = parentTreeEntry.getDictionaryObject(COSName.K);
-		if (kSubEntry instanceof COSArray)
-		{
-			updatePageReferences((COSArray) kSubEntry, objMapping);
-		}
-		else if (kSubEntry instanceof COSDictionary)
-		{
-			updatePageReferences((COSDictionary) kSubEntry, objMapping);
-		}
-	}
-
-	private void updatePageReferences(COSArray parentTreeEntry, Map<COSDictionary, COSDictionary> objMapping)
+	private void mergeInto(PDFCloneUtility cloner, COSDictionary dest, COSDictionary src) throws IOException
 	{
-		for (int i = 0; i < parentTreeEntry.size(); i++)
+		for (Map.Entry<COSName, COSBase> entry : src.entrySet())
 		{
-			COSBase subEntry = parentTreeEntry.getObject(i);
-			if (subEntry instanceof COSArray)
-			{
-				updatePageReferences((COSArray) subEntry, objMapping);
-			}
-			else if (subEntry instanceof COSDictionary)
+			if (dest.getItem(entry.getKey()) == null)
 			{
-				updatePageReferences((COSDictionary) subEntry, objMapping);
+				dest.setItem(entry.getKey(), cloner.cloneForNewDocument(entry.getValue()));
 			}
 		}
 	}
@@ -632,4 +703,148 @@ public class PDFMergerUtility
 	{
 		return acroForm != null && acroForm.xfaIsDynamic();
 	}
+
+	/**
+	 * Loads a source, either on the executor or, if it hasn't started by the time the source
+	 * is needed, on the thread merging the documents. Once released, the source is closed, also
+	 * when it is still being loaded.
+	 */
+	private static final class SourceLoader implements Runnable
+	{
+		private final InputStream input;
+
+		// guarded by this
+		private boolean started;
+		private boolean done;
+		private boolean released;
+		private PDDocument document;
+		private Throwable failure;
+
+		SourceLoader(InputStream input)
+		{
+			this.input = input;
+		}
+
+		@Override
+		public void run()
+		{
+			synchronized (this)
+			{
+				if (started || released)
+				{
+					return;
+				}
+				started = true;
+			}
+			load();
+		}
+
+		private void load()
+		{
+			PDDocument loaded = null;
+			Throwable error = null;
+			try
+			{
+				loaded = PDDocument.load(input);
+			}
+			catch (Throwable t)
+			{
+				error = t;
+			}
+			synchronized (this)
+			{
+				done = true;
+				notifyAll();
+				if (!released)
+				{
+					document = loaded;
+					failure = error;
+					return;
+				}
+			}
+			closeQuietly(loaded);
+		}
+
+		/**
+		 * Waits until the source is loaded, or loads it if that hasn't started yet.
+		 */
+		PDDocument await() throws IOException
+		{
+			boolean load;
+			synchronized (this)
+			{
+				load = !started;
+				started = true;
+			}
+			if (load)
+			{
+				load();
+			}
+			synchronized (this)
+			{
+				try
+				{
+					while (!done)
+					{
+						wait();
+					}
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while loading a source document");
+				}
+				if (failure instanceof IOException)
+				{
+					throw (IOException) failure;
+				}
+				if (failure instanceof RuntimeException)
+				{
+					throw (RuntimeException) failure;
+				}
+				if (failure instanceof Error)
+				{
+					throw (Error) failure;
+				}
+				if (failure != null)
+				{
+					throw new IOException(failure);
+				}
+				return document;
+			}
+		}
+
+		/**
+		 * Closes the source, or lets the loading thread close it once it is loaded.
+		 */
+		void release() throws IOException
+		{
+			PDDocument loaded;
+			synchronized (this)
+			{
+				released = true;
+				loaded = document;
+				document = null;
+			}
+			if (loaded != null)
+			{
+				loaded.close();
+			}
+		}
+
+		private static void closeQuietly(PDDocument loaded)
+		{
+			if (loaded != null)
+			{
+				try
+				{
+					loaded.close();
+				}
+				catch (IOException e)
+				{
+					// the document isn't used anymore
+				}
+			}
+		}
+	}
 }
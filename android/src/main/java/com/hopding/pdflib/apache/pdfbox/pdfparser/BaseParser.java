@@ -68,6 +68,10 @@ public abstract class BaseParser implements Closeable
 	private static final int STRMBUFLEN = 2048;
 	private final byte[] strmBuf = new byte[ STRMBUFLEN ];
 
+	// characters of the number being read, reused for all numbers
+	private byte[] numberBuffer = new byte[32];
+	private int numberLength = 0;
+
 	/**
 	 * This is a byte array that will be used for comparisons.
 	 */
@@ -159,7 +163,7 @@ public abstract class BaseParser implements Closeable
 			// ignore and use default
 		}
 		this.pdfSource = new PushBackInputStream(
-				new BufferedInputStream(input, 16384), pushbacksize);
+				new ParserInputStream(input, 16384), pushbacksize);
 	}
 
 	/**
@@ -1226,7 +1230,6 @@ public abstract class BaseParser implements Closeable
 		{
 			if( Character.isDigit(c) || c == '-' || c == '+' || c == '.')
 			{
-				StringBuilder buf = new StringBuilder();
 				int ic = pdfSource.read();
 				c = (char)ic;
 				while( Character.isDigit( c )||
@@ -1236,7 +1239,7 @@ public abstract class BaseParser implements Closeable
 						c == 'E' ||
 						c == 'e' )
 				{
-					buf.append( c );
+					appendNumberChar( c );
 					ic = pdfSource.read();
 					c = (char)ic;
 				}
@@ -1244,7 +1247,7 @@ public abstract class BaseParser implements Closeable
 				{
 					pdfSource.unread( ic );
 				}
-				retval = COSNumber.get( buf.toString() );
+				retval = parseNumberBuffer();
 			}
 			else
 			{
@@ -1472,6 +1475,34 @@ public abstract class BaseParser implements Closeable
 		return ASCII_CR == c;
 	}
 
+	/**
+	 * Appends a character to the number being read.
+	 *
+	 * @param c The character to append.
+	 */
+	protected final void appendNumberChar( char c )
+	{
+		if (numberLength == numberBuffer.length)
+		{
+			numberBuffer = Arrays.copyOf(numberBuffer, numberLength * 2);
+		}
+		numberBuffer[numberLength++] = (byte) c;
+	}
+
+	/**
+	 * Returns the number made of the characters appended since the last call. The characters
+	 * are converted directly, without creating a string for them.
+	 *
+	 * @return The parsed number.
+	 * @throws IOException If the characters are not a number.
+	 */
+	protected final COSNumber parseNumberBuffer() throws IOException
+	{
+		int length = numberLength;
+		numberLength = 0;
+		return COSNumber.get(numberBuffer, length);
+	}
+
 	/**
 	 * This will tell if the next byte is whitespace or not.
 	 *
@@ -1846,4 +1877,27 @@ public abstract class BaseParser implements Closeable
 		}
 		return new COSObjectKey(number, genNum);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * A buffered stream which reads single bytes from its buffer without locking, the parsers
+	 * read most of their input one byte at a time and never share the stream between threads.
+	 */
+	private static final class ParserInputStream extends BufferedInputStream
+	{
+		ParserInputStream(InputStream in, int size)
+		{
+			super(in, size);
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			byte[] buffer = buf;
+			if (buffer != null && pos < count)
+			{
+				return buffer[pos++] & 0xff;
+			}
+			return super.read();
+		}
+	}
+}
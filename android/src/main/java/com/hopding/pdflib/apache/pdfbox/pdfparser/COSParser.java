@@ -30,6 +30,7 @@ import com.hopding.pdflib.apache.pdfbox.cos.COSNumber;
 import com.hopding.pdflib.apache.pdfbox.cos.COSObject;
 import com.hopding.pdflib.apache.pdfbox.cos.COSObjectKey;
 import com.hopding.pdflib.apache.pdfbox.cos.COSStream;
+import com.hopding.pdflib.apache.pdfbox.cos.ICOSParser;
 import com.hopding.pdflib.apache.pdfbox.io.IOUtils;
 import com.hopding.pdflib.apache.pdfbox.pdfparser.XrefTrailerResolver.XRefType;
 
@@ -45,7 +46,7 @@ import android.util.Log;
  * This class is a much enhanced version of <code>QuickParser</code> presented in <a
  * href="https://issues.apache.org/jira/browse/PDFBOX-1104">PDFBOX-1104</a> by Jeremy Villalobos.
  */
-public class COSParser extends BaseParser
+public class COSParser extends BaseParser implements ICOSParser
 {
 	private static final String PDF_HEADER = "%PDF-";
 	private static final String FDF_HEADER = "%FDF-";
@@ -99,6 +100,12 @@ public class COSParser extends BaseParser
 	 * is parser using auto healing capacity ?
 	 */
 	private boolean isLenient = true;
+
+	/**
+	 * If <code>true</code> only the xref and the catalog are read up front, all other objects are parsed
+	 * when they are first dereferenced. The source stays open until the parser is closed.
+	 */
+	private boolean isLazy = false;
 	
 	protected boolean initialParseDone = false;
 
@@ -444,6 +451,51 @@ public class COSParser extends BaseParser
 		this.isLenient = lenient;
 	}
 
+	/**
+	 * Return true if objects are parsed on demand instead of up front.
+	 *
+	 * @return true if parser is lazy
+	 */
+	public boolean isLazy()
+	{
+		return isLazy;
+	}
+
+	/**
+	 * Change whether objects are parsed when they are first dereferenced instead of up front.
+	 * The source is then kept open until the parser is closed.
+	 *
+	 * This method can only be called before the parsing of the file.
+	 *
+	 * @param lazy parse objects on demand.
+	 */
+	public void setLazy(boolean lazy)
+	{
+		if (initialParseDone)
+		{
+			throw new IllegalArgumentException("Cannot change laziness after parsing");
+		}
+		this.isLazy = lazy;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public COSBase dereferenceCOSObject(COSObject obj) throws IOException
+	{
+		// keep the position of a parse in progress, e.g. of a stream with a referenced length
+		final long curFileOffset = pdfSource.getOffset();
+		try
+		{
+			return parseObjectDynamically(obj, false);
+		}
+		finally
+		{
+			pdfSource.seek(curFileOffset);
+		}
+	}
+
 	/**
 	 * Creates a unique object id using object number and object generation
 	 * number. (requires object number &lt; 2^31))
@@ -725,6 +777,7 @@ public class COSParser extends BaseParser
 					}
 				}
 
+				clearUpdateState(pb);
 				pdfObject.setObject(pb);
 
 				if (!endObjectKey.startsWith(ENDOBJ_STRING))
@@ -769,6 +822,7 @@ public class COSParser extends BaseParser
 						if (refObjNrs.contains(stmObjKey.getNumber()))
 						{
 							COSObject stmObj = document.getObjectFromPool(stmObjKey);
+							clearUpdateState(next.getObject());
 							stmObj.setObject(next.getObject());
 						}
 					}
@@ -778,6 +832,32 @@ public class COSParser extends BaseParser
 		return pdfObject.getObject();
 	}
 
+	/**
+	 * Parsed objects are built with the same setters which mark later changes for an incremental
+	 * update, so they and their direct children are marked as unchanged once parsed.
+	 */
+	private static void clearUpdateState(COSBase base)
+	{
+		if (base instanceof COSDictionary)
+		{
+			COSDictionary dict = (COSDictionary) base;
+			dict.setNeedToBeUpdated(false);
+			for (COSBase value : dict.getValues())
+			{
+				clearUpdateState(value);
+			}
+		}
+		else if (base instanceof COSArray)
+		{
+			COSArray array = (COSArray) base;
+			array.setNeedToBeUpdated(false);
+			for (COSBase value : array)
+			{
+				clearUpdateState(value);
+			}
+		}
+	}
+
 	private boolean inGetLength = false;
 
 	/**
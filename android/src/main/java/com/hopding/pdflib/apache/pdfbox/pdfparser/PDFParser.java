@@ -15,13 +15,14 @@ import com.hopding.pdflib.apache.pdfbox.cos.COSObject;
 import com.hopding.pdflib.apache.pdfbox.io.IOUtils;
 import com.hopding.pdflib.apache.pdfbox.io.PushBackInputStream;
 import com.hopding.pdflib.apache.pdfbox.io.RandomAccessBufferedFileInputStream;
+import com.hopding.pdflib.apache.pdfbox.io.RandomAccessMappedFileInputStream;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDDocument;
 
 import android.util.Log;
 
 public class PDFParser extends COSParser
 {
-    private final RandomAccessBufferedFileInputStream raStream;
+    private final InputStream raStream;
     private String password = "";
     private InputStream keyStoreInputStream = null;
     private String keyAlias = null;
@@ -139,10 +140,35 @@ public class PDFParser extends COSParser
      */
     public PDFParser(File file, String decryptionPassword, InputStream keyStore, String alias,
             boolean useScratchFiles) throws IOException
+    {
+        this(file, decryptionPassword, keyStore, alias, useScratchFiles, false);
+    }
+
+    /**
+     * Constructs parser for given file using given buffer for temporary storage.
+     * 
+     * @param file the pdf to be parsed.
+     * @param decryptionPassword password to be used for decryption.
+     * @param keyStore key store to be used for decryption when using public key security 
+     * @param alias alias to be used for decryption when using public key security
+     * @param useScratchFiles use a buffer for temporary storage.
+     * @param memoryMapped read the file through a memory mapping instead of a page cache.
+     * 
+     * @throws IOException If something went wrong.
+     */
+    public PDFParser(File file, String decryptionPassword, InputStream keyStore, String alias,
+            boolean useScratchFiles, boolean memoryMapped) throws IOException
     {
         super(EMPTY_INPUT_STREAM);
         fileLen = file.length();
-        raStream = new RandomAccessBufferedFileInputStream(file);
+        if (memoryMapped)
+        {
+            raStream = new RandomAccessMappedFileInputStream(file);
+        }
+        else
+        {
+            raStream = new RandomAccessBufferedFileInputStream(file);
+        }
         password = decryptionPassword;
         keyStoreInputStream = keyStore;
         keyAlias = alias;
@@ -281,6 +307,11 @@ public class PDFParser extends COSParser
      */
     protected void initialParse() throws IOException
     {
+        if (isLazy())
+        {
+            // references resolve themselves when they are first used
+            document.setParser(this);
+        }
         COSDictionary trailer = null;
         // parse startxref
         long startXRefOffset = getStartxrefOffset();
@@ -312,6 +343,13 @@ public class PDFParser extends COSParser
         }
     
         parseObjectDynamically(root, false);
+
+        if (isLazy())
+        {
+            document.setDecrypted();
+            initialParseDone = true;
+            return;
+        }
     
         COSObject catalogObj = document.getCatalog();
         if (catalogObj != null && catalogObj.getObject() instanceof COSDictionary)
@@ -349,10 +387,12 @@ public class PDFParser extends COSParser
         }
         finally
         {
-            IOUtils.closeQuietly(pdfSource);
             IOUtils.closeQuietly(keyStoreInputStream);
-    
-            deleteTempFile();
+            if (!isLazy() || exceptionOccurred)
+            {
+                IOUtils.closeQuietly(pdfSource);
+                deleteTempFile();
+            }
     
             if (exceptionOccurred && document != null)
             {
@@ -368,6 +408,22 @@ public class PDFParser extends COSParser
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            super.close();
+        }
+        finally
+        {
+            deleteTempFile();
+        }
+    }
+
     /**
      * Remove the temporary file. A temporary file is created if this class is instantiated with an InputStream
      */
@@ -386,6 +442,7 @@ public class PDFParser extends COSParser
             {
             	Log.w("PdfBoxAndroid", "Temporary file '" + tempPDFFile.getName() + "' can't be deleted", e);
             }
+            tempPDFFile = null;
         }
     }
 
@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -15,7 +16,6 @@ import com.hopding.pdflib.apache.pdfbox.cos.COSBoolean;
 import com.hopding.pdflib.apache.pdfbox.cos.COSDictionary;
 import com.hopding.pdflib.apache.pdfbox.cos.COSName;
 import com.hopding.pdflib.apache.pdfbox.cos.COSNull;
-import com.hopding.pdflib.apache.pdfbox.cos.COSNumber;
 import com.hopding.pdflib.apache.pdfbox.cos.COSObject;
 import com.hopding.pdflib.apache.pdfbox.cos.COSStream;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.common.PDStream;
@@ -34,6 +34,10 @@ public class PDFStreamParser extends BaseParser
 	private static final int    MAX_BIN_CHAR_TEST_LENGTH = 10;
 	private final byte[] binCharTestArr = new byte[MAX_BIN_CHAR_TEST_LENGTH];
 
+	// bytes of the current keyword, reused for every token
+	private byte[] tokenBuffer = new byte[16];
+	private int tokenLength;
+
 	/**
 	 * Constructor that takes a stream to parse.
 	 *
@@ -160,13 +164,14 @@ public class PDFStreamParser extends BaseParser
 	}
 
 	/**
-	 * This will parse the next token in the stream.
+	 * This will parse the next token in the stream. Unlike {@link #parse()} this doesn't keep
+	 * the tokens, so a stream of any size can be processed one token after the other.
 	 *
 	 * @return The next token in the stream or null if there are no more tokens in the stream.
 	 *
 	 * @throws IOException If an io error occurs while parsing the stream.
 	 */
-	private Object parseNextToken() throws IOException
+	public Object parseNextToken() throws IOException
 	{
 		Object retval;
 
@@ -226,46 +231,46 @@ public class PDFStreamParser extends BaseParser
 		case 'n':
 		{
 			// null
-			String nullString = readString();
-			if( nullString.equals( "null") )
+			readKeyword();
+			if( isKeyword( "null" ) )
 			{
 				retval = COSNull.NULL;
 			}
 			else
 			{
-				retval = Operator.getOperator(nullString);
+				retval = Operator.getOperator(tokenBuffer, tokenLength);
 			}
 			break;
 		}
 		case 't':
 		case 'f':
 		{
-			String next = readString();
-			if( next.equals( "true" ) )
+			readKeyword();
+			if( isKeyword( "true" ) )
 			{
 				retval = COSBoolean.TRUE;
 				break;
 			}
-			else if( next.equals( "false" ) )
+			else if( isKeyword( "false" ) )
 			{
 				retval = COSBoolean.FALSE;
 			}
 			else
 			{
-				retval = Operator.getOperator(next);
+				retval = Operator.getOperator(tokenBuffer, tokenLength);
 			}
 			break;
 		}
 		case 'R':
 		{
-			String line = readString();
-			if( line.equals( "R" ) )
+			readKeyword();
+			if( isKeyword( "R" ) )
 			{
 				retval = new COSObject( null );
 			}
 			else
 			{
-				retval = Operator.getOperator(line);
+				retval = Operator.getOperator(tokenBuffer, tokenLength);
 			}
 			break;
 		}
@@ -285,29 +290,33 @@ public class PDFStreamParser extends BaseParser
 		{
 			/* We will be filling buf with the rest of the number.  Only
 			 * allow 1 "." and "-" and "+" at start of number. */
-			StringBuffer buf = new StringBuffer();
-			buf.append( c );
+			appendNumberChar( c );
 			pdfSource.read();
 
 			boolean dotNotRead = c != '.';
-			while( Character.isDigit(c = (char)pdfSource.peek()) || dotNotRead && c == '.')
+			int next = pdfSource.read();
+			while( next != -1 && (Character.isDigit(c = (char)next) || dotNotRead && c == '.'))
 			{
-				buf.append( c );
-				pdfSource.read();
+				appendNumberChar( c );
 
 				if (dotNotRead && c == '.')
 				{
 					dotNotRead = false;
 				}
+				next = pdfSource.read();
+			}
+			if( next != -1 )
+			{
+				pdfSource.unread( next );
 			}
-			retval = COSNumber.get( buf.toString() );
+			retval = parseNumberBuffer();
 			break;
 		}
 		case 'B':
 		{
-			String next = readString();
-			retval = Operator.getOperator(next);
-			if( next.equals( "BI" ) )
+			readKeyword();
+			retval = Operator.getOperator(tokenBuffer, tokenLength);
+			if( isKeyword( "BI" ) )
 			{
 				Operator beginImageOP = (Operator)retval;
 				COSDictionary imageParams = new COSDictionary();
@@ -373,15 +382,15 @@ public class PDFStreamParser extends BaseParser
 		default:
 		{
 			//we must be an operator
-			String operator = readOperator();
-			if( operator.trim().length() == 0 )
+			readOperatorBytes();
+			if( isBlankToken() )
 			{
 				//we have a corrupt stream, stop reading here
 				retval = null;
 			}
 			else
 			{
-				retval = Operator.getOperator(operator);
+				retval = Operator.getOperator(tokenBuffer, tokenLength);
 			}
 		}
 		}
@@ -485,13 +494,28 @@ public class PDFStreamParser extends BaseParser
 	 * @throws IOException If there is an error reading from the stream.
 	 */
 	protected String readOperator() throws IOException
+	{
+		readOperatorBytes();
+		char[] chars = new char[tokenLength];
+		for( int i = 0; i < tokenLength; i++ )
+		{
+			chars[i] = (char)(tokenBuffer[i] & 0xff);
+		}
+		return new String( chars );
+	}
+
+	/**
+	 * Reads an operator into the token buffer.
+	 *
+	 * @throws IOException If there is an error reading from the stream.
+	 */
+	private void readOperatorBytes() throws IOException
 	{
 		skipSpaces();
 
-		//average string size is around 2 and the normal string buffer size is
-		//about 16 so lets save some space.
-		StringBuffer buffer = new StringBuffer(4);
-		int nextChar = pdfSource.peek();
+		// only the byte after the operator is unread, peeking at every byte would unread them all
+		tokenLength = 0;
+		int nextChar = pdfSource.read();
 		while(
 				nextChar != -1 && // EOF
 				!isWhitespace(nextChar) &&
@@ -503,17 +527,81 @@ public class PDFStreamParser extends BaseParser
 				(nextChar < '0' ||
 						nextChar > '9' ) )
 		{
-			char currentChar = (char)pdfSource.read();
-			nextChar = pdfSource.peek();
-			buffer.append( currentChar );
+			int currentChar = nextChar;
+			nextChar = pdfSource.read();
+			appendTokenByte( currentChar );
 			// Type3 Glyph description has operators with a number in the name
 			if (currentChar == 'd' && (nextChar == '0' || nextChar == '1') ) 
 			{
-				buffer.append( (char)pdfSource.read() );
-				nextChar = pdfSource.peek();
+				appendTokenByte( nextChar );
+				nextChar = pdfSource.read();
+			}
+		}
+		if( nextChar != -1 )
+		{
+			pdfSource.unread( nextChar );
+		}
+	}
+
+	/**
+	 * Reads a keyword up to the end of a name into the token buffer, the same way as
+	 * {@link #readString()}.
+	 *
+	 * @throws IOException If there is an error reading from the stream.
+	 */
+	private void readKeyword() throws IOException
+	{
+		skipSpaces();
+
+		tokenLength = 0;
+		int c = pdfSource.read();
+		while( !isEndOfName((char)c) && c != -1 )
+		{
+			appendTokenByte( c );
+			c = pdfSource.read();
+		}
+		if (c != -1)
+		{
+			pdfSource.unread(c);
+		}
+	}
+
+	private void appendTokenByte( int b )
+	{
+		if( tokenLength == tokenBuffer.length )
+		{
+			tokenBuffer = Arrays.copyOf( tokenBuffer, tokenLength * 2 );
+		}
+		tokenBuffer[tokenLength++] = (byte)b;
+	}
+
+	private boolean isKeyword( String keyword )
+	{
+		if( tokenLength != keyword.length() )
+		{
+			return false;
+		}
+		for( int i = 0; i < tokenLength; i++ )
+		{
+			if( (tokenBuffer[i] & 0xff) != keyword.charAt( i ) )
+			{
+				return false;
 			}
 		}
-		return buffer.toString();
+		return true;
+	}
+
+	// same as String.trim().length() == 0 for the token
+	private boolean isBlankToken()
+	{
+		for( int i = 0; i < tokenLength; i++ )
+		{
+			if( (tokenBuffer[i] & 0xff) > ' ' )
+			{
+				return false;
+			}
+		}
+		return true;
 	}
 
 
@@ -82,6 +82,17 @@ public class PDFXRefStream implements PDFXRef
                 wAsArray.add(COSInteger.get(j));
             }
             stream.setItem(COSName.W, wAsArray);
+            // each entry is a row of its own, which is predicted by the entry above it so that
+            // the increasing offsets compress well
+            int columns = 0;
+            for (int i = 0; i < wEntry.length; i++)
+            {
+                columns += wEntry[i];
+            }
+            COSDictionary decodeParams = new COSDictionary();
+            decodeParams.setInt(COSName.COLUMNS, columns);
+            decodeParams.setInt(COSName.PREDICTOR, 12);
+            stream.setItem(COSName.DECODE_PARMS, decodeParams);
             OutputStream unfilteredStream = stream.createUnfilteredStream();
             writeStreamData(unfilteredStream, wEntry);
         }
@@ -42,6 +42,7 @@ import com.hopding.pdflib.apache.pdfbox.cos.ICOSVisitor;
 import com.hopding.pdflib.apache.pdfbox.io.IOUtils;
 import com.hopding.pdflib.apache.pdfbox.pdfparser.PDFXRefStream;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDDocument;
+import com.hopding.pdflib.apache.pdfbox.pdmodel.PDPage;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.fdf.FDFDocument;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.interactive.digitalsignature.SignatureInterface;
 import com.hopding.pdflib.apache.pdfbox.util.Charsets;
@@ -195,6 +196,10 @@ public class COSWriter implements ICOSVisitor, Closeable
 	private OutputStream incrementalOutput;
 	private SignatureInterface signatureInterface;
 
+	// pages written ahead of the rest of the document
+	private boolean streaming = false;
+	private boolean writingPage = false;
+
 	/**
 	 * COSWriter constructor comment.
 	 *
@@ -235,39 +240,41 @@ public class COSWriter implements ICOSVisitor, Closeable
 
 	private void prepareIncrement(PDDocument doc)
 	{
-		try
+		if (doc != null)
 		{
-			if (doc != null)
-			{
-				COSDocument cosDoc = doc.getDocument();
+			COSDocument cosDoc = doc.getDocument();
 
-				Map<COSObjectKey, Long> xrefTable = cosDoc.getXrefTable();
-				Set<COSObjectKey> keySet = xrefTable.keySet();
-				long highestNumber=0;
-				for ( COSObjectKey cosObjectKey : keySet ) 
+			// only objects in the pool can be referenced, and only loaded ones can have changed
+			for ( COSObject pooled : cosDoc.getObjects() )
+			{
+				COSObjectKey cosObjectKey = new COSObjectKey(pooled);
+				objectKeys.put(pooled, cosObjectKey);
+				if (!pooled.isDereferenced())
 				{
-					COSBase object = cosDoc.getObjectFromPool(cosObjectKey).getObject();
-					if (object != null && cosObjectKey!= null && !(object instanceof COSNumber))
-					{
-						objectKeys.put(object, cosObjectKey);
-						keyObject.put(cosObjectKey,object);
-					}
+					continue;
+				}
+				COSBase object = pooled.getObject();
+				if (object != null && !(object instanceof COSNumber))
+				{
+					objectKeys.put(object, cosObjectKey);
+					keyObject.put(cosObjectKey,object);
+				}
+			}
 
-					if (cosObjectKey != null)
+			Map<COSObjectKey, Long> xrefTable = cosDoc.getXrefTable();
+			long highestNumber=0;
+			for ( COSObjectKey cosObjectKey : xrefTable.keySet() ) 
+			{
+				if (cosObjectKey != null)
+				{
+					long num = cosObjectKey.getNumber();
+					if (num > highestNumber)
 					{
-						long num = cosObjectKey.getNumber();
-						if (num > highestNumber)
-						{
-							highestNumber = num;
-						}
+						highestNumber = num;
 					}
 				}
-				setNumber(highestNumber);
 			}
-		}
-		catch (IOException e)
-		{
-			Log.e("PdfBoxAndroid", e.getMessage(),e);
+			setNumber(highestNumber);
 		}
 	}
 
@@ -423,6 +430,18 @@ public class COSWriter implements ICOSVisitor, Closeable
 		{
 			addObjectToWrite( info );
 		}
+		if( incrementalUpdate )
+		{
+			// changed objects don't have to be reachable through other changed objects
+			for( COSObject pooled : doc.getObjects() )
+			{
+				if( pooled.isDereferenced() && hasChanged( pooled.getObject() ) )
+				{
+					((COSUpdateInfo)pooled.getObject()).setNeedToBeUpdated( true );
+					addObjectToWrite( pooled );
+				}
+			}
+		}
 
 		while( objectsToWrite.size() > 0 )
 		{
@@ -444,8 +463,56 @@ public class COSWriter implements ICOSVisitor, Closeable
 		}
 	}
 
+	/**
+	 * Checks if an object or one of its direct children was changed since it was parsed.
+	 */
+	private static boolean hasChanged( COSBase object )
+	{
+		if( object instanceof COSUpdateInfo && !(object instanceof COSObject)
+				&& ((COSUpdateInfo)object).isNeedToBeUpdated() )
+		{
+			return true;
+		}
+		Iterable<COSBase> children = null;
+		if( object instanceof COSDictionary )
+		{
+			children = ((COSDictionary)object).getValues();
+		}
+		else if( object instanceof COSArray )
+		{
+			children = (COSArray)object;
+		}
+		if( children != null )
+		{
+			for( COSBase child : children )
+			{
+				if( !(child instanceof COSObject) && hasChanged( child ) )
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	private void addObjectToWrite( COSBase object )
 	{
+		if( incrementalUpdate && object instanceof COSObject && objectKeys.containsKey( object ) )
+		{
+			// an object of the original file, only written again if it was changed
+			COSObject original = (COSObject)object;
+			if( !original.isDereferenced() )
+			{
+				return;
+			}
+			COSBase originalObject = original.getObject();
+			if( !original.isNeedToBeUpdated() && !(originalObject instanceof COSUpdateInfo
+					&& ((COSUpdateInfo)originalObject).isNeedToBeUpdated()) )
+			{
+				return;
+			}
+		}
+
 		COSBase actual = object;
 		if( actual instanceof COSObject )
 		{
@@ -566,7 +633,13 @@ public class COSWriter implements ICOSVisitor, Closeable
 		 //sort xref, needed only if object keys not regenerated
 		 Collections.sort(getXRefEntries());
 		 COSWriterXRefEntry lastEntry = getXRefEntries().get( getXRefEntries().size()-1);
-		 trailer.setLong(COSName.SIZE, lastEntry.getKey().getNumber()+1);
+		 long size = lastEntry.getKey().getNumber()+1;
+		 if (incrementalUpdate)
+		 {
+			 // the size covers the objects of the original file too
+			 size = Math.max(size, getNumber()+1);
+		 }
+		 trailer.setLong(COSName.SIZE, size);
 		 // Only need to stay, if an incremental update will be performed
 		 if (!incrementalUpdate) 
 		 {
@@ -601,7 +674,14 @@ public class COSWriter implements ICOSVisitor, Closeable
 			 }
 
 			 COSDictionary trailer = doc.getTrailer();
-			 trailer.removeItem(COSName.PREV);
+			 if (incrementalUpdate)
+			 {
+				 trailer.setLong(COSName.PREV, doc.getStartXref());
+			 }
+			 else
+			 {
+				 trailer.removeItem(COSName.PREV);
+			 }
 			 pdfxRefStream.addTrailerInfo(trailer);
 			 // the size is the highest object number+1. we add one more
 			 // for the xref stream object we are going to write
@@ -659,6 +739,14 @@ public class COSWriter implements ICOSVisitor, Closeable
 		 }
 	 }
 
+	 // appends the update to a copy of the original file
+	 private void doWriteIncrement() throws IOException
+	 {
+		 getStandardOutput().flush();
+		 IOUtils.copy(incrementalInput, incrementalOutput);
+		 ((ByteArrayOutputStream) output).writeTo(incrementalOutput);
+	 }
+
 	 private void doWriteSignature() throws IOException
 	 {
 		 if (signatureOffset == 0 || byteRangeOffset == 0)
@@ -810,20 +898,17 @@ public class COSWriter implements ICOSVisitor, Closeable
 	  */
 	 private COSObjectKey getObjectKey( COSBase obj )
 	 {
+		 // look up references first, so that objects which were not loaded aren't parsed
+		 COSObjectKey key = objectKeys.get(obj);
 		 COSBase actual = obj;
 		 if( actual instanceof COSObject )
 		 {
 			 actual = ((COSObject)obj).getObject();
 		 }
-		 COSObjectKey key = null;
-		 if( actual != null )
+		 if( key == null && actual != null )
 		 {
 			 key = objectKeys.get(actual);
 		 }
-		 if( key == null )
-		 {
-			 key = objectKeys.get(obj);
-		 }
 		 if (key == null)
 		 {
 			 setNumber(getNumber()+1);
@@ -859,7 +944,8 @@ public class COSWriter implements ICOSVisitor, Closeable
 			 }
 			 else if( current instanceof COSObject )
 			 {
-				 COSBase subValue = ((COSObject)current).getObject();
+				 COSBase subValue = incrementalUpdate && objectKeys.containsKey(current) ?
+						 null : ((COSObject)current).getObject();
 				 if( subValue instanceof COSDictionary || subValue == null )
 				 {
 					 addObjectToWrite( current );
@@ -945,7 +1031,9 @@ public class COSWriter implements ICOSVisitor, Closeable
 				 }
 				 else if( value instanceof COSObject )
 				 {
-					 COSBase subValue = ((COSObject)value).getObject();
+					 // references to objects of the original file stay references in an update
+					 COSBase subValue = incrementalUpdate && objectKeys.containsKey(value) ?
+							 null : ((COSObject)value).getObject();
 					 if( subValue instanceof COSDictionary || subValue == null )
 					 {
 						 addObjectToWrite( value );
@@ -999,7 +1087,10 @@ public class COSWriter implements ICOSVisitor, Closeable
 	 {
 		 if(!incrementalUpdate)
 		 {
-			 doWriteHeader(doc);
+			 if (!streaming)
+			 {
+				 doWriteHeader(doc);
+			 }
 		 }
 		 else
 		 {
@@ -1041,7 +1132,14 @@ public class COSWriter implements ICOSVisitor, Closeable
 
 		 if(incrementalUpdate)
 		 {
-			 doWriteSignature();
+			 if (signatureOffset == 0 || byteRangeOffset == 0)
+			 {
+				 doWriteIncrement();
+			 }
+			 else
+			 {
+				 doWriteSignature();
+			 }
 		 }
 
 		 return null;
@@ -1100,7 +1198,7 @@ public class COSWriter implements ICOSVisitor, Closeable
 		 // a cross reference stream dictionary
 		 COSBase lengthEntry = obj.getDictionaryObject(COSName.LENGTH);
 		 String type = obj.getNameAsString(COSName.TYPE);
-		 if (lengthEntry != null && lengthEntry.isDirect() || "XRef".equals(type))
+		 if (lengthEntry != null && lengthEntry.isDirect() || "XRef".equals(type) || writingPage)
 		 {
 			 // the length might be the non encoded length,
 			 // set the real one as direct object
@@ -1265,6 +1363,149 @@ public class COSWriter implements ICOSVisitor, Closeable
 		 cosDoc.accept(this);
 	 }
 	 
+	 /**
+	  * This will write the header of the pdf document, so that its pages can be written
+	  * with {@link #writePage(PDPage)} as soon as they are finished. The rest of the document
+	  * is written by {@link #write(PDDocument)}.
+	  *
+	  * @param doc The document to write.
+	  *
+	  * @throws IOException If an error occurs while generating the data.
+	  */
+	 public void beginStreaming(PDDocument doc) throws IOException
+	 {
+		 if (incrementalUpdate || streaming)
+		 {
+			 throw new IllegalStateException("The document is already being written");
+		 }
+		 pdDocument = doc;
+		 doWriteHeader(doc.getDocument());
+		 streaming = true;
+	 }
+
+	 /**
+	  * This will write a finished page along with its content streams and the images and forms
+	  * it uses, and then release their data. Dictionaries which can be shared with other pages,
+	  * like fonts and the page tree, are left for {@link #write(PDDocument)} so that fonts can
+	  * still be subset. The page is emptied and must not be used afterwards.
+	  *
+	  * @param page The page to write.
+	  *
+	  * @throws IOException If an error occurs while generating the data.
+	  */
+	 public void writePage(PDPage page) throws IOException
+	 {
+		 writePage(page, false);
+	 }
+
+	 /**
+	  * This will write a finished page like {@link #writePage(PDPage)}, optionally along with
+	  * the fonts, annotations and other dictionaries it uses, except for the page tree. Those
+	  * must not be changed afterwards, so fonts can't be subset any more, but a page copied from
+	  * another document can be written completely.
+	  *
+	  * @param page The page to write.
+	  * @param withSharedObjects Whether the dictionaries used by the page are written, too.
+	  *
+	  * @throws IOException If an error occurs while generating the data.
+	  */
+	 public void writePage(PDPage page, boolean withSharedObjects) throws IOException
+	 {
+		 if (!streaming)
+		 {
+			 throw new IllegalStateException("beginStreaming() must be called first");
+		 }
+		 COSDictionary dict = page.getCOSObject();
+		 if (writtenObjects.contains(dict))
+		 {
+			 return;
+		 }
+		 if (objectsToWriteSet.remove(dict))
+		 {
+			 objectsToWrite.remove(dict);
+		 }
+		 // objects left by earlier pages stay where they are, e.g. fonts which are to be subset
+		 Set<COSBase> deferred = withSharedObjects ? new HashSet<COSBase>(objectsToWriteSet) : null;
+
+		 List<COSStream> written = new ArrayList<COSStream>();
+		 writingPage = true;
+		 try
+		 {
+			 doWriteObject(dict);
+			 // streams hold the bulk of a page, write them and anything they reference
+			 List<COSBase> objects = takeObjectsToWrite(deferred);
+			 while (!objects.isEmpty())
+			 {
+				 for (COSBase next : objects)
+				 {
+					 doWriteObject(next);
+					 COSBase actual = next instanceof COSObject ? ((COSObject)next).getObject() : next;
+					 if (actual instanceof COSStream)
+					 {
+						 written.add((COSStream)actual);
+					 }
+				 }
+				 objects = takeObjectsToWrite(deferred);
+			 }
+		 }
+		 finally
+		 {
+			 writingPage = false;
+		 }
+		 getStandardOutput().flush();
+
+		 for (COSStream stream : written)
+		 {
+			 stream.close();
+		 }
+		 dict.clear();
+	 }
+
+	 /**
+	  * Takes the queued streams, or with the objects queued before the page, all queued objects
+	  * but those and the nodes of the page tree.
+	  */
+	 private List<COSBase> takeObjectsToWrite(Set<COSBase> deferred)
+	 {
+		 List<COSBase> objects = new ArrayList<COSBase>();
+		 Iterator<COSBase> it = objectsToWrite.iterator();
+		 while (it.hasNext())
+		 {
+			 COSBase next = it.next();
+			 COSBase actual = next instanceof COSObject ? ((COSObject)next).getObject() : next;
+			 boolean take;
+			 if (deferred == null)
+			 {
+				 take = actual instanceof COSStream;
+			 }
+			 else
+			 {
+				 take = !deferred.contains(next) && !isDocumentStructure(actual);
+			 }
+			 if (take)
+			 {
+				 it.remove();
+				 objectsToWriteSet.remove(next);
+				 objects.add(next);
+			 }
+		 }
+		 return objects;
+	 }
+
+	 /**
+	  * Checks if an object is the catalog or a node of the page tree, which change until the
+	  * document is complete.
+	  */
+	 private static boolean isDocumentStructure(COSBase object)
+	 {
+		 if (object instanceof COSDictionary && !(object instanceof COSStream))
+		 {
+			 COSName type = ((COSDictionary)object).getCOSName(COSName.TYPE);
+			 return COSName.PAGES.equals(type) || COSName.CATALOG.equals(type);
+		 }
+		 return false;
+	 }
+
 	 /**
 	  * This will write the fdf document.
 	  *
@@ -0,0 +1,287 @@
+package com.hopding.pdflib.apache.pdfbox.pdmodel;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.hopding.pdflib.apache.pdfbox.pdmodel.font.PDFont;
+
+/**
+ * A list of drawing commands whose coordinates are packed into primitive arrays, so that a large
+ * number of shapes and texts can be recorded without an object per shape and written to a content
+ * stream in one pass.
+ *
+ * The list is drawn inside its own graphics state. Colors, the line width and the font are only
+ * set when they differ from the ones set by the previous command, and consecutive rectangles
+ * filled with the same color are filled as one path.
+ */
+public final class DisplayList
+{
+    private static final int FILL_RECTS = 0;
+    private static final int STROKE_POLYLINE = 1;
+    private static final int SHOW_TEXTS = 2;
+
+    // the commands, each one with its kind, its RGB color, its line width or font size,
+    // its font and the start and count of its coordinates
+    private int size;
+    private int[] kinds = new int[16];
+    private int[] colors = new int[16];
+    private float[] widths = new float[16];
+    private PDFont[] fonts = new PDFont[16];
+    private int[] starts = new int[16];
+    private int[] counts = new int[16];
+
+    private float[] coordinates = new float[256];
+    private int coordinateCount;
+
+    // the values of the texts, in the order of their commands
+    private String[] texts = new String[16];
+    private int textCount;
+
+    /**
+     * Adds rectangles filled with the given color.
+     *
+     * @param rects The rectangles as consecutive x, y, width and height values.
+     * @param offset The index of the first rectangle's x coordinate.
+     * @param count The number of rectangles.
+     * @param rgb The fill color as 0xRRGGBB.
+     * @return this list.
+     */
+    public DisplayList fillRects(float[] rects, int offset, int count, int rgb)
+    {
+        if (count == 0)
+        {
+            return this;
+        }
+        int start = addCommand(FILL_RECTS, rgb, 0, null, count * 4);
+        for (int i = 0; i < count; i++)
+        {
+            float x = rects[offset + i * 4];
+            float y = rects[offset + i * 4 + 1];
+            float width = rects[offset + i * 4 + 2];
+            float height = rects[offset + i * 4 + 3];
+            // all rectangles run the same way, so that filling them as one path with the
+            // nonzero winding rule doesn't leave holes where they overlap
+            if (width < 0)
+            {
+                x += width;
+                width = -width;
+            }
+            if (height < 0)
+            {
+                y += height;
+                height = -height;
+            }
+            int at = start + i * 4;
+            coordinates[at] = x;
+            coordinates[at + 1] = y;
+            coordinates[at + 2] = width;
+            coordinates[at + 3] = height;
+        }
+        return this;
+    }
+
+    /**
+     * Adds a polyline stroked with the given color and line width.
+     *
+     * @param points The points as consecutive x and y coordinates.
+     * @param offset The index of the first point's x coordinate.
+     * @param count The number of points, at least 2.
+     * @param lineWidth The line width.
+     * @param rgb The stroke color as 0xRRGGBB.
+     * @return this list.
+     */
+    public DisplayList strokePolyline(float[] points, int offset, int count, float lineWidth, int rgb)
+    {
+        if (count < 2)
+        {
+            throw new IllegalArgumentException("A polyline needs at least 2 points");
+        }
+        int start = addCommand(STROKE_POLYLINE, rgb, lineWidth, null, count * 2);
+        System.arraycopy(points, offset, coordinates, start, count * 2);
+        return this;
+    }
+
+    /**
+     * Adds texts shown at the given positions with the given font and color.
+     *
+     * @param values The texts.
+     * @param positions The positions of the texts as consecutive x and y coordinates.
+     * @param font The font.
+     * @param fontSize The font size.
+     * @param rgb The text color as 0xRRGGBB.
+     * @return this list.
+     */
+    public DisplayList showTexts(String[] values, float[] positions, PDFont font, float fontSize, int rgb)
+    {
+        if (positions.length < values.length * 2)
+        {
+            throw new IllegalArgumentException("Expected " + values.length * 2 + " coordinates, got "
+                    + positions.length);
+        }
+        if (values.length == 0)
+        {
+            return this;
+        }
+        int start = addCommand(SHOW_TEXTS, rgb, fontSize, font, values.length * 2);
+        System.arraycopy(positions, 0, coordinates, start, values.length * 2);
+        if (textCount + values.length > texts.length)
+        {
+            texts = Arrays.copyOf(texts, Math.max(texts.length * 2, textCount + values.length));
+        }
+        System.arraycopy(values, 0, texts, textCount, values.length);
+        textCount += values.length;
+        return this;
+    }
+
+    /**
+     * Returns true if no commands have been added.
+     */
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Removes all commands, keeping the arrays for reuse.
+     */
+    public void clear()
+    {
+        Arrays.fill(fonts, 0, size, null);
+        Arrays.fill(texts, 0, textCount, null);
+        size = 0;
+        coordinateCount = 0;
+        textCount = 0;
+    }
+
+    /**
+     * Writes all commands to the given content stream, which must not be within a text block.
+     *
+     * @param stream The content stream.
+     * @throws IOException If the content stream could not be written.
+     */
+    public void draw(PDPageContentStream stream) throws IOException
+    {
+        if (size == 0)
+        {
+            return;
+        }
+        stream.saveGraphicsState();
+
+        // the state set by this list, -1 and NaN while unknown
+        int fillColor = -1;
+        int strokeColor = -1;
+        float lineWidth = Float.NaN;
+        PDFont font = null;
+        float fontSize = Float.NaN;
+        int text = 0;
+
+        for (int i = 0; i < size; i++)
+        {
+            switch (kinds[i])
+            {
+            case FILL_RECTS:
+                if (colors[i] != fillColor)
+                {
+                    fillColor = colors[i];
+                    setNonStrokingColor(stream, fillColor);
+                }
+                stream.addRects(coordinates, starts[i], counts[i] / 4);
+                while (i + 1 < size && kinds[i + 1] == FILL_RECTS && colors[i + 1] == fillColor)
+                {
+                    i++;
+                    stream.addRects(coordinates, starts[i], counts[i] / 4);
+                }
+                stream.fill();
+                break;
+            case STROKE_POLYLINE:
+                if (colors[i] != strokeColor)
+                {
+                    strokeColor = colors[i];
+                    stream.setStrokingColor(strokeColor >> 16 & 0xff, strokeColor >> 8 & 0xff,
+                            strokeColor & 0xff);
+                }
+                if (widths[i] != lineWidth)
+                {
+                    lineWidth = widths[i];
+                    stream.setLineWidth(lineWidth);
+                }
+                stream.addPolyline(coordinates, starts[i], counts[i] / 2);
+                stream.stroke();
+                break;
+            case SHOW_TEXTS:
+                if (colors[i] != fillColor)
+                {
+                    fillColor = colors[i];
+                    setNonStrokingColor(stream, fillColor);
+                }
+                stream.beginText();
+                // the text state survives the end of a text block, unlike the text matrix
+                if (fonts[i] != font || widths[i] != fontSize)
+                {
+                    font = fonts[i];
+                    fontSize = widths[i];
+                    stream.setFont(font, fontSize);
+                }
+                // each text block starts at the origin, every offset moves from the last position
+                float x = 0;
+                float y = 0;
+                int end = starts[i] + counts[i];
+                for (int at = starts[i]; at < end; at += 2)
+                {
+                    float dx = coordinates[at] - x;
+                    float dy = coordinates[at + 1] - y;
+                    stream.newLineAtOffset(dx, dy);
+                    x += dx;
+                    y += dy;
+                    stream.showText(texts[text++]);
+                }
+                stream.endText();
+                break;
+            default:
+                throw new IllegalStateException("Unknown command " + kinds[i]);
+            }
+        }
+
+        stream.restoreGraphicsState();
+    }
+
+    private static void setNonStrokingColor(PDPageContentStream stream, int rgb) throws IOException
+    {
+        stream.setNonStrokingColor(rgb >> 16 & 0xff, rgb >> 8 & 0xff, rgb & 0xff);
+    }
+
+    /**
+     * Adds a command and makes room for its coordinates.
+     *
+     * @return the index of the command's first coordinate.
+     */
+    private int addCommand(int kind, int rgb, float width, PDFont font, int coordinatesLength)
+    {
+        if (size == kinds.length)
+        {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            colors = Arrays.copyOf(colors, capacity);
+            widths = Arrays.copyOf(widths, capacity);
+            fonts = Arrays.copyOf(fonts, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        if (coordinateCount + coordinatesLength > coordinates.length)
+        {
+            coordinates = Arrays.copyOf(coordinates,
+                    Math.max(coordinates.length * 2, coordinateCount + coordinatesLength));
+        }
+        kinds[size] = kind;
+        colors[size] = rgb & 0xffffff;
+        widths[size] = width;
+        fonts[size] = font;
+        starts[size] = coordinateCount;
+        counts[size] = coordinatesLength;
+        size++;
+
+        int start = coordinateCount;
+        coordinateCount += coordinatesLength;
+        return start;
+    }
+}
@@ -21,6 +21,7 @@ import com.hopding.pdflib.apache.pdfbox.cos.COSName;
 import com.hopding.pdflib.apache.pdfbox.cos.COSObject;
 import com.hopding.pdflib.apache.pdfbox.cos.COSStream;
 import com.hopding.pdflib.apache.pdfbox.cos.COSUpdateInfo;
+import com.hopding.pdflib.apache.pdfbox.filter.CompressionOptions;
 import com.hopding.pdflib.apache.pdfbox.io.IOUtils;
 import com.hopding.pdflib.apache.pdfbox.io.RandomAccessBufferedFileInputStream;
 import com.hopding.pdflib.apache.pdfbox.pdfparser.BaseParser;
@@ -75,6 +76,12 @@ public class PDDocument implements Closeable
 	// Signature interface
 	private SignatureInterface signInterface;
 
+	// writer of a save started with beginSave()
+	private COSWriter pageWriter;
+
+	// fonts and XObjects shared by the pages, null if disabled
+	private ResourceCache resourceCache = new ResourceCache();
+
 	/**
 	 * Creates an empty PDF document.
 	 * You need to add at least one page for the document to be valid.
@@ -740,13 +747,56 @@ public class PDDocument implements Closeable
     public static PDDocument load(File file, String password, InputStream keyStore, String alias,
             boolean useScratchFiles) throws IOException
     {
-    	PDFParser parser = new PDFParser(file, password, keyStore, alias, useScratchFiles);
+        return load(file, password, keyStore, alias, useScratchFiles, false);
+    }
+
+    /**
+     * Parses PDF with non sequential parser.
+     * 
+     * @param file file to be loaded
+     * @param password password to be used for decryption
+     * @param keyStore key store to be used for decryption when using public key security 
+     * @param alias alias to be used for decryption when using public key security
+     * @param useScratchFiles enables the usage of a scratch file if set to true
+     * @param memoryMapped reads the file through a memory mapping if set to true
+     * 
+     * @return loaded document
+     * 
+     * @throws IOException in case of a file reading or parsing error
+     */
+    public static PDDocument load(File file, String password, InputStream keyStore, String alias,
+            boolean useScratchFiles, boolean memoryMapped) throws IOException
+    {
+    	PDFParser parser = new PDFParser(file, password, keyStore, alias, useScratchFiles,
+    			memoryMapped);
     	parser.parse();
     	PDDocument doc = parser.getPDDocument();
     	doc.incrementalFile = file;
     	return doc;
 	}
 
+	/**
+	 * Parses only the cross reference table and the catalog of a PDF, all other objects are
+	 * parsed the first time they are used. Loading then takes time and memory proportional to the
+	 * parts of the document which are actually accessed. The file is memory mapped and kept open
+	 * until the document is closed.
+	 * 
+	 * @param file file to be loaded
+	 * 
+	 * @return loaded document
+	 * 
+	 * @throws IOException in case of a file reading or parsing error
+	 */
+	public static PDDocument loadLazily(File file) throws IOException
+	{
+		PDFParser parser = new PDFParser(file, "", null, null, false, true);
+		parser.setLazy(true);
+		parser.parse();
+		PDDocument doc = parser.getPDDocument();
+		doc.incrementalFile = file;
+		return doc;
+	}
+
 	/**
 	 * Parses PDF with non sequential parser.
 	 * 
@@ -885,12 +935,11 @@ public class PDDocument implements Closeable
 		{
 			throw new IOException("Cannot save a document which has been closed");
 		}
-		// subset designated fonts
-		for (PDFont font : fontsToSubset)
+		if (pageWriter != null)
 		{
-			font.subset();
+			throw new IllegalStateException("The document is being saved with beginSave()");
 		}
-		fontsToSubset.clear();
+		subsetFonts();
 
 		// save PDF
 		COSWriter writer = new COSWriter(output);
@@ -906,15 +955,17 @@ public class PDDocument implements Closeable
 	}
 
 	/**
-	 * Save the PDF as an incremental update.
-	 *
-	 * Use of this method is discouraged, use {@link #saveIncremental(OutputStream)} instead.
+	 * Save the PDF as an incremental update. The original file is copied to the output followed
+	 * by only the objects which were changed or added since it was loaded, and a new cross
+	 * reference section. The document must have been loaded from a file.
 	 *
 	 * @param output stream to write
 	 * @throws IOException if the output could not be written
 	 */
 	public void saveIncremental(OutputStream output) throws IOException
 	{
+		subsetFonts();
+
 		InputStream input = new RandomAccessBufferedFileInputStream(incrementalFile);
 		COSWriter writer = null;
 		try
@@ -929,7 +980,125 @@ public class PDDocument implements Closeable
 			{
 				writer.close();
 			}
+			input.close();
+		}
+	}
+
+	/**
+	 * Starts saving the document to an output stream. Finished pages can then be written
+	 * right away with {@link #savePage(PDPage)}, which releases their content, instead of
+	 * being held in memory until the whole document is saved. The save is completed by
+	 * {@link #endSave()}.
+	 *
+	 * @param output The stream to write to.
+	 *
+	 * @throws IOException if the output could not be written
+	 */
+	public void beginSave(OutputStream output) throws IOException
+	{
+		if (document.isClosed())
+		{
+			throw new IOException("Cannot save a document which has been closed");
+		}
+		if (pageWriter != null)
+		{
+			throw new IllegalStateException("The document is already being saved");
+		}
+		COSWriter writer = new COSWriter(output);
+		try
+		{
+			writer.beginStreaming(this);
+		}
+		catch (IOException e)
+		{
+			writer.close();
+			throw e;
+		}
+		pageWriter = writer;
+	}
+
+	/**
+	 * Writes a finished page of a document being saved with {@link #beginSave(OutputStream)}.
+	 * The page must already be part of the document and is emptied once written, so it
+	 * can't be modified or read afterwards. Fonts used by the page are written by
+	 * {@link #endSave()}, as they are subset once all pages are known.
+	 *
+	 * @param page The page to write.
+	 *
+	 * @throws IOException if the output could not be written
+	 */
+	public void savePage(PDPage page) throws IOException
+	{
+		if (pageWriter == null)
+		{
+			throw new IllegalStateException("beginSave() must be called first");
 		}
+		pageWriter.writePage(page);
+	}
+
+	/**
+	 * Writes a finished page like {@link #savePage(PDPage)}, optionally along with the fonts,
+	 * annotations and other objects it uses, so that a page copied from another document is
+	 * released completely. Those objects can't be modified afterwards and fonts used by such
+	 * a page aren't subset.
+	 *
+	 * @param page The page to write.
+	 * @param withSharedObjects Whether the objects used by the page are written, too.
+	 *
+	 * @throws IOException if the output could not be written
+	 */
+	public void savePage(PDPage page, boolean withSharedObjects) throws IOException
+	{
+		if (pageWriter == null)
+		{
+			throw new IllegalStateException("beginSave() must be called first");
+		}
+		pageWriter.writePage(page, withSharedObjects);
+	}
+
+	/**
+	 * Completes a save started with {@link #beginSave(OutputStream)}, writing the remaining
+	 * pages and objects, the cross reference table and the trailer, and closes the output.
+	 *
+	 * @throws IOException if the output could not be written
+	 */
+	public void endSave() throws IOException
+	{
+		if (pageWriter == null)
+		{
+			throw new IllegalStateException("beginSave() must be called first");
+		}
+		COSWriter writer = pageWriter;
+		pageWriter = null;
+		try
+		{
+			subsetFonts();
+			writer.write(this);
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * Indicates if a save started with {@link #beginSave(OutputStream)} is in progress.
+	 *
+	 * @return true if pages can be written with {@link #savePage(PDPage)}
+	 */
+	public boolean isSaving()
+	{
+		return pageWriter != null;
+	}
+
+	// subset designated fonts
+	private void subsetFonts() throws IOException
+	{
+		for (PDFont font : fontsToSubset)
+		{
+			font.subset();
+		}
+		fontsToSubset.clear();
 	}
 
 	/**
@@ -948,6 +1117,45 @@ public class PDDocument implements Closeable
 		return getDocumentCatalog().getPages();
 	}
 
+	/**
+	 * Returns the cache of the fonts and XObjects shared by the pages of this document, or null
+	 * if resources are created anew on every lookup.
+	 */
+	public ResourceCache getResourceCache()
+	{
+		return resourceCache;
+	}
+
+	/**
+	 * Sets the cache of the fonts and XObjects shared by the pages of this document. Pages and
+	 * resources which have already been read keep the cache they got.
+	 *
+	 * @param resourceCache The cache, or null to create resources anew on every lookup.
+	 */
+	public void setResourceCache(ResourceCache resourceCache)
+	{
+		this.resourceCache = resourceCache;
+	}
+
+	/**
+	 * Returns how the streams created for this document are compressed.
+	 */
+	public CompressionOptions getCompressionOptions()
+	{
+		return document.getCompressionOptions();
+	}
+
+	/**
+	 * Sets how the streams created for this document from now on, e.g. by
+	 * {@link PDPageContentStream} or {@link PDStream#PDStream(PDDocument)}, are compressed.
+	 *
+	 * @param compressionOptions The compression settings.
+	 */
+	public void setCompressionOptions(CompressionOptions compressionOptions)
+	{
+		document.setCompressionOptions(compressionOptions);
+	}
+
 	/**
 	 * This will return the total page count of the PDF document.
 	 * 
@@ -966,6 +1174,16 @@ public class PDDocument implements Closeable
 	@Override
 	public void close() throws IOException
 	{
+		if (pageWriter != null)
+		{
+			// abandon an unfinished save
+			pageWriter.close();
+			pageWriter = null;
+		}
+		if (resourceCache != null)
+		{
+			resourceCache.clear();
+		}
 		if (!document.isClosed())
 		{
 			// close all intermediate I/O streams
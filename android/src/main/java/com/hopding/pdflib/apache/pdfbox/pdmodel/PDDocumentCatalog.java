@@ -105,7 +105,7 @@ public class PDDocumentCatalog implements COSObjectable
 	public PDPageTree getPages()
 	{
 		// TODO cache me?
-		return new PDPageTree((COSDictionary)root.getDictionaryObject(COSName.PAGES));
+		return new PDPageTree((COSDictionary)root.getDictionaryObject(COSName.PAGES), document);
 	}
 
 	/**
@@ -35,6 +35,7 @@ public class PDPage implements COSObjectable, PDContentStream
 {
 	private final COSDictionary page;
 	private PDResources pageResources;
+	private ResourceCache resourceCache;
 	private PDRectangle mediaBox;
 
 	/**
@@ -67,6 +68,19 @@ public class PDPage implements COSObjectable, PDContentStream
 		page = pageDictionary;
 	}
 
+	/**
+	 * Creates a new instance of PDPage for reading, which shares the fonts and XObjects of its
+	 * resources through the given cache.
+	 * 
+	 * @param pageDictionary A page dictionary in a PDF document.
+	 * @param resourceCache The resource cache of the document, or null.
+	 */
+	public PDPage(COSDictionary pageDictionary, ResourceCache resourceCache)
+	{
+		page = pageDictionary;
+		this.resourceCache = resourceCache;
+	}
+
 	/**
 	 * Convert this standard java object to a COS object.
 	 * 
@@ -107,7 +121,7 @@ public class PDPage implements COSObjectable, PDContentStream
 			// note: it's an error for resources to not be present
 			if (resources != null)
 			{
-				pageResources = new PDResources(resources);
+				pageResources = new PDResources(resources, resourceCache);
 			}
 		}
 		return pageResources;
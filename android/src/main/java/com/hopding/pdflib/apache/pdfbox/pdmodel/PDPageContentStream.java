@@ -26,6 +26,7 @@ import com.hopding.pdflib.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.graphics.shading.PDShading;
 import com.hopding.pdflib.apache.pdfbox.util.Charsets;
 import com.hopding.pdflib.apache.pdfbox.util.Matrix;
+import com.hopding.pdflib.apache.pdfbox.util.NumberFormatUtil;
 import com.hopding.pdflib.apache.pdfbox.util.awt.AWTColor;
 import com.hopding.pdflib.apache.pdfbox.util.awt.AffineTransform;
 
@@ -49,9 +50,60 @@ public final class PDPageContentStream implements Closeable
 	    private final Stack<PDColorSpace> nonStrokingColorSpaceStack = new Stack<PDColorSpace>();
 	    private Stack<PDColorSpace> strokingColorSpaceStack = new Stack<PDColorSpace>();
 
-	// number format
+	// number format, only used for doubles
 	private final NumberFormat formatDecimal = NumberFormat.getNumberInstance(Locale.US);
 
+	// numbers are written with at most this many fraction digits
+	private static final int MAX_FRACTION_DIGITS = 10;
+	// reusable buffer for an operand followed by a space
+	private final byte[] operandBuffer = new byte[NumberFormatUtil.MAX_FLOAT_LENGTH + 1];
+
+	// the operators with their line end, encoded once
+	private static final byte[] BEGIN_TEXT = operator("BT");
+	private static final byte[] END_TEXT = operator("ET");
+	private static final byte[] SET_FONT = operator("Tf");
+	private static final byte[] SHOW_TEXT = operator("Tj");
+	private static final byte[] SET_LEADING = operator("TL");
+	private static final byte[] NEXT_LINE = operator("T*");
+	private static final byte[] MOVE_TEXT = operator("Td");
+	private static final byte[] SET_TEXT_MATRIX = operator("Tm");
+	private static final byte[] DRAW_OBJECT = operator("Do");
+	private static final byte[] CONCATENATE_MATRIX = operator("cm");
+	private static final byte[] SAVE = operator("q");
+	private static final byte[] RESTORE = operator("Q");
+	private static final byte[] STROKING_COLOR_SPACE = operator("CS");
+	private static final byte[] NON_STROKING_COLOR_SPACE = operator("cs");
+	private static final byte[] STROKING_COLOR = operator("SC");
+	private static final byte[] NON_STROKING_COLOR = operator("sc");
+	private static final byte[] STROKING_RGB = operator("RG");
+	private static final byte[] NON_STROKING_RGB = operator("rg");
+	private static final byte[] STROKING_CMYK = operator("K");
+	private static final byte[] NON_STROKING_CMYK = operator("k");
+	private static final byte[] STROKING_GRAY = operator("G");
+	private static final byte[] NON_STROKING_GRAY = operator("g");
+	private static final byte[] APPEND_RECTANGLE = operator("re");
+	private static final byte[] CURVE_TO = operator("c");
+	private static final byte[] CURVE_TO_REPLICATE_INITIAL = operator("v");
+	private static final byte[] CURVE_TO_REPLICATE_FINAL = operator("y");
+	private static final byte[] LINE_TO = operator("l");
+	private static final byte[] MOVE_TO = operator("m");
+	private static final byte[] CLOSE_PATH = operator("h");
+	private static final byte[] STROKE = operator("S");
+	private static final byte[] CLOSE_AND_STROKE = operator("s");
+	private static final byte[] FILL = operator("f");
+	private static final byte[] FILL_EVEN_ODD = operator("f*");
+	private static final byte[] CLIP = operator("W");
+	private static final byte[] CLIP_EVEN_ODD = operator("W*");
+	private static final byte[] END_PATH = operator("n");
+	private static final byte[] SHADING_FILL = operator("sh");
+	private static final byte[] SET_LINE_WIDTH = operator("w");
+	private static final byte[] SET_LINE_JOIN = operator("j");
+	private static final byte[] SET_LINE_CAP = operator("J");
+	private static final byte[] SET_DASH = operator("d");
+	private static final byte[] BEGIN_MARKED_CONTENT = operator("BMC");
+	private static final byte[] BEGIN_MARKED_CONTENT_SEQUENCE = operator("BDC");
+	private static final byte[] END_MARKED_CONTENT = operator("EMC");
+
 	/**
 	 * Create a new PDPage content stream.
 	 *
@@ -196,7 +248,7 @@ public final class PDPageContentStream implements Closeable
         {
             throw new IOException("Error: Nested beginText() calls are not allowed.");
         }
-        writeOperator("BT");
+        writeOperator(BEGIN_TEXT);
         inTextMode = true;
     }
 
@@ -212,7 +264,7 @@ public final class PDPageContentStream implements Closeable
         {
             throw new IOException("Error: You must call beginText() before calling endText.");
         }
-        writeOperator("ET");
+        writeOperator(END_TEXT);
         inTextMode = false;
     }
 
@@ -241,7 +293,7 @@ public final class PDPageContentStream implements Closeable
 
     	writeOperand(resources.add(font));
     	writeOperand(fontSize);
-    	writeOperator("Tf");
+    	writeOperator(SET_FONT);
     }
     
     /**
@@ -292,7 +344,7 @@ public final class PDPageContentStream implements Closeable
         COSWriter.writeString(font.encode(text), output);
         write(" ");
         
-        writeOperator("Tj");
+        writeOperator(SHOW_TEXT);
     }    
     
     /**
@@ -304,7 +356,7 @@ public final class PDPageContentStream implements Closeable
     public void setLeading(double leading) throws IOException
     {
     	writeOperand((float) leading);
-    	writeOperator("TL");
+    	writeOperator(SET_LEADING);
     }
 
     /**
@@ -318,7 +370,7 @@ public final class PDPageContentStream implements Closeable
     	{
     		throw new IllegalStateException("Must call beginText() before newLine()");
     	}
-    	writeOperator("T*");
+    	writeOperator(NEXT_LINE);
     }
 
     /**
@@ -351,7 +403,7 @@ public final class PDPageContentStream implements Closeable
         }
         writeOperand(tx);
         writeOperand(ty);
-        writeOperator("Td");
+        writeOperator(MOVE_TEXT);
     }
 
     /**
@@ -399,7 +451,7 @@ public final class PDPageContentStream implements Closeable
     		throw new IOException("Error: must call beginText() before setTextMatrix");
     	}
     	writeAffineTransform(matrix.createAffineTransform());
-    	writeOperator("Tm");
+    	writeOperator(SET_TEXT_MATRIX);
     }
 
     /**
@@ -483,7 +535,7 @@ public final class PDPageContentStream implements Closeable
     	AffineTransform transform = new AffineTransform(width, 0, 0, height, x, y);
     	transform(new Matrix(transform));
     	writeOperand(resources.add(image));
-    	writeOperator("Do");
+    	writeOperator(DRAW_OBJECT);
     	
     	restoreGraphicsState();
     }
@@ -645,7 +697,7 @@ public final class PDPageContentStream implements Closeable
     	saveGraphicsState();
     	transform(new Matrix(transform));
     	writeOperand(objMapping);
-    	writeOperator("Do");
+    	writeOperator(DRAW_OBJECT);
     	
     	restoreGraphicsState();
     }
@@ -662,7 +714,7 @@ public final class PDPageContentStream implements Closeable
     		throw new IOException("Error: drawForm is not allowed within a text block.");
     	}
     	writeOperand(resources.add(form));
-    	writeOperator("Do");
+    	writeOperator(DRAW_OBJECT);
     }
 
     /**
@@ -704,7 +756,7 @@ public final class PDPageContentStream implements Closeable
     public void transform(Matrix matrix) throws IOException
     {
     	writeAffineTransform(matrix.createAffineTransform());
-    	writeOperator("cm");
+    	writeOperator(CONCATENATE_MATRIX);
     }
     
     /**
@@ -725,7 +777,7 @@ public final class PDPageContentStream implements Closeable
 //    	{
 //    		nonStrokingColorSpaceStack.push(strokingColorSpaceStack.peek());
 //    	}
-    	writeOperator("q");
+    	writeOperator(SAVE);
     }
 
     /**
@@ -746,7 +798,7 @@ public final class PDPageContentStream implements Closeable
 //    	{
 //    		nonStrokingColorSpaceStack.pop();
 //    	}
-    	writeOperator("Q");
+    	writeOperator(RESTORE);
     }
 
     /**
@@ -770,7 +822,7 @@ public final class PDPageContentStream implements Closeable
     	}
 
     	writeOperand(getName(colorSpace));
-    	writeOperator("CS");
+    	writeOperator(STROKING_COLOR_SPACE);
     }
 
     /**
@@ -794,7 +846,7 @@ public final class PDPageContentStream implements Closeable
     	}
 
     	writeOperand(getName(colorSpace));
-    	writeOperator("cs");
+    	writeOperator(NON_STROKING_COLOR_SPACE);
     }
 
     private COSName getName(PDColorSpace colorSpace) throws IOException
@@ -824,7 +876,7 @@ public final class PDPageContentStream implements Closeable
     			strokingColorSpaceStack.peek() != color.getColorSpace())
         {
     		writeOperand(getName(color.getColorSpace()));
-    		writeOperator("CS");
+    		writeOperator(STROKING_COLOR_SPACE);
 
     		if (strokingColorSpaceStack.isEmpty())
     		{
@@ -856,7 +908,7 @@ public final class PDPageContentStream implements Closeable
 //        }
 //        else
 //        {
-            writeOperator("SC");
+            writeOperator(STROKING_COLOR);
 //        } TODO
     }
 
@@ -904,7 +956,7 @@ public final class PDPageContentStream implements Closeable
 //    	}
 //    	else
 //    	{
-    		writeOperator("SC");
+    		writeOperator(STROKING_COLOR);
 //    	} TODO
     }
 
@@ -921,7 +973,7 @@ public final class PDPageContentStream implements Closeable
         writeOperand(r / 255f);
         writeOperand(g / 255f);
         writeOperand(b / 255f);
-        writeOperator("RG");
+        writeOperator(STROKING_RGB);
     }
 
     /**
@@ -955,7 +1007,7 @@ public final class PDPageContentStream implements Closeable
         writeOperand(m);
         writeOperand(y);
         writeOperand(k);
-        writeOperator("K");
+        writeOperator(STROKING_CMYK);
     }
 
     /**
@@ -980,7 +1032,7 @@ public final class PDPageContentStream implements Closeable
     public void setStrokingColor(double g) throws IOException
     {
         writeOperand((float) g);
-        writeOperator("G");
+        writeOperator(STROKING_GRAY);
     }
 
     /**
@@ -995,7 +1047,7 @@ public final class PDPageContentStream implements Closeable
     			nonStrokingColorSpaceStack.peek() != color.getColorSpace())
     	{
     		writeOperand(getName(color.getColorSpace()));
-    		writeOperator("cs");
+    		writeOperator(NON_STROKING_COLOR_SPACE);
 
     		if (nonStrokingColorSpaceStack.isEmpty())
     		{
@@ -1027,7 +1079,7 @@ public final class PDPageContentStream implements Closeable
 //    	}
 //    	else
 //    	{
-    		writeOperator("sc");
+    		writeOperator(NON_STROKING_COLOR);
 //    	}
     }
 
@@ -1074,7 +1126,7 @@ public final class PDPageContentStream implements Closeable
 //        }
 //        else
 //        {
-            writeOperator("sc");
+            writeOperator(NON_STROKING_COLOR);
 //        } TODO
     }
 
@@ -1091,7 +1143,7 @@ public final class PDPageContentStream implements Closeable
         writeOperand(r / 255f);
         writeOperand(g / 255f);
         writeOperand(b / 255f);
-        writeOperator("rg");
+        writeOperator(NON_STROKING_RGB);
     }
 
     /**
@@ -1123,7 +1175,7 @@ public final class PDPageContentStream implements Closeable
         writeOperand((float) m);
         writeOperand((float) y);
         writeOperand((float) k);
-        writeOperator("k");
+        writeOperator(NON_STROKING_CMYK);
     }
 
     /**
@@ -1146,7 +1198,7 @@ public final class PDPageContentStream implements Closeable
     public void setNonStrokingColor(double g) throws IOException
     {
         writeOperand((float) g);
-        writeOperator("g");
+        writeOperator(NON_STROKING_GRAY);
     }
 
     /**
@@ -1168,7 +1220,32 @@ public final class PDPageContentStream implements Closeable
         writeOperand(y);
         writeOperand(width);
         writeOperand(height);
-        writeOperator("re");
+        writeOperator(APPEND_RECTANGLE);
+    }
+
+    /**
+     * Add several rectangles to the current path in one pass.
+     *
+     * @param rects The rectangles as consecutive x, y, width and height values.
+     * @param offset The index of the first rectangle's x coordinate.
+     * @param count The number of rectangles.
+     * @throws IOException If the content stream could not be written.
+     */
+    public void addRects(float[] rects, int offset, int count) throws IOException
+    {
+        if (inTextMode)
+        {
+            throw new IOException("Error: addRects is not allowed within a text block.");
+        }
+        int end = offset + count * 4;
+        for (int i = offset; i < end; i += 4)
+        {
+            writeOperand(rects[i]);
+            writeOperand(rects[i + 1]);
+            writeOperand(rects[i + 2]);
+            writeOperand(rects[i + 3]);
+            writeOperator(APPEND_RECTANGLE);
+        }
     }
 
     /**
@@ -1234,7 +1311,7 @@ public final class PDPageContentStream implements Closeable
     	writeOperand(y2);
     	writeOperand(x3);
     	writeOperand(y3);
-    	writeOperator("c");
+    	writeOperator(CURVE_TO);
     }
 
     /**
@@ -1273,7 +1350,7 @@ public final class PDPageContentStream implements Closeable
         writeOperand(y2);
         writeOperand(x3);
         writeOperand(y3);
-        writeOperator("v");
+        writeOperator(CURVE_TO_REPLICATE_INITIAL);
     }
 
     /**
@@ -1312,7 +1389,7 @@ public final class PDPageContentStream implements Closeable
         writeOperand(y1);
         writeOperand(x3);
         writeOperand(y3);
-        writeOperator("y");
+        writeOperator(CURVE_TO_REPLICATE_FINAL);
     }
 
     /**
@@ -1330,7 +1407,7 @@ public final class PDPageContentStream implements Closeable
         }
         writeOperand(x);
         writeOperand(y);
-        writeOperator("m");
+        writeOperator(MOVE_TO);
     }
 
     /**
@@ -1348,7 +1425,30 @@ public final class PDPageContentStream implements Closeable
         }
         writeOperand(x);
         writeOperand(y);
-        writeOperator("l");
+        writeOperator(LINE_TO);
+    }
+
+    /**
+     * Start a new subpath at the first of the given points and add lines through the others.
+     *
+     * @param points The points as consecutive x and y coordinates.
+     * @param offset The index of the first point's x coordinate.
+     * @param count The number of points.
+     * @throws IOException If the content stream could not be written.
+     */
+    public void addPolyline(float[] points, int offset, int count) throws IOException
+    {
+        if (inTextMode)
+        {
+            throw new IOException("Error: addPolyline is not allowed within a text block.");
+        }
+        int end = offset + count * 2;
+        for (int i = offset; i < end; i += 2)
+        {
+            writeOperand(points[i]);
+            writeOperand(points[i + 1]);
+            writeOperator(i == offset ? MOVE_TO : LINE_TO);
+        }
     }
 
     /**
@@ -1473,7 +1573,7 @@ public final class PDPageContentStream implements Closeable
         {
             throw new IOException("Error: stroke is not allowed within a text block.");
         }
-        writeOperator("S");
+        writeOperator(STROKE);
     }
 
     /**
@@ -1487,7 +1587,7 @@ public final class PDPageContentStream implements Closeable
         {
             throw new IOException("Error: closeAndStroke is not allowed within a text block.");
         }
-        writeOperator("s");
+        writeOperator(CLOSE_AND_STROKE);
     }
 
     /**
@@ -1525,7 +1625,7 @@ public final class PDPageContentStream implements Closeable
     	{
     		throw new IOException("Error: fill is not allowed within a text block.");
     	}
-    	writeOperator("f");
+    	writeOperator(FILL);
     }
 
     /**
@@ -1539,7 +1639,7 @@ public final class PDPageContentStream implements Closeable
     	{
     		throw new IOException("Error: fill is not allowed within a text block.");
     	}
-    	writeOperator("f*");
+    	writeOperator(FILL_EVEN_ODD);
     }
     
     /**
@@ -1556,7 +1656,7 @@ public final class PDPageContentStream implements Closeable
     	}
 
     	writeOperand(resources.add(shading));
-    	writeOperator("sh");
+    	writeOperator(SHADING_FILL);
     }
 
     /**
@@ -1582,7 +1682,7 @@ public final class PDPageContentStream implements Closeable
     	{
     		throw new IOException("Error: closePath is not allowed within a text block.");
     	}
-    	writeOperator("h");
+    	writeOperator(CLOSE_PATH);
     }
 
     /**
@@ -1602,17 +1702,17 @@ public final class PDPageContentStream implements Closeable
         }
         if (windingRule == Path.FillType.WINDING)
         {
-        	writeOperator("W");
+        	writeOperator(CLIP);
         }
         else if (windingRule == Path.FillType.EVEN_ODD)
         {
-        	writeOperator("W");
+        	writeOperator(CLIP);
         }
         else
         {
             throw new IOException("Error: unknown value for winding rule");
         }
-        writeOperator("n");
+        writeOperator(END_PATH);
     }
 
     /**
@@ -1626,9 +1726,9 @@ public final class PDPageContentStream implements Closeable
     	{
     		throw new IOException("Error: clip is not allowed within a text block.");
     	}
-    	writeOperator("W");
+    	writeOperator(CLIP);
     	// end path without filling or stroking
-    	writeOperator("n");
+    	writeOperator(END_PATH);
     }
 
     /**
@@ -1642,10 +1742,10 @@ public final class PDPageContentStream implements Closeable
     	{
     		throw new IOException("Error: clipEvenOdd is not allowed within a text block.");
     	}
-    	writeOperator("W*");
+    	writeOperator(CLIP_EVEN_ODD);
     	
     	// end path without filling or stroking
-    	writeOperator("n");
+    	writeOperator(END_PATH);
     }
 
     /**
@@ -1661,7 +1761,7 @@ public final class PDPageContentStream implements Closeable
             throw new IOException("Error: setLineWidth is not allowed within a text block.");
         }
         writeOperand(lineWidth);
-        writeOperator("w");
+        writeOperator(SET_LINE_WIDTH);
     }
 
     /**
@@ -1678,7 +1778,7 @@ public final class PDPageContentStream implements Closeable
         if (lineJoinStyle >= 0 && lineJoinStyle <= 2)
         {
             writeOperand(lineJoinStyle);
-            writeOperator("j");
+            writeOperator(SET_LINE_JOIN);
         }
         else
         {
@@ -1700,7 +1800,7 @@ public final class PDPageContentStream implements Closeable
         if (lineCapStyle >= 0 && lineCapStyle <= 2)
         {
             writeOperand(lineCapStyle);
-            writeOperator("J");
+            writeOperator(SET_LINE_CAP);
         }
         else
         {
@@ -1727,7 +1827,7 @@ public final class PDPageContentStream implements Closeable
         }
         write("] ");
         writeOperand(phase);
-        writeOperator("d");
+        writeOperator(SET_DASH);
     }
 
     /**
@@ -1752,7 +1852,7 @@ public final class PDPageContentStream implements Closeable
     public void beginMarkedContent(COSName tag) throws IOException
     {
         writeOperand(tag);
-        writeOperator("BMC");
+        writeOperator(BEGIN_MARKED_CONTENT);
     }
 
     /**
@@ -1769,7 +1869,7 @@ public final class PDPageContentStream implements Closeable
     {
         writeOperand(tag);
         writeOperand(propsName);
-        writeOperator("BDC");
+        writeOperator(BEGIN_MARKED_CONTENT_SEQUENCE);
     }
 
     /**
@@ -1784,7 +1884,7 @@ public final class PDPageContentStream implements Closeable
     {
     	writeOperand(tag);
     	writeOperand(resources.add(propertyList));
-    	writeOperator("BDC");
+    	writeOperator(BEGIN_MARKED_CONTENT_SEQUENCE);
     }
 
     /**
@@ -1806,7 +1906,7 @@ public final class PDPageContentStream implements Closeable
      */
     public void endMarkedContent() throws IOException
     {
-    	writeOperator("EMC");
+    	writeOperator(END_MARKED_CONTENT);
     }
 
     /**
@@ -1871,7 +1971,8 @@ public final class PDPageContentStream implements Closeable
     @Deprecated
     public void appendRawCommands(float data) throws IOException
     {
-    	output.write(formatDecimal.format(data).getBytes(Charsets.US_ASCII));
+    	int length = NumberFormatUtil.formatFloat(data, MAX_FRACTION_DIGITS, operandBuffer);
+    	output.write(operandBuffer, 0, length);
     }
 
     /**
@@ -1892,8 +1993,9 @@ public final class PDPageContentStream implements Closeable
      */
     private void writeOperand(float real) throws IOException
     {
-    	writeOperator(formatDecimal.format(real));
-    	output.write(' ');
+    	int length = NumberFormatUtil.formatFloat(real, MAX_FRACTION_DIGITS, operandBuffer);
+    	operandBuffer[length] = ' ';
+    	output.write(operandBuffer, 0, length + 1);
     }
 
     /**
@@ -1901,8 +2003,9 @@ public final class PDPageContentStream implements Closeable
      */
     private void writeOperand(int integer) throws IOException
     {
-    	writeOperator(formatDecimal.format(integer));
-    	output.write(' ');
+    	int length = NumberFormatUtil.formatInt(integer, operandBuffer);
+    	operandBuffer[length] = ' ';
+    	output.write(operandBuffer, 0, length + 1);
     }
     
     /**
@@ -1915,12 +2018,19 @@ public final class PDPageContentStream implements Closeable
     }
 
     /**
-     * Writes a string to the content stream as ASCII.
+     * Writes an operator and its line end to the content stream.
      */
-    private void writeOperator(String text) throws IOException
+    private void writeOperator(byte[] operator) throws IOException
     {
-    	output.write(text.getBytes(Charsets.US_ASCII));
-    	output.write('\n');
+    	output.write(operator);
+    }
+
+    /**
+     * Encodes an operator and its line end as ASCII.
+     */
+    private static byte[] operator(String operator)
+    {
+    	return (operator + '\n').getBytes(Charsets.US_ASCII);
     }
 
     /**
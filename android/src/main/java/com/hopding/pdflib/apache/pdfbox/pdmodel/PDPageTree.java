@@ -2,6 +2,7 @@ package com.hopding.pdflib.apache.pdfbox.pdmodel;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
@@ -20,7 +21,12 @@ import com.hopding.pdflib.apache.pdfbox.pdmodel.common.COSObjectable;
  */
 public class PDPageTree implements COSObjectable, Iterable<PDPage>
 {
+    // the most kids of the nodes pages are added to, so that looking up a page by its index or
+    // the index of a page only looks at a few kids on each level of the tree
+    private static final int MAX_KIDS = 32;
+
     private final COSDictionary root;
+    private final ResourceCache resourceCache;
 
     /**
      * Constructor for embedding.
@@ -31,6 +37,7 @@ public class PDPageTree implements COSObjectable, Iterable<PDPage>
         root.setItem(COSName.TYPE, COSName.PAGES);
         root.setItem(COSName.KIDS, new COSArray());
         root.setItem(COSName.COUNT, COSInteger.ZERO);
+        resourceCache = null;
     }
 
     /**
@@ -39,12 +46,25 @@ public class PDPageTree implements COSObjectable, Iterable<PDPage>
      * @param root A page tree root.
      */
     public PDPageTree(COSDictionary root)
+    {
+        this(root, null);
+    }
+
+    /**
+     * Constructor for reading, the pages share the fonts and XObjects of their resources through
+     * the resource cache of the given document.
+     *
+     * @param root A page tree root.
+     * @param document The document the page tree belongs to, or null.
+     */
+    public PDPageTree(COSDictionary root, PDDocument document)
     {
         if (root == null)
         {
             throw new IllegalArgumentException("root cannot be null");
         }
         this.root = root;
+        resourceCache = document == null ? null : document.getResourceCache();
     }
 
     /**
@@ -149,7 +169,7 @@ public class PDPageTree implements COSObjectable, Iterable<PDPage>
                 throw new IllegalStateException("Expected Page but got " + next);
             }
 
-            return new PDPage(next);
+            return new PDPage(next, resourceCache);
         }
 
         @Override
@@ -174,7 +194,7 @@ public class PDPageTree implements COSObjectable, Iterable<PDPage>
             throw new IllegalStateException("Expected Page but got " + dict);
         }
 
-        return new PDPage(dict);
+        return new PDPage(dict, resourceCache);
     }
 
     /**
@@ -197,9 +217,12 @@ public class PDPageTree implements COSObjectable, Iterable<PDPage>
             int count = node.getInt(COSName.COUNT, 0);
             if (pageNum <= encountered + count)
             {
-                // it's a kid of this node
-                for (COSDictionary kid : getKids(node))
+                // it's a kid of this node, resolve kids one by one so that the pages after
+                // it don't have to be loaded
+                COSArray kids = (COSArray)node.getDictionaryObject(COSName.KIDS);
+                for (int i = 0, size = kids == null ? 0 : kids.size(); i < size; i++)
                 {
+                    COSDictionary kid = (COSDictionary)kids.getObject(i);
                     // which kid?
                     if (isPageTreeNode(kid))
                     {
@@ -262,30 +285,35 @@ public class PDPageTree implements COSObjectable, Iterable<PDPage>
      */
     public int indexOf(PDPage page)
     {
-        int num = 0;
+        int index = 0;
         COSDictionary node = page.getCOSObject();
-        do
+        while (node != root)
         {
-            if (isPageTreeNode(node))
+            COSDictionary parent = (COSDictionary) node.getDictionaryObject(COSName.PARENT, COSName.P);
+            if (parent == null)
             {
-                // count kids up until this node
-                for (COSDictionary kid : getKids(node))
+                return -1;
+            }
+            // add the pages of the kids before this node
+            COSArray kids = (COSArray)parent.getDictionaryObject(COSName.KIDS);
+            int i = 0;
+            int size = kids == null ? 0 : kids.size();
+            for (; i < size; i++)
+            {
+                COSDictionary kid = (COSDictionary)kids.getObject(i);
+                if (kid == node)
                 {
-                    if (kid == node)
-                    {
-                        break;
-                    }
-                    num++;
+                    break;
                 }
+                index += isPageTreeNode(kid) ? kid.getInt(COSName.COUNT, 0) : 1;
             }
-            else
+            if (i == size)
             {
-                num++;
+                return -1;
             }
-            node = (COSDictionary) node.getDictionaryObject(COSName.PARENT, COSName.P);
+            node = parent;
         }
-        while (node != null);
-        return num - 1;
+        return isPageTreeNode(page.getCOSObject()) ? -1 : index;
     }
 
     /**
@@ -350,25 +378,133 @@ public class PDPageTree implements COSObjectable, Iterable<PDPage>
      */
     public void add(PDPage page)
     {
-        // set parent
-        COSDictionary node = page.getCOSObject();
-        node.setItem(COSName.PARENT, root);
+        addAll(Collections.singletonList(page));
+    }
+
+    /**
+     * Adds the given pages to the end of this page tree, in order.
+     *
+     * Up to 32 pages are added to the root, further pages to intermediate nodes of up to 32 kids.
+     * Once the last subtree of the root is full, a subtree one level deeper is started next to
+     * it, so that the depth of the tree grows with the logarithm of the page count. Pages which
+     * have been added are never moved to another node, as they may already have been written.
+     */
+    public void addAll(List<PDPage> pages)
+    {
+        int added = 0;
+        while (added < pages.size())
+        {
+            COSDictionary parent = getLastNodeWithRoom();
+            COSArray kids = (COSArray)parent.getDictionaryObject(COSName.KIDS);
+            int count = Math.min(MAX_KIDS - kids.size(), pages.size() - added);
+            for (int i = 0; i < count; i++)
+            {
+                // set parent and add to parent's kids
+                COSDictionary node = pages.get(added + i).getCOSObject();
+                node.setItem(COSName.PARENT, parent);
+                kids.add(node);
+            }
+            added += count;
 
-        // todo: re-balance tree? (or at least group new pages into tree nodes of e.g. 20)
+            // update ancestor counts once for all pages added to this node
+            for (COSDictionary node = parent; node != null;
+                    node = (COSDictionary) node.getDictionaryObject(COSName.PARENT, COSName.P))
+            {
+                node.setInt(COSName.COUNT, node.getInt(COSName.COUNT, 0) + count);
+            }
+        }
+    }
 
-        // add to parent's kids
-        COSArray kids = (COSArray)root.getDictionaryObject(COSName.KIDS);
-        kids.add(node);
-        
-        // update ancestor counts
-        do
+    /**
+     * Returns the node the next page is to be added to, adding intermediate nodes if the nodes
+     * on the last path of the tree are full.
+     */
+    private COSDictionary getLastNodeWithRoom()
+    {
+        if (root.getDictionaryObject(COSName.KIDS) == null)
         {
-        	node = (COSDictionary) node.getDictionaryObject(COSName.PARENT, COSName.P);
-        	if (node != null)
-        	{
-        		node.setInt(COSName.COUNT, node.getInt(COSName.COUNT) + 1);
-        	}
+            // probably a malformed PDF
+            root.setItem(COSName.KIDS, new COSArray());
         }
-        while (node != null);
+
+        // follow the last kids down through the nodes added by this class
+        List<COSDictionary> path = new ArrayList<COSDictionary>();
+        COSDictionary node = root;
+        path.add(node);
+        while (true)
+        {
+            COSArray kids = (COSArray)node.getDictionaryObject(COSName.KIDS);
+            if (kids == null || kids.size() == 0)
+            {
+                break;
+            }
+            COSBase last = kids.getObject(kids.size() - 1);
+            if (!(last instanceof COSDictionary) || !isIntermediateNode((COSDictionary)last))
+            {
+                break;
+            }
+            node = (COSDictionary)last;
+            path.add(node);
+        }
+
+        // the deepest node with room, new nodes below it keep the pages at the same depth
+        for (int i = path.size() - 1; i > 0; i--)
+        {
+            if (getKidCount(path.get(i)) < MAX_KIDS)
+            {
+                return addIntermediateNodes(path.get(i), path.size() - 1 - i);
+            }
+        }
+        if (path.size() == 1 && getKidCount(root) < MAX_KIDS)
+        {
+            return root;
+        }
+        // the last subtree is full, start one which is a level deeper
+        return addIntermediateNodes(root, path.size());
+    }
+
+    /**
+     * Adds a chain of empty intermediate nodes below the given node, and returns the last one.
+     */
+    private COSDictionary addIntermediateNodes(COSDictionary parent, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            COSDictionary node = new COSDictionary();
+            node.setItem(COSName.TYPE, COSName.PAGES);
+            node.setItem(COSName.KIDS, new COSArray());
+            node.setItem(COSName.COUNT, COSInteger.ZERO);
+            node.setItem(COSName.PARENT, parent);
+            ((COSArray)parent.getDictionaryObject(COSName.KIDS)).add(node);
+            parent = node;
+        }
+        return parent;
+    }
+
+    /**
+     * Returns true if the node is an intermediate node without inheritable attributes, so that
+     * pages added to it don't inherit anything the root doesn't give them.
+     */
+    private boolean isIntermediateNode(COSDictionary node)
+    {
+        if (node == root || !isPageTreeNode(node))
+        {
+            return false;
+        }
+        int keys = 0;
+        for (COSName key : new COSName[] { COSName.TYPE, COSName.KIDS, COSName.COUNT, COSName.PARENT })
+        {
+            if (node.containsKey(key))
+            {
+                keys++;
+            }
+        }
+        return node.size() == keys;
+    }
+
+    private static int getKidCount(COSDictionary node)
+    {
+        COSArray kids = (COSArray)node.getDictionaryObject(COSName.KIDS);
+        return kids == null ? 0 : kids.size();
     }
 }
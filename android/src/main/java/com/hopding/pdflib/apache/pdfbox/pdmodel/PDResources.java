@@ -29,6 +29,7 @@ import com.hopding.pdflib.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphic
 public final class PDResources implements COSObjectable
 {
 	private final COSDictionary resources;
+	private final ResourceCache cache;
 
 	/**
 	 * Constructor for embedding.
@@ -36,6 +37,7 @@ public final class PDResources implements COSObjectable
 	public PDResources()
 	{
 		resources = new COSDictionary();
+		cache = null;
 	}
 
 	/**
@@ -47,12 +49,25 @@ public final class PDResources implements COSObjectable
 	//       also it should probably take a COSBase so that it is indirect-object aware.
 	//       It might also want to have some context, e.g. knowing what the parent of the resources is?
 	public PDResources(COSDictionary resourceDictionary)
+	{
+		this(resourceDictionary, null);
+	}
+
+	/**
+	 * Constructor for reading, which looks up the fonts and XObjects which are indirect objects
+	 * in the given cache before creating them.
+	 * 
+	 * @param resourceDictionary The cos dictionary for this resource.
+	 * @param cache The resource cache of the document, or null.
+	 */
+	public PDResources(COSDictionary resourceDictionary, ResourceCache cache)
 	{
 		if (resourceDictionary == null)
 		{
 			throw new IllegalArgumentException("resourceDictionary is null");
 		}
 		resources = resourceDictionary;
+		this.cache = cache;
 	}
 
 	/**
@@ -63,17 +78,40 @@ public final class PDResources implements COSObjectable
 		return resources;
 	}
 
+	/**
+	 * Returns the resource cache used by these resources, or null.
+	 */
+	public ResourceCache getResourceCache()
+	{
+		return cache;
+	}
+
 	/**
 	 * Returns the font resource with the given name, or null if none exists.
 	 */
 	public PDFont getFont(COSName name) throws IOException
 	{
+		COSObject indirect = getCachable(COSName.FONT, name);
+		if (indirect != null)
+		{
+			PDFont cached = cache.getFont(indirect);
+			if (cached != null)
+			{
+				return cached;
+			}
+		}
+
 		COSDictionary dict = (COSDictionary)get(COSName.FONT, name);
 		if (dict == null)
 		{
 			return null;
 		}
-		return PDFontFactory.createFont(dict);
+		PDFont font = PDFontFactory.createFont(dict);
+		if (indirect != null)
+		{
+			cache.put(indirect, font);
+		}
+		return font;
 	}
 
 	/**
@@ -159,7 +197,18 @@ public final class PDResources implements COSObjectable
 	 */
 	public PDXObject getXObject(COSName name) throws IOException
 	{
+		COSObject indirect = getCachable(COSName.XOBJECT, name);
+		if (indirect != null)
+		{
+			PDXObject cached = cache.getXObject(indirect);
+			if (cached != null)
+			{
+				return cached;
+			}
+		}
+
 		COSBase value = get(COSName.XOBJECT, name);
+		PDXObject xobject;
 		if (value == null)
 		{
 			return null;
@@ -170,12 +219,60 @@ public final class PDResources implements COSObjectable
 			// add the object number to create an unique identifier
 			String id = name.getName();
 			id += "#" + object.getObjectNumber();
-			return PDXObject.createXObject(object.getObject(), id, this);
+			xobject = PDXObject.createXObject(object.getObject(), id, this);
 		}
 		else
 		{
-			return PDXObject.createXObject(value, name.getName(), this);
+			xobject = PDXObject.createXObject(value, name.getName(), this);
+		}
+		// the value is already resolved, whether it is shared is told by the indirect object
+		if (indirect != null && xobject != null && !usesColorSpaceResources(xobject))
+		{
+			cache.put(indirect, xobject);
+		}
+		return xobject;
+	}
+
+	/**
+	 * Returns true if the given XObject is an image whose color space is looked up in these
+	 * resources, so that the same image may have another color space in other resources.
+	 */
+	private boolean usesColorSpaceResources(PDXObject xobject)
+	{
+		if (!(xobject instanceof PDImageXObject))
+		{
+			return false;
+		}
+		COSBase colorSpace = xobject.getCOSStream().getDictionaryObject(COSName.COLORSPACE);
+		if (!(colorSpace instanceof COSName))
+		{
+			return false;
+		}
+		return hasColorSpace((COSName)colorSpace) || hasColorSpace(COSName.DEFAULT_CMYK) ||
+				hasColorSpace(COSName.DEFAULT_RGB) || hasColorSpace(COSName.DEFAULT_GRAY);
+	}
+
+	/**
+	 * Returns the indirect object of the resource with the given name and kind, or null if it
+	 * isn't an indirect object or there is no cache.
+	 */
+	private COSObject getCachable(COSName kind, COSName name)
+	{
+		if (cache == null)
+		{
+			return null;
+		}
+		COSDictionary dict = (COSDictionary)resources.getDictionaryObject(kind);
+		if (dict == null)
+		{
+			return null;
+		}
+		COSBase item = dict.getItem(name);
+		if (item instanceof COSObject)
+		{
+			return (COSObject)item;
 		}
+		return null;
 	}
 
 	/**
@@ -0,0 +1,168 @@
+package com.hopding.pdflib.apache.pdfbox.pdmodel;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.hopding.pdflib.apache.pdfbox.cos.COSBase;
+import com.hopding.pdflib.apache.pdfbox.cos.COSObject;
+import com.hopding.pdflib.apache.pdfbox.cos.COSObjectKey;
+import com.hopding.pdflib.apache.pdfbox.pdmodel.font.PDFont;
+import com.hopding.pdflib.apache.pdfbox.pdmodel.graphics.PDXObject;
+
+/**
+ * A cache of the fonts and XObjects of a document which are indirect objects, keyed by their
+ * object key, so that resources shared by several pages or forms are only created once.
+ *
+ * Object keys aren't unique within a document, pages imported from other documents keep the
+ * objects and numbers of their source. An entry is therefore only used for the object it was
+ * created from.
+ *
+ * The entries are softly referenced, the garbage collector drops them when memory runs low and
+ * they are created again on their next use. The cache can be used from several threads.
+ *
+ * @see PDDocument#getResourceCache()
+ */
+public final class ResourceCache
+{
+	private final Map<COSObjectKey, Entry<PDFont>> fonts =
+			new HashMap<COSObjectKey, Entry<PDFont>>();
+	private final Map<COSObjectKey, Entry<PDXObject>> xobjects =
+			new HashMap<COSObjectKey, Entry<PDXObject>>();
+
+	// the entries cleared by the garbage collector, removed from their map on the next put
+	private final ReferenceQueue<Object> clearedEntries = new ReferenceQueue<Object>();
+
+	/**
+	 * Returns the key of the given indirect object, or null if it has no object number yet
+	 * and can't be told apart from other new objects.
+	 */
+	private static COSObjectKey getKey(COSObject indirect)
+	{
+		if (indirect.getObjectNumber() <= 0)
+		{
+			return null;
+		}
+		return new COSObjectKey(indirect);
+	}
+
+	/**
+	 * Returns the font created for the given indirect object, or null.
+	 *
+	 * @param indirect The indirect font dictionary.
+	 * @return The font, or null if it isn't cached.
+	 */
+	public synchronized PDFont getFont(COSObject indirect)
+	{
+		return get(fonts, indirect);
+	}
+
+	/**
+	 * Caches the font created for the given indirect object.
+	 *
+	 * @param indirect The indirect font dictionary.
+	 * @param font The font.
+	 */
+	public synchronized void put(COSObject indirect, PDFont font)
+	{
+		put(fonts, indirect, font);
+	}
+
+	/**
+	 * Returns the XObject created for the given indirect object, or null.
+	 *
+	 * @param indirect The indirect XObject stream.
+	 * @return The XObject, or null if it isn't cached.
+	 */
+	public synchronized PDXObject getXObject(COSObject indirect)
+	{
+		return get(xobjects, indirect);
+	}
+
+	/**
+	 * Caches the XObject created for the given indirect object.
+	 *
+	 * @param indirect The indirect XObject stream.
+	 * @param xobject The XObject.
+	 */
+	public synchronized void put(COSObject indirect, PDXObject xobject)
+	{
+		put(xobjects, indirect, xobject);
+	}
+
+	/**
+	 * Removes all entries, e.g. after resources have been replaced.
+	 */
+	public synchronized void clear()
+	{
+		fonts.clear();
+		xobjects.clear();
+		while (clearedEntries.poll() != null)
+		{
+			// the maps are empty already
+		}
+	}
+
+	private static <T> T get(Map<COSObjectKey, Entry<T>> map, COSObject indirect)
+	{
+		COSObjectKey key = getKey(indirect);
+		if (key == null)
+		{
+			return null;
+		}
+		Entry<T> entry = map.get(key);
+		// another object with the same key, e.g. of a page imported from another document
+		if (entry == null || entry.base != indirect.getObject())
+		{
+			return null;
+		}
+		return entry.get();
+	}
+
+	private <T> void put(Map<COSObjectKey, Entry<T>> map, COSObject indirect, T value)
+	{
+		COSObjectKey key = getKey(indirect);
+		if (key == null)
+		{
+			return;
+		}
+		removeClearedEntries();
+		map.put(key, new Entry<T>(key, indirect.getObject(), value, map, clearedEntries));
+	}
+
+	private void removeClearedEntries()
+	{
+		Reference<?> reference;
+		while ((reference = clearedEntries.poll()) != null)
+		{
+			Entry<?> entry = (Entry<?>) reference;
+			// the key may have been cached again since
+			if (entry.map.get(entry.key) == entry)
+			{
+				entry.map.remove(entry.key);
+			}
+		}
+	}
+
+	/**
+	 * A softly referenced value and the object it was created from, which knows its key and
+	 * map so that it can be removed once the garbage collector has cleared it.
+	 */
+	private static final class Entry<T> extends SoftReference<T>
+	{
+		private final COSObjectKey key;
+		private final COSBase base;
+		private final Map<COSObjectKey, ?> map;
+
+		Entry(COSObjectKey key, COSBase base, T value, Map<COSObjectKey, ?> map,
+				ReferenceQueue<Object> queue)
+		{
+			super(value, queue);
+			this.key = key;
+			this.base = base;
+			this.map = map;
+		}
+	}
+}
@@ -127,7 +127,11 @@ public class PDStream implements COSObjectable
 
     /**
      * If there are not compression filters on the current stream then this will
-     * add a compression filter, flate compression for example.
+     * add a compression filter, flate compression for example. The data is compressed
+     * with the compression settings of the stream, which are the ones of the document
+     * for streams created by it.
+     *
+     * @see COSStream#setCompressionOptions(com.hopding.pdflib.apache.pdfbox.filter.CompressionOptions)
      */
     public void addCompression()
     {
@@ -2,21 +2,48 @@ package com.hopding.pdflib.apache.pdfbox.pdmodel.font;
 
 import com.hopding.pdflib.apache.fontbox.cmap.CMap;
 import com.hopding.pdflib.apache.fontbox.cmap.CMapParser;
+import com.hopding.pdflib.apache.pdfbox.io.IOUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Collections;
+import java.lang.ref.SoftReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * CMap resource loader and cache.
+ *
+ * Predefined CMaps are parsed once and shared by all fonts, also when another CMap uses them.
+ * Embedded CMaps, e.g. the ToUnicode CMaps of subsets of the same font, are shared by all fonts
+ * of all documents embedding the same bytes.
  */
 final class CMapManager
 {
-    protected static Map<String, CMap> cMapCache =
-            Collections.synchronizedMap(new HashMap<String, CMap>());
-    
+    // guarded by itself, predefined CMaps are parsed while holding the lock so that concurrent
+    // lookups of a CMap wait for the first one instead of parsing it again
+    protected static Map<String, CMap> cMapCache = new HashMap<String, CMap>();
+
+    private static final int MAX_EMBEDDED_CMAPS = 64;
+
+    // the least recently used embedded CMaps by the digest of their bytes, softly referenced as
+    // CJK CMaps can be large; guarded by itself
+    private static final Map<Digest, SoftReference<CMap>> embeddedCMapCache =
+            new LinkedHashMap<Digest, SoftReference<CMap>>(16, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Digest, SoftReference<CMap>> eldest)
+        {
+            return size() > MAX_EMBEDDED_CMAPS;
+        }
+    };
+
     private CMapManager()
     {
     }
@@ -28,22 +55,28 @@ final class CMapManager
      */
     public static CMap getPredefinedCMap(String cMapName) throws IOException
     {
-        CMap cmap = cMapCache.get(cMapName);
-        if (cmap != null)
+        synchronized (cMapCache)
         {
-            return cmap;
-        }
+            CMap cmap = cMapCache.get(cMapName);
+            if (cmap != null)
+            {
+                return cmap;
+            }
 
-        CMapParser parser = new CMapParser();
-        CMap targetCmap = parser.parsePredefined(cMapName);
+            CMap targetCmap = new SharingCMapParser().parsePredefined(cMapName);
 
-        // limit the cache to predefined CMaps
-        cMapCache.put(targetCmap.getName(), targetCmap);
-        return targetCmap;
+            // limit the cache to predefined CMaps
+            cMapCache.put(cMapName, targetCmap);
+            if (targetCmap.getName() != null)
+            {
+                cMapCache.put(targetCmap.getName(), targetCmap);
+            }
+            return targetCmap;
+        }
     }
 
     /**
-     * Parse the given CMap.
+     * Parse the given CMap, or return the CMap parsed before from the same bytes.
      *
      * @param cMapStream the CMap to be read
      * @return the parsed CMap
@@ -53,9 +86,83 @@ final class CMapManager
         CMap targetCmap = null;
         if (cMapStream != null)
         {
-            CMapParser parser = new CMapParser();
-            targetCmap = parser.parse(cMapStream);
+            byte[] bytes = IOUtils.toByteArray(cMapStream);
+            Digest digest = Digest.of(bytes);
+            if (digest != null)
+            {
+                synchronized (embeddedCMapCache)
+                {
+                    SoftReference<CMap> cached = embeddedCMapCache.get(digest);
+                    targetCmap = cached != null ? cached.get() : null;
+                }
+            }
+            if (targetCmap == null)
+            {
+                targetCmap = new SharingCMapParser().parse(new ByteArrayInputStream(bytes));
+                if (digest != null)
+                {
+                    synchronized (embeddedCMapCache)
+                    {
+                        embeddedCMapCache.put(digest, new SoftReference<CMap>(targetCmap));
+                    }
+                }
+            }
         }
         return targetCmap;
     }
+
+    /**
+     * A parser which takes the CMaps used by the parsed ones from the cache.
+     */
+    private static final class SharingCMapParser extends CMapParser
+    {
+        @Override
+        protected CMap getUseCMap(String name) throws IOException
+        {
+            return getPredefinedCMap(name);
+        }
+    }
+
+    /**
+     * The SHA-1 digest and the length of the bytes of an embedded CMap.
+     */
+    private static final class Digest
+    {
+        private final byte[] hash;
+        private final int length;
+
+        private Digest(byte[] hash, int length)
+        {
+            this.hash = hash;
+            this.length = length;
+        }
+
+        /**
+         * Returns the digest of the given bytes, or null if SHA-1 isn't available.
+         */
+        static Digest of(byte[] bytes)
+        {
+            try
+            {
+                return new Digest(MessageDigest.getInstance("SHA-1").digest(bytes), bytes.length);
+            }
+            catch (NoSuchAlgorithmException e)
+            {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o instanceof Digest && ((Digest) o).length == length
+                    && Arrays.equals(((Digest) o).hash, hash);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Arrays.hashCode(hash);
+        }
+    }
 }
@@ -1,9 +1,9 @@
 package com.hopding.pdflib.apache.pdfbox.pdmodel.font;
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.hopding.pdflib.apache.fontbox.cff.CFFCIDFont;
 import com.hopding.pdflib.apache.fontbox.cff.CFFFont;
@@ -32,7 +32,7 @@ public class PDCIDFontType0 extends PDCIDFont
 	private final CFFCIDFont cidFont;  // Top DICT that uses CIDFont operators
 	private final CFFType1Font t1Font; // Top DICT that does not use CIDFont operators
 
-	private final Map<Integer, Float> glyphHeights = new HashMap<Integer, Float>();
+	private final Map<Integer, Float> glyphHeights = new ConcurrentHashMap<Integer, Float>();
 	private final boolean isEmbedded;
 	private final boolean isDamaged;
 
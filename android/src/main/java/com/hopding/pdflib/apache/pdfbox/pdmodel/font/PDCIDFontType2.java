@@ -44,6 +44,19 @@ public class PDCIDFontType2 extends PDCIDFont
 	 * @param fontDictionary The font dictionary according to the PDF specification.
 	 */
 	public PDCIDFontType2(COSDictionary fontDictionary, PDType0Font parent) throws IOException
+	{
+		this(fontDictionary, parent, null);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param fontDictionary The font dictionary according to the PDF specification.
+	 * @param parent The parent Type 0 font.
+	 * @param trueTypeFont The already parsed font program, or null to read the embedded one.
+	 */
+	public PDCIDFontType2(COSDictionary fontDictionary, PDType0Font parent, TrueTypeFont trueTypeFont)
+			throws IOException
 	{
 		super(fontDictionary, parent);
 
@@ -56,9 +69,9 @@ public class PDCIDFontType2 extends PDCIDFont
 			ff2Stream = fd.getFontFile();
 		}
 
-		TrueTypeFont ttfFont = null;
+		TrueTypeFont ttfFont = trueTypeFont;
 		boolean fontIsDamaged = false;
-		if (ff2Stream != null)
+		if (ttfFont == null && ff2Stream != null)
 		{
 			try
 			{
@@ -77,7 +90,7 @@ public class PDCIDFontType2 extends PDCIDFont
 				fontIsDamaged = true;
 			}
 		}
-		else if (ff3Stream != null)
+		else if (ttfFont == null && ff3Stream != null)
 		{
 			try
 			{
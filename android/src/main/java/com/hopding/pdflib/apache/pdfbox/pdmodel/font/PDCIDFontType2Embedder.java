@@ -8,6 +8,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.hopding.pdflib.apache.fontbox.ttf.TrueTypeFont;
 import com.hopding.pdflib.apache.pdfbox.cos.COSArray;
 import com.hopding.pdflib.apache.pdfbox.cos.COSDictionary;
 import com.hopding.pdflib.apache.pdfbox.cos.COSInteger;
@@ -46,20 +47,61 @@ final class PDCIDFontType2Embedder extends TrueTypeEmbedder
         this.document = document;
         this.dict = dict;
         this.parent = parent;
+        this.cidFont = buildType0Font();
+        this.gidToUni = buildGIDToUnicodeMap();
 
+        // ToUnicode CMap
+        buildToUnicodeCMap(null);
+    }
+
+    /**
+     * Creates a new TrueType font embedder for the given, already parsed, TTF as a
+     * PDCIDFontType2.
+     *
+     * @param document parent document
+     * @param dict font dictionary
+     * @param ttf parsed TrueType font
+     * @param parent parent Type 0 font
+     * @throws IOException if the TTF could not be read
+     */
+    PDCIDFontType2Embedder(PDDocument document, COSDictionary dict, TrueTypeFont ttf,
+                           boolean embedSubset, PDType0Font parent) throws IOException
+    {
+        super(document, dict, ttf, embedSubset);
+        this.document = document;
+        this.dict = dict;
+        this.parent = parent;
+        this.cidFont = buildType0Font();
+        this.gidToUni = buildGIDToUnicodeMap();
+
+        // ToUnicode CMap
+        buildToUnicodeCMap(null);
+    }
+
+    /**
+     * Populates the parent Type 0 font dictionary and returns its descendant CIDFont.
+     */
+    private COSDictionary buildType0Font() throws IOException
+    {
         // parent Type 0 font
         dict.setItem(COSName.SUBTYPE, COSName.TYPE0);
         dict.setName(COSName.BASE_FONT, fontDescriptor.getFontName());
         dict.setItem(COSName.ENCODING, COSName.IDENTITY_H); // CID = GID
 
         // descendant CIDFont
-        cidFont = createCIDFont();
+        COSDictionary cidFont = createCIDFont();
         COSArray descendantFonts = new COSArray();
         descendantFonts.add(cidFont);
         dict.setItem(COSName.DESCENDANT_FONTS, descendantFonts);
+        return cidFont;
+    }
 
-        // build GID -> Unicode map
-        gidToUni = new HashMap<Integer, Integer>();
+    /**
+     * Builds the GID -> Unicode map.
+     */
+    private Map<Integer, Integer> buildGIDToUnicodeMap() throws IOException
+    {
+        Map<Integer, Integer> gidToUni = new HashMap<Integer, Integer>();
         for (int gid = 1, max = ttf.getMaximumProfile().getNumGlyphs(); gid <= max; gid++)
         {
             // skip composite glyph components that have no code point
@@ -69,9 +111,7 @@ final class PDCIDFontType2Embedder extends TrueTypeEmbedder
                 gidToUni.put(gid, codePoint); // CID = GID
             }
         }
-
-        // ToUnicode CMap
-        buildToUnicodeCMap(null);
+        return gidToUni;
     }
 
     /**
@@ -403,6 +443,6 @@ final class PDCIDFontType2Embedder extends TrueTypeEmbedder
      */
     public PDCIDFont getCIDFont() throws IOException
     {
-        return PDFontFactory.createDescendantFont(cidFont, parent);
+        return new PDCIDFontType2(cidFont, parent, ttf);
     }
 }
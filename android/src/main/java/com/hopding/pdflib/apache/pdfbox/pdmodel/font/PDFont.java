@@ -4,6 +4,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -36,10 +37,23 @@ public abstract class PDFont implements COSObjectable, PDFontLike
 
 	protected final COSDictionary dict;
 	private final CMap toUnicodeCMap;
-	private final FontMetrics afmStandard14; // AFM for standard 14 fonts
-	private PDFontDescriptor fontDescriptor;
+	// the name of a standard 14 font whose AFM and font descriptor are loaded on first use, so
+	// that the PDType1Font constants don't parse all AFMs when the class is loaded
+	private final String standard14Name;
+	private volatile FontMetrics afmStandard14; // AFM for standard 14 fonts
+	private volatile PDFontDescriptor fontDescriptor;
 
 	private List<Integer> widths;
+	// the Widths of the font dictionary from FirstChar to LastChar, read on first use, and
+	// whether they override the widths of the font program; the array is written last, so that
+	// fonts shared by a document's ResourceCache can be read from several threads
+	private volatile float[] dictionaryWidths;
+	private int firstChar;
+	private int lastChar;
+	private boolean overridesWidths;
+	// widths of the code points measured by getStringWidth, 256 code points per page, guarded by
+	// this
+	private float[][] codePointWidths = new float[0][];
 	private float avgFontWidth;
 	private float fontWidthOfSpace = -1f;
 
@@ -51,6 +65,7 @@ public abstract class PDFont implements COSObjectable, PDFontLike
 		dict = new COSDictionary();
 		dict.setItem(COSName.TYPE, COSName.FONT);
 		toUnicodeCMap = null;
+		standard14Name = null;
 		fontDescriptor = null;
 		afmStandard14 = null;
 	}
@@ -61,12 +76,11 @@ public abstract class PDFont implements COSObjectable, PDFontLike
 	{
 		dict = new COSDictionary();
 		toUnicodeCMap = null;
-		afmStandard14 = Standard14Fonts.getAFM(baseFont);
-		if (afmStandard14 == null)
+		if (!Standard14Fonts.containsName(baseFont))
 		{
 			throw new IllegalArgumentException("No AFM for font " + baseFont);
 		}
-		fontDescriptor = PDType1FontEmbedder.buildFontDescriptor(afmStandard14);
+		standard14Name = baseFont;
 	}
 
 	/**
@@ -77,6 +91,7 @@ public abstract class PDFont implements COSObjectable, PDFontLike
 	protected PDFont(COSDictionary fontDictionary) throws IOException
 	{
 		dict = fontDictionary;
+		standard14Name = null;
 
 		// standard 14 fonts use an AFM
 		afmStandard14 = Standard14Fonts.getAFM(getName()); // may be null (it usually is)
@@ -118,13 +133,33 @@ public abstract class PDFont implements COSObjectable, PDFontLike
 	 */
 	protected final FontMetrics getStandard14AFM()
 	{
-		return afmStandard14;
+		FontMetrics afm = afmStandard14;
+		if (afm == null && standard14Name != null)
+		{
+			// Standard14Fonts parses each AFM once, so racing threads get the same metrics
+			afm = Standard14Fonts.getAFM(standard14Name);
+			afmStandard14 = afm;
+		}
+		return afm;
 	}
 
 	@Override
 	public PDFontDescriptor getFontDescriptor()
 	{
-		return fontDescriptor;
+		PDFontDescriptor fd = fontDescriptor;
+		if (fd == null && standard14Name != null)
+		{
+			synchronized (this)
+			{
+				fd = fontDescriptor;
+				if (fd == null)
+				{
+					fd = PDType1FontEmbedder.buildFontDescriptor(getStandard14AFM());
+					fontDescriptor = fd;
+				}
+			}
+		}
+		return fd;
 	}
 
 	/**
@@ -202,13 +237,15 @@ public abstract class PDFont implements COSObjectable, PDFontLike
 		// embedded", however PDFBOX-427 shows that it also applies to embedded fonts.
 
 		// Type1, Type1C, Type3
-		if (dict.containsKey(COSName.WIDTHS) || dict.containsKey(COSName.MISSING_WIDTH))
+		if (dictionaryWidths == null)
 		{
-			int firstChar = dict.getInt(COSName.FIRST_CHAR, -1);
-			int lastChar = dict.getInt(COSName.LAST_CHAR, -1);
-			if (getWidths().size() > 0 && code >= firstChar && code <= lastChar)
+			readDictionaryWidths();
+		}
+		if (overridesWidths)
+		{
+			if (dictionaryWidths.length > 0 && code >= firstChar && code <= lastChar)
 			{
-				return getWidths().get(code - firstChar).floatValue();
+				return dictionaryWidths[code - firstChar];
 			}
 
 			PDFontDescriptor fd = getFontDescriptor();
@@ -222,6 +259,24 @@ public abstract class PDFont implements COSObjectable, PDFontLike
 		return getWidthFromFont(code);
 	}
 
+	/**
+	 * Reads the widths of the font dictionary into an array, so that looking up a width doesn't
+	 * have to go through the dictionary again.
+	 */
+	private void readDictionaryWidths()
+	{
+		overridesWidths = dict.containsKey(COSName.WIDTHS) || dict.containsKey(COSName.MISSING_WIDTH);
+		firstChar = dict.getInt(COSName.FIRST_CHAR, -1);
+		lastChar = dict.getInt(COSName.LAST_CHAR, -1);
+		List<Integer> list = getWidths();
+		float[] array = new float[list.size()];
+		for (int i = 0; i < array.length; i++)
+		{
+			array[i] = list.get(i);
+		}
+		dictionaryWidths = array;
+	}
+
 	//    @Override TODO
 	//    public abstract float getWidthFromFont(int code) throws IOException;
 
@@ -273,18 +328,53 @@ public abstract class PDFont implements COSObjectable, PDFontLike
 	 * @return The width of the string in 1/1000 units of text space
 	 * @throws IOException If there is an error getting the width information.
 	 */
-	public float getStringWidth(String text) throws IOException
+	public synchronized float getStringWidth(String text) throws IOException
 	{
-		byte[] bytes = encode(text);
-		ByteArrayInputStream in = new ByteArrayInputStream(bytes);
-		
+		float width = 0;
+		for (int offset = 0; offset < text.length(); )
+		{
+			int codePoint = text.codePointAt(offset);
+			width += getCodePointWidth(codePoint);
+			offset += Character.charCount(codePoint);
+		}
+		return width;
+	}
+
+	/**
+	 * Returns the width of the code the given code point is encoded to. The width is cached, so
+	 * that measuring text only encodes and reads each code point once.
+	 *
+	 * @param codePoint Unicode code point
+	 * @return The width in 1/1000 units of text space
+	 * @throws IOException If the code point could not be encoded.
+	 */
+	private float getCodePointWidth(int codePoint) throws IOException
+	{
+		int page = codePoint >>> 8;
+		float[] pageWidths = page < codePointWidths.length ? codePointWidths[page] : null;
+		if (pageWidths != null && !Float.isNaN(pageWidths[codePoint & 0xFF]))
+		{
+			return pageWidths[codePoint & 0xFF];
+		}
+
+		ByteArrayInputStream in = new ByteArrayInputStream(encode(codePoint));
 		float width = 0;
 		while (in.available() > 0)
 		{
-			int code = readCode(in);
-			width += getWidth(code);
+			width += getWidth(readCode(in));
 		}
-		
+
+		if (pageWidths == null)
+		{
+			if (page >= codePointWidths.length)
+			{
+				codePointWidths = Arrays.copyOf(codePointWidths, page + 1);
+			}
+			pageWidths = new float[256];
+			Arrays.fill(pageWidths, Float.NaN);
+			codePointWidths[page] = pageWidths;
+		}
+		pageWidths[codePoint & 0xFF] = width;
 		return width;
 	}
 
@@ -82,7 +82,8 @@ public class PDTrueTypeFont extends PDSimpleFont
 	private CmapSubtable cmapWinUnicode = null;
 	private CmapSubtable cmapWinSymbol = null;
 	private CmapSubtable cmapMacRoman = null;
-	private boolean cmapInitialized = false;
+	// written after the subtables, which are read from several threads once it is set
+	private volatile boolean cmapInitialized = false;
 
 	private final TrueTypeFont ttf;
 	private final boolean isEmbedded;
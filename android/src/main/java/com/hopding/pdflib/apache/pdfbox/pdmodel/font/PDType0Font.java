@@ -6,6 +6,7 @@ import java.io.IOException;
 import java.io.InputStream;
 
 import com.hopding.pdflib.apache.fontbox.cmap.CMap;
+import com.hopding.pdflib.apache.fontbox.ttf.TrueTypeFont;
 import com.hopding.pdflib.apache.fontbox.util.BoundingBox;
 import com.hopding.pdflib.apache.pdfbox.cos.COSArray;
 import com.hopding.pdflib.apache.pdfbox.cos.COSBase;
@@ -70,6 +71,22 @@ public class PDType0Font extends PDFont
 		return new PDType0Font(doc, input, embedSubset);
 	}
 
+	/**
+	 * Loads a parsed TTF to be embedded into a document. The parsed font is not modified, so the
+	 * same TrueTypeFont may be used to embed the font into several documents.
+	 *
+	 * @param doc The PDF document that will hold the embedded font.
+	 * @param ttf A parsed TrueType font.
+	 * @param embedSubset True if the font will be subset before embedding
+	 * @return A Type0 font with a CIDFontType2 descendant.
+	 * @throws IOException If there is an error reading the font.
+	 */
+	public static PDType0Font load(PDDocument doc, TrueTypeFont ttf, boolean embedSubset)
+			throws IOException
+	{
+		return new PDType0Font(doc, ttf, embedSubset);
+	}
+
 	/**
 	 * Constructor for reading a Type0 font from a PDF file.
 	 * 
@@ -103,6 +120,18 @@ public class PDType0Font extends PDFont
 		fetchCMapUCS2();
 	}
 
+	/**
+	 * Private. Creates a new TrueType font for embedding from a parsed font.
+	 */
+	private PDType0Font(PDDocument document, TrueTypeFont ttf, boolean embedSubset)
+			throws IOException
+	{
+		embedder = new PDCIDFontType2Embedder(document, dict, ttf, embedSubset, this);
+		descendantFont = embedder.getCIDFont();
+		readEncoding();
+		fetchCMapUCS2();
+	}
+
 	@Override
 	public void addToSubset(int codePoint)
 	{
@@ -2,9 +2,9 @@ package com.hopding.pdflib.apache.pdfbox.pdmodel.font;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.hopding.pdflib.apache.fontbox.cff.CFFParser;
 import com.hopding.pdflib.apache.fontbox.cff.CFFType1Font;
@@ -31,7 +31,7 @@ import android.util.Log;
  */
 public class PDType1CFont extends PDSimpleFont implements PDType1Equivalent
 {
-	private final Map<String, Float> glyphHeights = new HashMap<String, Float>();
+	private final Map<String, Float> glyphHeights = new ConcurrentHashMap<String, Float>();
 	private Float avgWidth = null;
 	private Matrix fontMatrix;
 	private final AffineTransform fontMatrixTransform;
@@ -66,7 +66,10 @@ public class PDType1Font extends PDSimpleFont implements PDType1Equivalent
 	public static final PDType1Font ZAPF_DINGBATS = new PDType1Font("ZapfDingbats");
 
 	private final Type1Font type1font; // embedded font
-	private final Type1Equivalent type1Equivalent; // embedded or system font for rendering
+	// embedded or system font for rendering, which standard 14 fonts look up on first use as that
+	// may search the fonts installed on the system; published by type1EquivalentResolved
+	private Type1Equivalent type1Equivalent;
+	private volatile boolean type1EquivalentResolved;
 	private final boolean isEmbedded;
 	private final boolean isDamaged;
 	private Matrix fontMatrix;
@@ -89,7 +92,6 @@ public class PDType1Font extends PDSimpleFont implements PDType1Equivalent
 
 		// todo: could load the PFB font here if we wanted to support Standard 14 embedding
 		type1font = null;
-		type1Equivalent = ExternalFonts.getType1EquivalentFont(getBaseFont());
 		isEmbedded = false;
 		isDamaged = false;
 	}
@@ -108,6 +110,7 @@ public class PDType1Font extends PDSimpleFont implements PDType1Equivalent
 		encoding = embedder.getFontEncoding();
 		type1font = embedder.getType1Font();
 		type1Equivalent = embedder.getType1Font();
+		type1EquivalentResolved = true;
 		isEmbedded = true;
 		isDamaged = false;
 	}
@@ -206,6 +209,7 @@ public class PDType1Font extends PDSimpleFont implements PDType1Equivalent
 				Log.w("PdfBoxAndroid", "Using fallback font " + type1Equivalent.getName() + " for " + getBaseFont());
 			}
 		}
+		type1EquivalentResolved = true;
 		readEncoding();
 	}
 
@@ -259,7 +263,6 @@ public class PDType1Font extends PDSimpleFont implements PDType1Equivalent
 	//    @Override TODO
 	public float getHeight(int code) throws IOException
 	{
-		String name = codeToName(code);
 		if (getStandard14AFM() != null)
 		{
 			String afmName = getEncoding().getName(code);
@@ -267,8 +270,9 @@ public class PDType1Font extends PDSimpleFont implements PDType1Equivalent
 		}
 		else
 		{
+			String name = codeToName(code);
 			RectF bounds = new RectF();
-			type1Equivalent.getPath(name).computeBounds(bounds, true);
+			getType1Equivalent().getPath(name).computeBounds(bounds, true);
 			return (float)bounds.height();
 		}
 	}
@@ -285,7 +289,7 @@ public class PDType1Font extends PDSimpleFont implements PDType1Equivalent
 		String nameInFont = getNameInFont(name);
 		Map<String, Integer> inverted = getInvertedEncoding();
 
-		if (nameInFont.equals(".notdef") || !type1Equivalent.hasGlyph(nameInFont))
+		if (nameInFont.equals(".notdef") || !getType1Equivalent().hasGlyph(nameInFont))
 		{
 			throw new IllegalArgumentException(
 					String.format("No glyph for U+%04X in font %s", unicode, getName()));
@@ -321,14 +325,14 @@ public class PDType1Font extends PDSimpleFont implements PDType1Equivalent
 	@Override
 	public float getWidthFromFont(int code) throws IOException
 	{
-		String name = codeToName(code);
 		if (getStandard14AFM() != null)
 		{
 			return getStandard14Width(code);
 		}
 		else
 		{
-			return type1Equivalent.getWidth(name);
+			String name = codeToName(code);
+			return getType1Equivalent().getWidth(name);
 		}
 	}
 
@@ -368,9 +372,9 @@ public class PDType1Font extends PDSimpleFont implements PDType1Equivalent
 		else
 		{
 			// extract from Type1 font/substitute
-			if (type1Equivalent.getEncoding() != null)
+			if (getType1Equivalent().getEncoding() != null)
 			{
-				return Type1Encoding.fromFontBox(type1Equivalent.getEncoding());
+				return Type1Encoding.fromFontBox(getType1Equivalent().getEncoding());
 			}
 			else
 			{
@@ -391,6 +395,17 @@ public class PDType1Font extends PDSimpleFont implements PDType1Equivalent
 	@Override
 	public Type1Equivalent getType1Equivalent()
 	{
+		if (!type1EquivalentResolved)
+		{
+			synchronized (this)
+			{
+				if (!type1EquivalentResolved)
+				{
+					type1Equivalent = ExternalFonts.getType1EquivalentFont(getBaseFont());
+					type1EquivalentResolved = true;
+				}
+			}
+		}
 		return type1Equivalent;
 	}
 
@@ -403,7 +418,7 @@ public class PDType1Font extends PDSimpleFont implements PDType1Equivalent
 	@Override
 	public BoundingBox getBoundingBox() throws IOException
 	{
-		return type1Equivalent.getFontBBox();
+		return getType1Equivalent().getFontBBox();
 	}
 
 	@Override
@@ -419,7 +434,7 @@ public class PDType1Font extends PDSimpleFont implements PDType1Equivalent
 	 */
 	private String getNameInFont(String name) throws IOException
 	{
-		if (isEmbedded() || type1Equivalent.hasGlyph(name))
+		if (isEmbedded() || getType1Equivalent().hasGlyph(name))
 		{
 			return name;
 		}
@@ -427,7 +442,7 @@ public class PDType1Font extends PDSimpleFont implements PDType1Equivalent
 		{
 			// try alternative name
 			String altName = ALT_NAMES.get(name);
-			if (altName != null && !name.equals(".notdef") && type1Equivalent.hasGlyph(altName))
+			if (altName != null && !name.equals(".notdef") && getType1Equivalent().hasGlyph(altName))
 			{
 				return altName;
 			}
@@ -438,7 +453,7 @@ public class PDType1Font extends PDSimpleFont implements PDType1Equivalent
 				if (unicodes != null && unicodes.length() == 1)
 				{
 					String uniName = String.format("uni%04X", unicodes.codePointAt(0));
-					if (type1Equivalent.hasGlyph(uniName))
+					if (getType1Equivalent().hasGlyph(uniName))
 					{
 						return uniName;
 					}
@@ -459,7 +474,7 @@ public class PDType1Font extends PDSimpleFont implements PDType1Equivalent
 		}
 		else
 		{
-			return type1Equivalent.getPath(name);
+			return getType1Equivalent().getPath(name);
 		}
 	}
 
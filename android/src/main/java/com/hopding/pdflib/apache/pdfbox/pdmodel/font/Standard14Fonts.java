@@ -8,6 +8,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.hopding.pdflib.apache.fontbox.afm.AFMParser;
 import com.hopding.pdflib.apache.fontbox.afm.FontMetrics;
@@ -27,72 +28,65 @@ class Standard14Fonts
 
 	private static final Set<String> STANDARD_14_NAMES = new HashSet<String>();
 	private static final Map<String, String> STANDARD_14_MAPPING = new HashMap<String, String>();
-	private static final Map<String, FontMetrics> STANDARD14_AFM_MAP;
+
+	// metrics are parsed when a font is first used, keyed by the name of the AFM file
+	private static final Map<String, FontMetrics> STANDARD14_AFM_MAP =
+			new ConcurrentHashMap<String, FontMetrics>();
 	static
 	{
-		try
-		{
-			STANDARD14_AFM_MAP = new HashMap<String, FontMetrics>();
-			addAFM("Courier-Bold");
-			addAFM("Courier-BoldOblique");
-			addAFM("Courier");
-			addAFM("Courier-Oblique");
-			addAFM("Helvetica");
-			addAFM("Helvetica-Bold");
-			addAFM("Helvetica-BoldOblique");
-			addAFM("Helvetica-Oblique");
-			addAFM("Symbol");
-			addAFM("Times-Bold");
-			addAFM("Times-BoldItalic");
-			addAFM("Times-Italic");
-			addAFM("Times-Roman");
-			addAFM("ZapfDingbats");
+		addAFM("Courier-Bold");
+		addAFM("Courier-BoldOblique");
+		addAFM("Courier");
+		addAFM("Courier-Oblique");
+		addAFM("Helvetica");
+		addAFM("Helvetica-Bold");
+		addAFM("Helvetica-BoldOblique");
+		addAFM("Helvetica-Oblique");
+		addAFM("Symbol");
+		addAFM("Times-Bold");
+		addAFM("Times-BoldItalic");
+		addAFM("Times-Italic");
+		addAFM("Times-Roman");
+		addAFM("ZapfDingbats");
 
-			// alternative names from Adobe Supplement to the ISO 32000
-			addAFM("CourierCourierNew", "Courier");
-			addAFM("CourierNew", "Courier");
-			addAFM("CourierNew,Italic", "Courier-Oblique");
-			addAFM("CourierNew,Bold", "Courier-Bold");
-			addAFM("CourierNew,BoldItalic", "Courier-BoldOblique");
-			addAFM("Arial", "Helvetica");
-			addAFM("Arial,Italic", "Helvetica-Oblique");
-			addAFM("Arial,Bold", "Helvetica-Bold");
-			addAFM("Arial,BoldItalic", "Helvetica-BoldOblique");
-			addAFM("TimesNewRoman", "Times-Roman");
-			addAFM("TimesNewRoman,Italic", "Times-Italic");
-			addAFM("TimesNewRoman,Bold", "Times-Bold");
-			addAFM("TimesNewRoman,BoldItalic", "Times-BoldItalic");
+		// alternative names from Adobe Supplement to the ISO 32000
+		addAFM("CourierCourierNew", "Courier");
+		addAFM("CourierNew", "Courier");
+		addAFM("CourierNew,Italic", "Courier-Oblique");
+		addAFM("CourierNew,Bold", "Courier-Bold");
+		addAFM("CourierNew,BoldItalic", "Courier-BoldOblique");
+		addAFM("Arial", "Helvetica");
+		addAFM("Arial,Italic", "Helvetica-Oblique");
+		addAFM("Arial,Bold", "Helvetica-Bold");
+		addAFM("Arial,BoldItalic", "Helvetica-BoldOblique");
+		addAFM("TimesNewRoman", "Times-Roman");
+		addAFM("TimesNewRoman,Italic", "Times-Italic");
+		addAFM("TimesNewRoman,Bold", "Times-Bold");
+		addAFM("TimesNewRoman,BoldItalic", "Times-BoldItalic");
 
-			// Acrobat treats these fonts as "standard 14" too (at least Acrobat preflight says so)
-			addAFM("Symbol,Italic", "Symbol");
-			addAFM("Symbol,Bold", "Symbol");
-			addAFM("Symbol,BoldItalic", "Symbol");
-			addAFM("Times", "Times-Roman");
-			addAFM("Times,Italic", "Times-Italic");
-			addAFM("Times,Bold", "Times-Bold");
-			addAFM("Times,BoldItalic", "Times-BoldItalic");
-		}
-		catch (IOException e)
-		{
-			throw new RuntimeException(e);
-		}
+		// Acrobat treats these fonts as "standard 14" too (at least Acrobat preflight says so)
+		addAFM("Symbol,Italic", "Symbol");
+		addAFM("Symbol,Bold", "Symbol");
+		addAFM("Symbol,BoldItalic", "Symbol");
+		addAFM("Times", "Times-Roman");
+		addAFM("Times,Italic", "Times-Italic");
+		addAFM("Times,Bold", "Times-Bold");
+		addAFM("Times,BoldItalic", "Times-BoldItalic");
 	}
 
-	private static void addAFM(String fontName) throws IOException
+	private static void addAFM(String fontName)
 	{
 		addAFM(fontName, fontName);
 	}
 
-	private static void addAFM(String fontName, String afmName) throws IOException
+	private static void addAFM(String fontName, String afmName)
 	{
 		STANDARD_14_NAMES.add(fontName);
 		STANDARD_14_MAPPING.put(fontName, afmName);
+	}
 
-		if (STANDARD14_AFM_MAP.containsKey(afmName))
-		{
-			STANDARD14_AFM_MAP.put(fontName, STANDARD14_AFM_MAP.get(afmName));
-		}
-
+	private static FontMetrics loadAFM(String afmName) throws IOException
+	{
 		String resourceName = "org/apache/pdfbox/resources/afm/" + afmName + ".afm";
 		InputStream afmStream;
 		if(PDFBoxResourceLoader.isReady()) {
@@ -113,8 +107,7 @@ class Standard14Fonts
 		try
 		{
 			AFMParser parser = new AFMParser(afmStream);
-			FontMetrics metric = parser.parse();
-			STANDARD14_AFM_MAP.put(fontName, metric);
+			return parser.parse();
 		}
 		finally
 		{
@@ -123,12 +116,38 @@ class Standard14Fonts
 	}
 
 	/**
-	 * Returns the AFM for the given font.
+	 * Returns the AFM for the given font, parsing it the first time it is requested.
 	 * @param baseName base name of font
 	 */
 	public static FontMetrics getAFM(String baseName)
 	{
-		return STANDARD14_AFM_MAP.get(baseName);
+		String afmName = STANDARD_14_MAPPING.get(baseName);
+		if (afmName == null)
+		{
+			return null;
+		}
+		FontMetrics metrics = STANDARD14_AFM_MAP.get(afmName);
+		if (metrics == null)
+		{
+			// only one thread parses a font, the others wait for its metrics
+			synchronized (STANDARD14_AFM_MAP)
+			{
+				metrics = STANDARD14_AFM_MAP.get(afmName);
+				if (metrics == null)
+				{
+					try
+					{
+						metrics = loadAFM(afmName);
+					}
+					catch (IOException e)
+					{
+						throw new RuntimeException(e);
+					}
+					STANDARD14_AFM_MAP.put(afmName, metrics);
+				}
+			}
+		}
+		return metrics;
 	}
 
 	/**
@@ -60,11 +60,37 @@ abstract class TrueTypeEmbedder implements Subsetter
 		cmap = ttf.getUnicodeCmap();
 			}
 
+	/**
+	 * Creates a new TrueType font for embedding from an already parsed font. The parsed font
+	 * is only read from, so it may be shared between documents.
+	 */
+	TrueTypeEmbedder(PDDocument document, COSDictionary dict, TrueTypeFont ttf,
+			boolean embedSubset) throws IOException
+	{
+		this.document = document;
+		this.embedSubset = embedSubset;
+		this.ttf = ttf;
+
+		if (!isEmbeddingPermitted(ttf))
+		{
+			throw new IOException("This font does not permit embedding");
+		}
+		fontDescriptor = createFontDescriptor(ttf);
+
+		if (!embedSubset)
+		{
+			// the whole font file is embedded here, fonts are only subset when embedSubset is set
+			fontDescriptor.setFontFile2(createFontFile2(ttf.getOriginalData()));
+		}
+		dict.setName(COSName.BASE_FONT, ttf.getName());
+
+		// choose a Unicode "cmap"
+		cmap = ttf.getUnicodeCmap();
+	}
+
 	public void buildFontFile2(InputStream ttfStream) throws IOException
 	{
-		PDStream stream = new PDStream(document, ttfStream, false);
-		stream.getStream().setInt(COSName.LENGTH1, stream.getByteArray().length);
-		stream.addCompression();
+		PDStream stream = createFontFile2(ttfStream);
 
 		// as the stream was closed within the PDStream constructor, we have to recreate it
 		InputStream input = null;
@@ -89,6 +115,17 @@ abstract class TrueTypeEmbedder implements Subsetter
 		fontDescriptor.setFontFile2(stream);
 	}
 
+	/**
+	 * Creates a compressed FontFile2 stream holding the given font program.
+	 */
+	private PDStream createFontFile2(InputStream ttfStream) throws IOException
+	{
+		PDStream stream = new PDStream(document, ttfStream, false);
+		stream.getStream().setInt(COSName.LENGTH1, stream.getByteArray().length);
+		stream.addCompression();
+		return stream;
+	}
+
 	/**
 	 * Returns true if the fsType in the OS/2 table permits embedding.
      */
@@ -5,6 +5,7 @@ import com.hopding.pdflib.apache.pdfbox.cos.COSName;
 import com.hopding.pdflib.apache.pdfbox.cos.COSStream;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDDocument;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDResources;
+import com.hopding.pdflib.apache.pdfbox.pdmodel.ResourceCache;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.common.COSObjectable;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.common.PDStream;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
@@ -50,7 +51,8 @@ public class PDXObject implements COSObjectable
         }
         if (COSName.FORM.getName().equals(subtype))
         {
-            return new PDFormXObject(new PDStream(stream), name);
+            ResourceCache cache = resources != null ? resources.getResourceCache() : null;
+            return new PDFormXObject(new PDStream(stream), name, cache);
         }
         else if (COSName.PS.getName().equals(subtype))
         {
@@ -8,6 +8,7 @@ import com.hopding.pdflib.apache.pdfbox.cos.COSName;
 import com.hopding.pdflib.apache.pdfbox.cos.COSStream;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDDocument;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDResources;
+import com.hopding.pdflib.apache.pdfbox.pdmodel.ResourceCache;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.common.PDRectangle;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.common.PDStream;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.graphics.PDXObject;
@@ -40,6 +41,9 @@ public class PDFormXObject extends PDXObject implements PDContentStream
 
 	private PDGroup group;
 
+	// shares the fonts and XObjects of the form's resources, may be null
+	private ResourceCache resourceCache;
+
 	/**
 	 * Creates a Form XObject for reading.
 	 * @param stream The XObject stream
@@ -60,6 +64,19 @@ public class PDFormXObject extends PDXObject implements PDContentStream
 		this.name = name;
 	}
 
+	/**
+	 * Creates a Form XObject for reading.
+	 * @param stream The XObject stream
+	 * @param name The name of the form XObject, to prevent recursion.
+	 * @param resourceCache The resource cache of the document, or null.
+	 */
+	public PDFormXObject(PDStream stream, String name, ResourceCache resourceCache)
+	{
+		super(stream, COSName.FORM);
+		this.name = name;
+		this.resourceCache = resourceCache;
+	}
+
 	/**
 	 * Creates a Form Image XObject for writing, in the given document.
 	 * @param document The current document
@@ -123,7 +140,7 @@ public class PDFormXObject extends PDXObject implements PDContentStream
 		COSDictionary resources = (COSDictionary) getCOSStream().getDictionaryObject(COSName.RESOURCES);
 		if (resources != null)
 		{
-			return new PDResources(resources);
+			return new PDResources(resources, resourceCache);
 		}
 		return null;
 	}
@@ -1,13 +1,19 @@
 package com.hopding.pdflib.apache.pdfbox.pdmodel.graphics.image;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
 import com.hopding.pdflib.apache.pdfbox.cos.COSName;
 import com.hopding.pdflib.apache.pdfbox.io.IOUtils;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDDocument;
+import com.hopding.pdflib.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
 
@@ -42,6 +48,15 @@ public final class JPEGFactory extends ImageFactory
 		// copy stream
 		ByteArrayInputStream byteStream = new ByteArrayInputStream(IOUtils.toByteArray(stream));
 
+		// read the image dimensions from the SOF marker
+		JPEGInfo info = readJPEGInfo(byteStream);
+		byteStream.reset();
+		if (info != null)
+		{
+			return new PDImageXObject(document, byteStream, COSName.DCT_DECODE,
+					info.width, info.height, info.bitsPerComponent, info.getColorSpace());
+		}
+
 		// read image
 		Bitmap awtImage = readJPEG(byteStream);
 		byteStream.reset();
@@ -61,6 +76,144 @@ public final class JPEGFactory extends ImageFactory
 		return pdImage;
 	}
 
+	/**
+	 * Creates a new JPEG Image XObject from a JPEG file.
+	 * 
+	 * Baseline and progressive gray or RGB JPEGs are embedded as they are, without being
+	 * decoded: only their markers are read and the file is streamed into the document.
+	 * Other variants, such as CMYK, 12 bit or arithmetic coded JPEGs, are decoded and
+	 * re-encoded.
+	 * @param document the document where the image will be created
+	 * @param file a JPEG file
+	 * @return a new Image XObject
+	 * 
+	 * @throws IOException if the file cannot be read
+	 */
+	public static PDImageXObject createFromFile(PDDocument document, File file)
+			throws IOException
+	{
+		JPEGInfo info;
+		InputStream input = new BufferedInputStream(new FileInputStream(file));
+		try
+		{
+			info = readJPEGInfo(input);
+		}
+		finally
+		{
+			input.close();
+		}
+
+		if (info == null)
+		{
+			// transcode
+			Bitmap image = BitmapFactory.decodeFile(file.getPath());
+			if (image == null)
+			{
+				throw new IOException("Cannot read JPEG image " + file);
+			}
+			return createFromImage(document, image);
+		}
+
+		// the PDStream closes the file once it has been copied
+		return new PDImageXObject(document, new FileInputStream(file), COSName.DCT_DECODE,
+				info.width, info.height, info.bitsPerComponent, info.getColorSpace());
+	}
+
+	/**
+	 * Reads the markers of a JPEG up to its start of frame.
+	 * 
+	 * @return the image information, or null if the JPEG cannot be embedded as it is
+	 */
+	private static JPEGInfo readJPEGInfo(InputStream stream) throws IOException
+	{
+		try
+		{
+			return readMarkers(new DataInputStream(stream));
+		}
+		catch (EOFException e)
+		{
+			// truncated or damaged, left to the decoder
+			return null;
+		}
+	}
+
+	private static JPEGInfo readMarkers(DataInputStream input) throws IOException
+	{
+		if (input.readUnsignedShort() != 0xFFD8)
+		{
+			return null;
+		}
+		while (true)
+		{
+			// markers may be preceded by any number of fill bytes
+			int marker = input.readUnsignedByte();
+			if (marker != 0xFF)
+			{
+				return null;
+			}
+			while (marker == 0xFF)
+			{
+				marker = input.readUnsignedByte();
+			}
+
+			if (marker == 0x01 || marker >= 0xD0 && marker <= 0xD7)
+			{
+				// standalone markers
+				continue;
+			}
+			if (marker == 0xD9 || marker == 0xDA)
+			{
+				// end of image or start of scan before any frame
+				return null;
+			}
+
+			int length = input.readUnsignedShort() - 2;
+			if (length < 0)
+			{
+				return null;
+			}
+			if (marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 &&
+					marker != 0xCC)
+			{
+				// SOF0: baseline, SOF1: extended sequential, SOF2: progressive, all
+				// Huffman coded. Lossless, hierarchical and arithmetic coded frames are
+				// left to the decoder.
+				if (marker > 0xC2)
+				{
+					return null;
+				}
+				JPEGInfo info = new JPEGInfo();
+				info.bitsPerComponent = input.readUnsignedByte();
+				info.height = input.readUnsignedShort();
+				info.width = input.readUnsignedShort();
+				info.components = input.readUnsignedByte();
+				if (info.bitsPerComponent != 8 || info.width == 0 || info.height == 0 ||
+						info.components != 1 && info.components != 3)
+				{
+					// 12 bit, height defined by a DNL marker, or CMYK which is usually
+					// stored inverted by Adobe applications
+					return null;
+				}
+				return info;
+			}
+			input.skipBytes(length);
+		}
+	}
+
+	// dimensions and sample layout of a JPEG, read from its SOF marker
+	private static final class JPEGInfo
+	{
+		int width;
+		int height;
+		int components;
+		int bitsPerComponent;
+
+		PDColorSpace getColorSpace()
+		{
+			return components == 1 ? PDDeviceGray.INSTANCE : PDDeviceRGB.INSTANCE;
+		}
+	}
+
 	private static Bitmap readJPEG(InputStream stream) throws IOException
 	{
 		return BitmapFactory.decodeStream(stream);
@@ -15,23 +15,23 @@
  */
 package com.hopding.pdflib.apache.pdfbox.pdmodel.graphics.image;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 import com.hopding.pdflib.apache.pdfbox.cos.COSDictionary;
 import com.hopding.pdflib.apache.pdfbox.cos.COSName;
-import com.hopding.pdflib.apache.pdfbox.filter.Filter;
-import com.hopding.pdflib.apache.pdfbox.filter.FilterFactory;
+import com.hopding.pdflib.apache.pdfbox.filter.CompressionOptions;
+import com.hopding.pdflib.apache.pdfbox.filter.PredictorOutputStream;
+import com.hopding.pdflib.apache.pdfbox.io.IOUtils;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDDocument;
+import com.hopding.pdflib.apache.pdfbox.pdmodel.common.PDStream;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
-import com.hopding.pdflib.apache.pdfbox.pdmodel.graphics.color.PDDeviceColorSpace;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
-import com.hopding.pdflib.apache.pdfbox.util.awt.AWTColor;
 
 import android.graphics.Bitmap;
-import android.graphics.Color;
 
 /**
  * Factory for creating a PDImageXObject containing a lossless compressed image.
@@ -40,12 +40,20 @@ import android.graphics.Color;
  */
 public final class LosslessFactory
 {
+    // number of pixels read from the bitmap at a time
+    private static final int BLOCK_PIXELS = 64 * 1024;
+    private static final int BUFFER_SIZE = 16384;
+    // the PNG predictor which may differ from row to row
+    private static final int PNG_OPTIMUM = 15;
+
     private LosslessFactory()
     {
     }
     
     /**
      * Creates a new lossless encoded Image XObject from a Buffered Image.
+     * Grayscale images are embedded with a single color component and a soft mask is only
+     * added when the image is not fully opaque.
      *
      * @param document the document where the image will be created
      * @param image the buffered image to embed
@@ -55,212 +63,146 @@ public final class LosslessFactory
     public static PDImageXObject createFromImage(PDDocument document, Bitmap image)
             throws IOException
     {
-        int bpc;
-        PDDeviceColorSpace deviceColorSpace;
-
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        int height = image.getHeight();
         int width = image.getWidth();
-
-//        if ((image.getType() == BufferedImage.TYPE_BYTE_GRAY && image.getColorModel().getPixelSize() <= 8)
-//                || (image.getType() == BufferedImage.TYPE_BYTE_BINARY && image.getColorModel().getPixelSize() == 1))
-//        {
-//            MemoryCacheImageOutputStream mcios = new MemoryCacheImageOutputStream(bos);
-//
-//            // grayscale images need one color per sample
-//            bpc = image.getColorModel().getPixelSize();
-//            deviceColorSpace = PDDeviceGray.INSTANCE;
-//            for (int y = 0; y < height; ++y)
-//            {
-//                for (int x = 0; x < width; ++x)
-//                {
-//                    mcios.writeBits(image.getRGB(x, y) & 0xFF, bpc);
-//                }
-//                while (mcios.getBitOffset() != 0)
-//                {
-//                    mcios.writeBit(0);
-//                }
-//            }
-//            mcios.flush();
-//            mcios.close();
-//        }
-//        else
-//        {
-            // RGB
-            bpc = 8;
-            deviceColorSpace = PDDeviceRGB.INSTANCE;
-            for (int y = 0; y < height; ++y)
+        int height = image.getHeight();
+        int rowsPerBlock = Math.max(1, Math.min(height, BLOCK_PIXELS / Math.max(1, width)));
+        int[] pixels = new int[width * rowsPerBlock];
+
+        // first pass: find out which channels are needed, stopping as soon as all are
+        boolean isGray = true;
+        boolean hasAlpha = false;
+        boolean checkAlpha = image.hasAlpha();
+        for (int y = 0; y < height && (isGray || checkAlpha && !hasAlpha); y += rowsPerBlock)
+        {
+            int rows = Math.min(rowsPerBlock, height - y);
+            image.getPixels(pixels, 0, width, 0, y, width, rows);
+            for (int i = 0, n = width * rows; i < n; i++)
+            {
+                int pixel = pixels[i];
+                // red == green == blue
+                isGray &= ((pixel ^ pixel >>> 8) & 0xFFFF) == 0;
+                hasAlpha |= pixel >>> 24 != 0xFF;
+            }
+        }
+        hasAlpha &= checkAlpha;
+
+        // second pass: pack the samples and stream them to the Flate encoder
+        int components = isGray ? 1 : 3;
+        byte[] samples = new byte[width * rowsPerBlock * components];
+        byte[] alphaSamples = hasAlpha ? new byte[width * rowsPerBlock] : null;
+
+        PDStream imageStream = new PDStream(document);
+        PDStream alphaStream = hasAlpha ? new PDStream(document) : null;
+        CompressionOptions options = document.getCompressionOptions();
+        Deflater deflater = createDeflater(options);
+        Deflater alphaDeflater = hasAlpha ? createDeflater(options) : null;
+        OutputStream out = null;
+        OutputStream alphaOut = null;
+        try
+        {
+            out = createFlateStream(imageStream, deflater, components, width);
+            if (hasAlpha)
             {
-                for (int x = 0; x < width; ++x)
+                alphaOut = createFlateStream(alphaStream, alphaDeflater, 1, width);
+            }
+            for (int y = 0; y < height; y += rowsPerBlock)
+            {
+                int rows = Math.min(rowsPerBlock, height - y);
+                int n = width * rows;
+                image.getPixels(pixels, 0, width, 0, y, width, rows);
+                if (isGray)
+                {
+                    for (int i = 0; i < n; i++)
+                    {
+                        samples[i] = (byte) pixels[i];
+                    }
+                }
+                else
                 {
-                    AWTColor color = new AWTColor(image.getPixel(x, y));
-                    bos.write(color.getRed());
-                    bos.write(color.getGreen());
-                    bos.write(color.getBlue());
+                    for (int i = 0, j = 0; i < n; i++)
+                    {
+                        int pixel = pixels[i];
+                        samples[j++] = (byte) (pixel >> 16);
+                        samples[j++] = (byte) (pixel >> 8);
+                        samples[j++] = (byte) pixel;
+                    }
+                }
+                out.write(samples, 0, n * components);
+
+                if (hasAlpha)
+                {
+                    for (int i = 0; i < n; i++)
+                    {
+                        alphaSamples[i] = (byte) (pixels[i] >>> 24);
+                    }
+                    alphaOut.write(alphaSamples, 0, n);
                 }
             }
-//        } TODO
+            out.close();
+            out = null;
+            if (hasAlpha)
+            {
+                alphaOut.close();
+                alphaOut = null;
+            }
+        }
+        finally
+        {
+            IOUtils.closeQuietly(out);
+            IOUtils.closeQuietly(alphaOut);
+            deflater.end();
+            if (alphaDeflater != null)
+            {
+                alphaDeflater.end();
+            }
+        }
 
-        PDImageXObject pdImage = prepareImageXObject(document, bos.toByteArray(), 
-                image.getWidth(), image.getHeight(), bpc, deviceColorSpace);
+        PDColorSpace colorSpace = isGray ? PDDeviceGray.INSTANCE : PDDeviceRGB.INSTANCE;
+        PDImageXObject pdImage = new PDImageXObject(imageStream, COSName.FLATE_DECODE,
+                width, height, 8, colorSpace);
+        pdImage.getCOSStream().setItem(COSName.DECODE_PARMS, createDecodeParams(components, width));
 
         // alpha -> soft mask
-        PDImage xAlpha = createAlphaFromARGBImage(document, image);
-        if (xAlpha != null)
+        if (hasAlpha)
         {
+            PDImageXObject xAlpha = new PDImageXObject(alphaStream, COSName.FLATE_DECODE,
+                    width, height, 8, PDDeviceGray.INSTANCE);
+            xAlpha.getCOSStream().setItem(COSName.DECODE_PARMS, createDecodeParams(1, width));
             pdImage.getCOSStream().setItem(COSName.SMASK, xAlpha);
         }
 
         return pdImage;
     }
 
-    /**
-     * Creates a grayscale Flate encoded PDImageXObject from the alpha channel
-     * of an image.
-     *
-     * @param document the document where the image will be created.
-     * @param image an ARGB image.
-     *
-     * @return the alpha channel of an image as a grayscale image.
-     *
-     * @throws IOException if something goes wrong
-     */
-    private static PDImageXObject createAlphaFromARGBImage(PDDocument document, Bitmap image)
-            throws IOException
+    private static Deflater createDeflater(CompressionOptions options)
     {
-        // this implementation makes the assumption that the raster uses 
-        // SinglePixelPackedSampleModel, i.e. the values can be used 1:1 for
-        // the stream. 
-        // Sadly the type of the databuffer is TYPE_INT and not TYPE_BYTE.
-        if (!image.hasAlpha())
-        {
-            return null;
-        }
-
-        // extract the alpha information
-//        WritableRaster alphaRaster = image.getAlphaRaster();
-//        if (alphaRaster == null)
-//        {
-//            // happens sometimes (PDFBOX-2654) despite colormodel claiming to have alpha
-//            return createAlphaFromARGBImage2(document, image);
-//        }
-
-//        int[] pixels = alphaRaster.getPixels(0, 0,
-//                alphaRaster.getSampleModel().getWidth(),
-//                alphaRaster.getSampleModel().getHeight(),
-//                (int[]) null);
-        int[] pixels = null;
-        image.extractAlpha().getPixels(pixels, 0, 0, 0, 0, image.getWidth(), image.getHeight());
-        
-        
-        
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        int bpc;
-//        if (image.getTransparency() == Transparency.BITMASK)
-//        {
-//            bpc = 1;
-//            MemoryCacheImageOutputStream mcios = new MemoryCacheImageOutputStream(bos);
-//            int width = alphaRaster.getSampleModel().getWidth();
-//            int p = 0;
-//            for (int pixel : pixels)
-//            {
-//                mcios.writeBit(pixel);
-//                ++p;
-//                if (p % width == 0)
-//                {
-//                    while (mcios.getBitOffset() != 0)
-//                    {
-//                        mcios.writeBit(0);
-//                    }
-//                }
-//            }
-//            mcios.flush();
-//            mcios.close();
-//        }
-//        else
-//        {
-            bpc = 8;
-            for (int pixel : pixels)
-            {
-                bos.write(pixel);
-            }
-//        }
-
-        PDImageXObject pdImage = prepareImageXObject(document, bos.toByteArray(), 
-                image.getWidth(), image.getHeight(), bpc, PDDeviceGray.INSTANCE);
-
-        return pdImage;
+        Deflater deflater = new Deflater(options.getLevel());
+        deflater.setStrategy(options.getStrategy());
+        return deflater;
     }
 
-    // create alpha image the hard way: get the alpha through getRGB()
-    private static PDImageXObject createAlphaFromARGBImage2(PDDocument document, Bitmap bi)
-            throws IOException
+    /**
+     * Creates an output stream which Flate encodes the rows of samples written to it into the
+     * filtered data of the given stream, each row with the PNG predictor which suits it best.
+     */
+    private static OutputStream createFlateStream(PDStream stream, Deflater deflater,
+            int colors, int columns) throws IOException
     {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        int bpc;
-//        if (bi.getTransparency() == Transparency.BITMASK)
-//        {
-//            bpc = 1;
-//            MemoryCacheImageOutputStream mcios = new MemoryCacheImageOutputStream(bos);
-//            for (int y = 0, h = bi.getHeight(); y < h; ++y)
-//            {
-//                for (int x = 0, w = bi.getWidth(); x < w; ++x)
-//                {
-//                    int alpha = bi.getRGB(x, y) >>> 24;
-//                    mcios.writeBit(alpha);
-//                }
-//                while (mcios.getBitOffset() != 0)
-//                {
-//                    mcios.writeBit(0);
-//                }
-//            }
-//            mcios.flush();
-//            mcios.close();
-//        }
-//        else
-//        {
-            bpc = 8;
-            for (int y = 0, h = bi.getHeight(); y < h; ++y)
-            {
-                for (int x = 0, w = bi.getWidth(); x < w; ++x)
-                {
-                    int alpha = Color.alpha(bi.getPixel(x, y));
-                    bos.write(alpha);
-                }
-            }
-//        }
-
-        PDImageXObject pdImage = prepareImageXObject(document, bos.toByteArray(), 
-                bi.getWidth(), bi.getHeight(), bpc, PDDeviceGray.INSTANCE);
-
-        return pdImage;
-    }            
+        return new PredictorOutputStream(new DeflaterOutputStream(
+                stream.getStream().createFilteredStream(), deflater, BUFFER_SIZE),
+                PNG_OPTIMUM, colors, 8, columns);
+    }
 
     /**
-     * Create a PDImageXObject while making a decision whether not to 
-     * compress, use Flate filter only, or Flate and LZW filters.
-     * 
-     * @param document The document.
-     * @param byteArray array with data.
-     * @param width the image width
-     * @param height the image height
-     * @param bitsPerComponent the bits per component
-     * @param initColorSpace the color space
-     * @return the newly created PDImageXObject with the data compressed.
-     * @throws IOException 
+     * Creates the decode params of the PNG predictor the samples are encoded with.
      */
-    private static PDImageXObject prepareImageXObject(PDDocument document, 
-            byte [] byteArray, int width, int height, int bitsPerComponent, 
-            PDColorSpace initColorSpace) throws IOException
+    private static COSDictionary createDecodeParams(int colors, int columns)
     {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-
-        Filter filter = FilterFactory.INSTANCE.getFilter(COSName.FLATE_DECODE);
-        filter.encode(new ByteArrayInputStream(byteArray), baos, new COSDictionary(), 0);
-
-        ByteArrayInputStream filteredByteStream = new ByteArrayInputStream(baos.toByteArray());
-        return new PDImageXObject(document, filteredByteStream, COSName.FLATE_DECODE, 
-                width, height, bitsPerComponent, initColorSpace);
+        COSDictionary decodeParams = new COSDictionary();
+        decodeParams.setInt(COSName.PREDICTOR, PNG_OPTIMUM);
+        decodeParams.setInt(COSName.COLORS, colors);
+        decodeParams.setInt(COSName.BITS_PER_COMPONENT, 8);
+        decodeParams.setInt(COSName.COLUMNS, columns);
+        return decodeParams;
     }
-
 }
@@ -70,7 +70,24 @@ public final class PDImageXObject extends PDXObject implements PDImage
             COSBase cosFilter, int width, int height, int bitsPerComponent, 
             PDColorSpace initColorSpace) throws IOException
     {
-        super(new PDStream(document, filteredStream, true), COSName.IMAGE);
+        this(new PDStream(document, filteredStream, true), cosFilter, width, height,
+                bitsPerComponent, initColorSpace);
+    }
+
+    /**
+     * Creates an Image XObject using the given stream, which already holds the filtered image
+     * data.
+     * @param filteredStream a stream holding the filtered image data
+     * @param cosFilter the filter or a COSArray of filters
+     * @param width the image width
+     * @param height the image height
+     * @param bitsPerComponent the bits per component
+     * @param initColorSpace the color space
+     */
+    public PDImageXObject(PDStream filteredStream, COSBase cosFilter, int width, int height,
+            int bitsPerComponent, PDColorSpace initColorSpace)
+    {
+        super(filteredStream, COSName.IMAGE);
         getCOSStream().setItem(COSName.FILTER, cosFilter);
         resources = null;
         colorSpace = null;
@@ -375,7 +392,6 @@ public final class PDImageXObject extends PDXObject implements PDImage
     public void setColorSpace(PDColorSpace cs)
     {
         getCOSStream().setItem(COSName.COLORSPACE, cs != null ? cs.getCOSObject() : null);
-    	getCOSStream().setItem(COSName.COLORSPACE, COSName.DEVICERGB);
     }
 
     @Override
@@ -0,0 +1,162 @@
+package com.hopding.pdflib.apache.pdfbox.text;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.hopding.pdflib.apache.pdfbox.pdmodel.common.PDRectangle;
+import com.hopding.pdflib.apache.pdfbox.pdmodel.interactive.pagenavigation.PDThreadBead;
+
+/**
+ * The rectangles of the article beads of a page, read once per page and bucketed into a grid,
+ * so that finding the article division of a character doesn't read every bead's rectangle.
+ */
+final class BeadGrid
+{
+	private static final int GRID_SIZE = 16;
+	private static final int[] NO_BEADS = new int[0];
+
+	// the beads before the first null bead, the beads after it are never looked at
+	private final int beadCount;
+	private final boolean hasNullBead;
+	private final float[] lowerLeftXs;
+	private final float[] upperRightYs;
+
+	// the beads whose rectangles overlap each cell, in the order of the beads
+	private final float minX;
+	private final float minY;
+	private final float maxX;
+	private final float maxY;
+	private final float cellWidth;
+	private final float cellHeight;
+	private final int[][] cells;
+	private final float[][] rects;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param beads The thread beads of the page, which may contain null beads.
+	 */
+	BeadGrid(List<PDThreadBead> beads)
+	{
+		int count = 0;
+		while (count < beads.size() && beads.get(count) != null)
+		{
+			count++;
+		}
+		beadCount = count;
+		hasNullBead = count < beads.size();
+		lowerLeftXs = new float[count];
+		upperRightYs = new float[count];
+		rects = new float[count][];
+
+		float left = Float.POSITIVE_INFINITY;
+		float bottom = Float.POSITIVE_INFINITY;
+		float right = Float.NEGATIVE_INFINITY;
+		float top = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i < count; i++)
+		{
+			PDRectangle rect = beads.get(i).getRectangle();
+			if (rect == null)
+			{
+				// neither contains nor is right of or below any point
+				lowerLeftXs[i] = Float.NEGATIVE_INFINITY;
+				upperRightYs[i] = Float.NEGATIVE_INFINITY;
+				continue;
+			}
+			float[] r = new float[] { rect.getLowerLeftX(), rect.getLowerLeftY(),
+					rect.getUpperRightX(), rect.getUpperRightY() };
+			lowerLeftXs[i] = r[0];
+			upperRightYs[i] = r[3];
+			if (r[0] <= r[2] && r[1] <= r[3])
+			{
+				rects[i] = r;
+				left = Math.min(left, r[0]);
+				bottom = Math.min(bottom, r[1]);
+				right = Math.max(right, r[2]);
+				top = Math.max(top, r[3]);
+			}
+		}
+
+		minX = left;
+		minY = bottom;
+		maxX = right;
+		maxY = top;
+		cellWidth = (right - left) / GRID_SIZE;
+		cellHeight = (top - bottom) / GRID_SIZE;
+		cells = new int[GRID_SIZE * GRID_SIZE][];
+		Arrays.fill(cells, NO_BEADS);
+		for (int i = 0; i < count; i++)
+		{
+			float[] r = rects[i];
+			if (r == null)
+			{
+				continue;
+			}
+			int lastColumn = column(r[2]);
+			int lastRow = row(r[3]);
+			for (int column = column(r[0]); column <= lastColumn; column++)
+			{
+				for (int row = row(r[1]); row <= lastRow; row++)
+				{
+					int cell = row * GRID_SIZE + column;
+					int[] indexes = Arrays.copyOf(cells[cell], cells[cell].length + 1);
+					indexes[indexes.length - 1] = i;
+					cells[cell] = indexes;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the article division of a character at the given position, which is 2 * i + 1
+	 * for the first bead i that contains it, 0 if there is a null bead, 2 * i for the first bead
+	 * i that is right of or below it, or the given default otherwise.
+	 */
+	int getArticleDivisionIndex(float x, float y, int defaultIndex)
+	{
+		if (x >= minX && x <= maxX && y >= minY && y <= maxY)
+		{
+			for (int i : cells[row(y) * GRID_SIZE + column(x)])
+			{
+				float[] r = rects[i];
+				if (x >= r[0] && x <= r[2] && y >= r[1] && y <= r[3])
+				{
+					return i * 2 + 1;
+				}
+			}
+		}
+		if (hasNullBead)
+		{
+			return 0;
+		}
+		for (int i = 0; i < beadCount; i++)
+		{
+			if (x < lowerLeftXs[i] || y < upperRightYs[i])
+			{
+				return i * 2;
+			}
+		}
+		return defaultIndex;
+	}
+
+	// the cells of a rectangle span the cells of its corners, as the cell indexes never decrease
+	// with the coordinates
+	private int column(float x)
+	{
+		return cellIndex(x - minX, cellWidth);
+	}
+
+	private int row(float y)
+	{
+		return cellIndex(y - minY, cellHeight);
+	}
+
+	private static int cellIndex(float offset, float cellSize)
+	{
+		if (!(cellSize > 0))
+		{
+			return 0;
+		}
+		return Math.max(0, Math.min(GRID_SIZE - 1, (int) (offset / cellSize)));
+	}
+}
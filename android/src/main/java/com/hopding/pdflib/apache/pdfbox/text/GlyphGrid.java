@@ -0,0 +1,180 @@
+package com.hopding.pdflib.apache.pdfbox.text;
+
+import java.util.Arrays;
+
+/**
+ * The positions of the glyphs shown on a page, bucketed into a grid of square cells, so that
+ * glyphs with the same text drawn at nearly the same position can be found by looking at a few
+ * cells instead of all glyphs.
+ */
+final class GlyphGrid
+{
+	// cells are a few points wide, so that the tolerance of a lookup usually spans 1 or 2 of them
+	private static final float CELL_SIZE = 8;
+
+	// open addressing table from the keys of the non-empty cells to their last entry + 1
+	private long[] cellKeys = new long[256];
+	private int[] cellHeads = new int[256];
+	private int cellCount;
+
+	// the entries, chained per cell from the last one added
+	private float[] xs = new float[256];
+	private float[] ys = new float[256];
+	private String[] texts = new String[256];
+	private int[] previousInCell = new int[256];
+	private int size;
+
+	/**
+	 * Removes all glyphs.
+	 */
+	void clear()
+	{
+		Arrays.fill(cellHeads, 0);
+		Arrays.fill(texts, 0, size, null);
+		cellCount = 0;
+		size = 0;
+	}
+
+	/**
+	 * Returns true if a glyph with the given text was added with an x in [x - tolerance,
+	 * x + tolerance) and a y in [y - tolerance, y + tolerance).
+	 */
+	boolean containsNear(String text, float x, float y, float tolerance)
+	{
+		if (!(tolerance > 0) || size == 0)
+		{
+			return false;
+		}
+		float minX = x - tolerance;
+		float maxX = x + tolerance;
+		float minY = y - tolerance;
+		float maxY = y + tolerance;
+
+		long firstColumn = cell(minX);
+		long firstRow = cell(minY);
+		// counted in doubles, which can't overflow for infinite or huge coordinates
+		double columns = Math.floor(maxX / CELL_SIZE) - Math.floor(minX / CELL_SIZE) + 1;
+		double rows = Math.floor(maxY / CELL_SIZE) - Math.floor(minY / CELL_SIZE) + 1;
+		if (!(columns * rows <= size))
+		{
+			// a huge tolerance, looking at every glyph is cheaper than looking at every cell
+			for (int i = 0; i < size; i++)
+			{
+				if (matches(i, text, minX, maxX, minY, maxY))
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+
+		int hash = text.hashCode();
+		for (int column = 0; column < columns; column++)
+		{
+			for (int row = 0; row < rows; row++)
+			{
+				int slot = find(key(firstColumn + column, firstRow + row, hash));
+				if (slot < 0)
+				{
+					continue;
+				}
+				for (int i = cellHeads[slot] - 1; i >= 0; i = previousInCell[i] - 1)
+				{
+					if (matches(i, text, minX, maxX, minY, maxY))
+					{
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Adds a glyph with the given text at the given position.
+	 */
+	void add(String text, float x, float y)
+	{
+		if (size == xs.length)
+		{
+			int capacity = size * 2;
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			texts = Arrays.copyOf(texts, capacity);
+			previousInCell = Arrays.copyOf(previousInCell, capacity);
+		}
+		if (cellCount * 2 >= cellKeys.length)
+		{
+			rehash();
+		}
+		xs[size] = x;
+		ys[size] = y;
+		texts[size] = text;
+
+		long key = key(cell(x), cell(y), text.hashCode());
+		int slot = find(key);
+		if (slot < 0)
+		{
+			slot = -slot - 1;
+			cellKeys[slot] = key;
+			cellCount++;
+		}
+		previousInCell[size] = cellHeads[slot];
+		cellHeads[slot] = ++size;
+	}
+
+	// the same comparisons as the sorted sets of boxed floats used before
+	private boolean matches(int i, String text, float minX, float maxX, float minY, float maxY)
+	{
+		return Float.compare(xs[i], minX) >= 0 && Float.compare(xs[i], maxX) < 0
+				&& Float.compare(ys[i], minY) >= 0 && Float.compare(ys[i], maxY) < 0
+				&& texts[i].equals(text);
+	}
+
+	private static long cell(float coordinate)
+	{
+		return (long) Math.floor(coordinate / CELL_SIZE);
+	}
+
+	// the text is part of the key, so that a cell only holds the glyphs of one text, unless
+	// two keys collide, which only makes a cell hold more entries to compare
+	private static long key(long column, long row, int textHash)
+	{
+		return (column * 0x9E3779B97F4A7C15L + row) * 0xC2B2AE3D27D4EB4FL + textHash;
+	}
+
+	/**
+	 * Returns the slot of the given key, or -(insertion slot) - 1 if it isn't in the table.
+	 */
+	private int find(long key)
+	{
+		int mask = cellKeys.length - 1;
+		int slot = (int) (key ^ (key >>> 32)) * 0x9E3779B1 >>> 1 & mask;
+		while (cellHeads[slot] != 0)
+		{
+			if (cellKeys[slot] == key)
+			{
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -slot - 1;
+	}
+
+	private void rehash()
+	{
+		long[] oldKeys = cellKeys;
+		int[] oldHeads = cellHeads;
+		cellKeys = new long[oldKeys.length * 2];
+		cellHeads = new int[oldHeads.length * 2];
+		for (int i = 0; i < oldKeys.length; i++)
+		{
+			if (oldHeads[i] != 0)
+			{
+				int slot = -find(oldKeys[i]) - 1;
+				cellKeys[slot] = oldKeys[i];
+				cellHeads[slot] = oldHeads[i];
+			}
+		}
+	}
+}
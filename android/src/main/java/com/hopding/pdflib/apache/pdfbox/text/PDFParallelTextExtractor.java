@@ -0,0 +1,392 @@
+package com.hopding.pdflib.apache.pdfbox.text;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.hopding.pdflib.apache.pdfbox.pdmodel.PDDocument;
+import com.hopding.pdflib.apache.pdfbox.pdmodel.PDPage;
+
+/**
+ * This class will extract the text of a document on several threads. The pages are split into
+ * tasks of consecutive pages, each thread extracts the pages of the tasks it takes with its own
+ * PDFTextStripper, and the texts are joined in page order.
+ *
+ * The strippers share the document, so that each object of it is only loaded once. As every
+ * page is extracted on its own, startDocument, endDocument and processPages of the strippers are
+ * not called.
+ */
+public class PDFParallelTextExtractor
+{
+	/**
+	 * Creates the stripper of each thread, all strippers should be configured the same way.
+	 */
+	public interface StripperFactory
+	{
+		/**
+		 * Creates a new stripper.
+		 *
+		 * @return the stripper.
+		 * @throws IOException If the stripper could not be created.
+		 */
+		PDFTextStripper createStripper() throws IOException;
+	}
+
+	// enough tasks per thread that threads which finish early can take some from slower ones
+	private static final int TASKS_PER_THREAD = 4;
+
+	private final StripperFactory stripperFactory;
+	private final int threadCount;
+	private int pagesPerTask = 0;
+
+	/**
+	 * Constructor for extracting the text with default PDFTextStrippers.
+	 *
+	 * @param threadCount The number of threads.
+	 */
+	public PDFParallelTextExtractor(int threadCount)
+	{
+		this(new StripperFactory()
+		{
+			@Override
+			public PDFTextStripper createStripper() throws IOException
+			{
+				return new PDFTextStripper();
+			}
+		}, threadCount);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param stripperFactory Creates the stripper of each thread.
+	 * @param threadCount The number of threads.
+	 */
+	public PDFParallelTextExtractor(StripperFactory stripperFactory, int threadCount)
+	{
+		if (threadCount < 1)
+		{
+			throw new IllegalArgumentException("threadCount must be at least 1, got " + threadCount);
+		}
+		this.stripperFactory = stripperFactory;
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Sets the number of pages of each task. By default, the pages are split into 4 tasks per
+	 * thread.
+	 *
+	 * @param pagesPerTask The number of pages, or 0 for the default.
+	 */
+	public void setPagesPerTask(int pagesPerTask)
+	{
+		if (pagesPerTask < 0)
+		{
+			throw new IllegalArgumentException("pagesPerTask must not be negative, got " + pagesPerTask);
+		}
+		this.pagesPerTask = pagesPerTask;
+	}
+
+	/**
+	 * This will return the text of each page of a document, using a thread pool of its own.
+	 *
+	 * @param document The document to get the text from.
+	 * @return The text of each page, in page order.
+	 * @throws IOException If the text of a page could not be extracted.
+	 */
+	public List<String> getPageTexts(PDDocument document) throws IOException
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try
+		{
+			return getPageTexts(document, executor);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * This will return the text of each page of a document, running a task per thread on the
+	 * given executor.
+	 *
+	 * @param document The document to get the text from.
+	 * @param executor The executor to run the tasks on.
+	 * @return The text of each page, in page order.
+	 * @throws IOException If the text of a page could not be extracted.
+	 */
+	public List<String> getPageTexts(PDDocument document, Executor executor) throws IOException
+	{
+		Extraction extraction = start(document, executor);
+		List<String> texts = new ArrayList<String>(extraction.pages.size());
+		for (int task = 0; task < extraction.taskCount; task++)
+		{
+			texts.addAll(Arrays.asList(extraction.awaitTask(task)));
+		}
+		extraction.awaitWorkers();
+		return texts;
+	}
+
+	/**
+	 * This will return the text of a document, using a thread pool of its own.
+	 *
+	 * @param document The document to get the text from.
+	 * @return The text of the document.
+	 * @throws IOException If the text of a page could not be extracted.
+	 */
+	public String getText(PDDocument document) throws IOException
+	{
+		StringWriter output = new StringWriter();
+		writeText(document, output);
+		return output.toString();
+	}
+
+	/**
+	 * This will write the text of a document, using a thread pool of its own. The text of each
+	 * page is written as soon as it and the pages before it have been extracted.
+	 *
+	 * @param document The document to get the text from.
+	 * @param output The location to put the text.
+	 * @throws IOException If the text of a page could not be extracted or written.
+	 */
+	public void writeText(PDDocument document, Writer output) throws IOException
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try
+		{
+			writeText(document, output, executor);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * This will write the text of a document, running a task per thread on the given executor.
+	 * The text of each page is written as soon as it and the pages before it have been extracted.
+	 *
+	 * @param document The document to get the text from.
+	 * @param output The location to put the text.
+	 * @param executor The executor to run the tasks on.
+	 * @throws IOException If the text of a page could not be extracted or written.
+	 */
+	public void writeText(PDDocument document, Writer output, Executor executor)
+			throws IOException
+	{
+		Extraction extraction = start(document, executor);
+		try
+		{
+			for (int task = 0; task < extraction.taskCount; task++)
+			{
+				for (String text : extraction.awaitTask(task))
+				{
+					output.write(text);
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			extraction.cancel();
+			extraction.awaitWorkers();
+			throw e;
+		}
+		extraction.awaitWorkers();
+	}
+
+	private Extraction start(PDDocument document, Executor executor) throws IOException
+	{
+		// the page tree is walked once here, the threads only read the pages
+		List<PDPage> pages = new ArrayList<PDPage>();
+		for (PDPage page : document.getPages())
+		{
+			pages.add(page);
+		}
+		int taskSize = pagesPerTask;
+		if (taskSize == 0)
+		{
+			int taskCount = threadCount * TASKS_PER_THREAD;
+			taskSize = Math.max(1, (pages.size() + taskCount - 1) / taskCount);
+		}
+		Extraction extraction = new Extraction(document, pages, taskSize);
+
+		int workerCount = Math.min(threadCount, extraction.taskCount);
+		for (int i = 0; i < workerCount; i++)
+		{
+			extraction.addWorker();
+			try
+			{
+				executor.execute(extraction);
+			}
+			catch (RejectedExecutionException e)
+			{
+				extraction.removeWorker();
+				extraction.cancel();
+				extraction.awaitWorkers();
+				throw e;
+			}
+		}
+		return extraction;
+	}
+
+	/**
+	 * The state of one extraction, shared by its workers and the thread collecting the texts.
+	 * Each worker takes the next task until there are none left.
+	 */
+	private final class Extraction implements Runnable
+	{
+		private final PDDocument document;
+		private final List<PDPage> pages;
+		private final int taskSize;
+		private final int taskCount;
+		private final AtomicInteger nextTask = new AtomicInteger();
+
+		// guarded by this
+		private final String[][] results;
+		private int workers;
+		private Throwable failure;
+		private boolean cancelled;
+
+		Extraction(PDDocument document, List<PDPage> pages, int taskSize)
+		{
+			this.document = document;
+			this.pages = pages;
+			this.taskSize = taskSize;
+			this.taskCount = (pages.size() + taskSize - 1) / taskSize;
+			this.results = new String[taskCount][];
+		}
+
+		@Override
+		public void run()
+		{
+			try
+			{
+				PDFTextStripper stripper = stripperFactory.createStripper();
+				int task;
+				while (!isStopped() && (task = nextTask.getAndIncrement()) < taskCount)
+				{
+					int first = task * taskSize;
+					int end = Math.min(first + taskSize, pages.size());
+					String[] texts = stripper.getPageTexts(document, pages.subList(first, end),
+							first + 1);
+					synchronized (this)
+					{
+						results[task] = texts;
+						notifyAll();
+					}
+				}
+			}
+			catch (Throwable t)
+			{
+				synchronized (this)
+				{
+					if (failure == null)
+					{
+						failure = t;
+					}
+				}
+			}
+			finally
+			{
+				removeWorker();
+			}
+		}
+
+		synchronized void addWorker()
+		{
+			workers++;
+		}
+
+		synchronized void removeWorker()
+		{
+			workers--;
+			notifyAll();
+		}
+
+		synchronized void cancel()
+		{
+			cancelled = true;
+		}
+
+		private synchronized boolean isStopped()
+		{
+			return cancelled || failure != null;
+		}
+
+		/**
+		 * Waits for the texts of a task, and hands them over to the caller.
+		 */
+		synchronized String[] awaitTask(int task) throws IOException
+		{
+			try
+			{
+				while (results[task] == null && failure == null && workers > 0)
+				{
+					wait();
+				}
+			}
+			catch (InterruptedException e)
+			{
+				cancelled = true;
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while extracting text");
+			}
+			String[] texts = results[task];
+			if (texts == null)
+			{
+				awaitWorkers();
+				throw toIOException(failure);
+			}
+			results[task] = null;
+			return texts;
+		}
+
+		/**
+		 * Waits until no worker uses the document anymore.
+		 */
+		synchronized void awaitWorkers() throws InterruptedIOException
+		{
+			try
+			{
+				while (workers > 0)
+				{
+					wait();
+				}
+			}
+			catch (InterruptedException e)
+			{
+				cancelled = true;
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while extracting text");
+			}
+		}
+
+		private IOException toIOException(Throwable t)
+		{
+			if (t instanceof IOException)
+			{
+				return (IOException) t;
+			}
+			if (t instanceof RuntimeException)
+			{
+				throw (RuntimeException) t;
+			}
+			if (t instanceof Error)
+			{
+				throw (Error) t;
+			}
+			// no worker failed but none is left, e.g. the executor dropped the tasks
+			return new IOException("Text extraction stopped before all pages were extracted", t);
+		}
+	}
+}
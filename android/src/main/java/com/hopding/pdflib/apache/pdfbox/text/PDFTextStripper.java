@@ -6,22 +6,15 @@ import java.io.Writer;
 import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.SortedMap;
-import java.util.SortedSet;
-import java.util.TreeMap;
-import java.util.TreeSet;
 import java.util.Vector;
 import java.util.regex.Pattern;
 
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDDocument;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDPage;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDPageTree;
-import com.hopding.pdflib.apache.pdfbox.pdmodel.common.PDRectangle;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.common.PDStream;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.interactive.pagenavigation.PDThreadBead;
@@ -141,7 +134,8 @@ public class PDFTextStripper extends PDFTextStreamEngine
 	private float spacingTolerance = .5f;
 	private float averageCharTolerance = .3f;
 
-	private List<PDThreadBead> pageArticles = null;
+	// the article beads of the current page
+	private BeadGrid pageBeads = null;
 
 	/**
 	 * The charactersByArticle is used to extract text by article divisions.  For example
@@ -160,8 +154,7 @@ public class PDFTextStripper extends PDFTextStreamEngine
 	 */
 	protected Vector<List<TextPosition>> charactersByArticle = new Vector<List<TextPosition>>();
 
-	private Map<String, TreeMap<Float, TreeSet<Float>>> characterListMapping =
-			new HashMap<String, TreeMap<Float, TreeSet<Float>>>();
+	private final GlyphGrid shownGlyphs = new GlyphGrid();
 
 	protected PDDocument document;
 	protected Writer output;
@@ -203,10 +196,7 @@ public class PDFTextStripper extends PDFTextStreamEngine
 		{
 			charactersByArticle.clear();
 		}
-		if (characterListMapping != null)
-		{
-			characterListMapping.clear();
-		}
+		shownGlyphs.clear();
 		startBookmark = null;
 		endBookmark = null;
 	}
@@ -224,6 +214,48 @@ public class PDFTextStripper extends PDFTextStreamEngine
 		resetEngine();
 		document = doc;
 		output = outputStream;
+		applyMoreFormatting();
+		startDocument(document);
+		processPages(document.getPages());
+		endDocument(document);
+	}
+
+	/**
+	 * This will extract the text of some pages of a document, each page on its own, so that the
+	 * pages of a document can be split between several strippers and the texts joined in page
+	 * order. startDocument and endDocument are not called.
+	 *
+	 * @param doc The document the pages belong to.
+	 * @param pages The pages to get the text from.
+	 * @param firstPageNumber The 1-based number of the first of the pages in the document.
+	 * @return The text of each page, empty for pages outside of the page range.
+	 *
+	 * @throws IOException If there is an error parsing the text.
+	 */
+	String[] getPageTexts(PDDocument doc, List<PDPage> pages, int firstPageNumber)
+			throws IOException
+	{
+		resetEngine();
+		document = doc;
+		applyMoreFormatting();
+		String[] texts = new String[pages.size()];
+		for (int i = 0; i < texts.length; i++)
+		{
+			PDPage page = pages.get(i);
+			StringWriter pageOutput = new StringWriter();
+			output = pageOutput;
+			currentPageNo = firstPageNumber + i;
+			if (page.getStream() != null)
+			{
+				processPage(page);
+			}
+			texts[i] = pageOutput.toString();
+		}
+		return texts;
+	}
+
+	private void applyMoreFormatting()
+	{
 		if (getAddMoreFormatting()) 
 		{
 			paragraphEnd = lineSeparator;
@@ -231,9 +263,6 @@ public class PDFTextStripper extends PDFTextStreamEngine
 			articleStart = lineSeparator;
 			articleEnd = lineSeparator;
 		}
-		startDocument(document);
-		processPages(document.getPages());
-		endDocument(document);
 	}
 
 	/**
@@ -311,7 +340,8 @@ public class PDFTextStripper extends PDFTextStreamEngine
 				(endBookmarkPageNumber == -1 || currentPageNo <= endBookmarkPageNumber))
 		{
 			startPage(page);
-			pageArticles = page.getThreadBeads();
+			List<PDThreadBead> pageArticles = page.getThreadBeads();
+			pageBeads = new BeadGrid(pageArticles);
 			int numberOfArticleSections = 1 + pageArticles.size() * 2;
 			if (!shouldSeparateByBeads)
 			{
@@ -330,7 +360,7 @@ public class PDFTextStripper extends PDFTextStreamEngine
 					charactersByArticle.set(i, new ArrayList<TextPosition>());
 				}
 			}
-			characterListMapping.clear();
+			shownGlyphs.clear();
 			super.processPage(page);
 			writePage();
 			endPage(page);
@@ -774,13 +804,6 @@ public class PDFTextStripper extends PDFTextStreamEngine
 			String textCharacter = text.getUnicode();
 			float textX = text.getX();
 			float textY = text.getY();
-			TreeMap<Float, TreeSet<Float>> sameTextCharacters =
-					characterListMapping.get(textCharacter);
-			if (sameTextCharacters == null)
-			{
-				sameTextCharacters = new TreeMap<Float, TreeSet<Float>>();
-				characterListMapping.put(textCharacter, sameTextCharacters);
-			}
 			// RDD - Here we compute the value that represents the end of the rendered
 			// text.  This value is used to determine whether subsequent text rendered
 			// on the same line overwrites the current text.
@@ -791,100 +814,25 @@ public class PDFTextStripper extends PDFTextStreamEngine
 			// the TJ just backs up to compensate after each character).  Also, we subtract
 			// an amount to allow for kerning (a percentage of the width of the last
 			// character).
-			boolean suppressCharacter = false;
 			float tolerance = text.getWidth()/textCharacter.length() / 3.0f;
-
-			SortedMap<Float, TreeSet<Float>> xMatches = sameTextCharacters.subMap(textX - tolerance,
-					textX + tolerance);
-			for (TreeSet<Float> xMatch : xMatches.values()) 
-			{
-				SortedSet<Float> yMatches = xMatch.subSet(textY - tolerance , textY + tolerance);
-				if (!yMatches.isEmpty()) 
-				{
-					suppressCharacter = true;
-					break;
-				}
-			}
-			if (!suppressCharacter)
+			if (!shownGlyphs.containsNear(textCharacter, textX, textY, tolerance))
 			{
-				TreeSet<Float> ySet = sameTextCharacters.get(textX);
-				if (ySet == null) 
-				{
-					ySet = new TreeSet<Float>();
-					sameTextCharacters.put(textX,  ySet);
-				}
-				ySet.add(textY);
+				shownGlyphs.add(textCharacter, textX, textY);
 				showCharacter = true;
 			}
 		}
 		if (showCharacter)
 		{
 			// if we are showing the character then we need to determine which article it belongs to
-			int foundArticleDivisionIndex = -1;
-			int notFoundButFirstLeftAndAboveArticleDivisionIndex = -1;
-			int notFoundButFirstLeftArticleDivisionIndex = -1;
-			int notFoundButFirstAboveArticleDivisionIndex = -1;
-			float x = text.getX();
-			float y = text.getY();
-			if (shouldSeparateByBeads)
-			{
-				for (int i = 0; i < pageArticles.size() && foundArticleDivisionIndex == -1; i++)
-				{
-					PDThreadBead bead = pageArticles.get(i);
-					if (bead != null)
-					{
-						PDRectangle rect = bead.getRectangle();
-						if (rect.contains(x, y))
-						{
-							foundArticleDivisionIndex = i * 2 + 1;
-						}
-						else if ((x < rect.getLowerLeftX() ||
-								y < rect.getUpperRightY()) &&
-								notFoundButFirstLeftAndAboveArticleDivisionIndex == -1)
-						{
-							notFoundButFirstLeftAndAboveArticleDivisionIndex = i * 2;
-						}
-						else if (x < rect.getLowerLeftX() &&
-								notFoundButFirstLeftArticleDivisionIndex == -1)
-						{
-							notFoundButFirstLeftArticleDivisionIndex = i * 2;
-						}
-						else if (y < rect.getUpperRightY() &&
-								notFoundButFirstAboveArticleDivisionIndex == -1)
-						{
-							notFoundButFirstAboveArticleDivisionIndex = i * 2;
-						}
-					}
-					else
-					{
-						foundArticleDivisionIndex = 0;
-					}
-				}
-			}
-			else
-			{
-				foundArticleDivisionIndex = 0;
-			}
 			int articleDivisionIndex;
-			if (foundArticleDivisionIndex != -1)
-			{
-				articleDivisionIndex = foundArticleDivisionIndex;
-			}
-			else if (notFoundButFirstLeftAndAboveArticleDivisionIndex != -1)
-			{
-				articleDivisionIndex = notFoundButFirstLeftAndAboveArticleDivisionIndex;
-			}
-			else if (notFoundButFirstLeftArticleDivisionIndex != -1)
-			{
-				articleDivisionIndex = notFoundButFirstLeftArticleDivisionIndex;
-			}
-			else if (notFoundButFirstAboveArticleDivisionIndex != -1)
+			if (shouldSeparateByBeads)
 			{
-				articleDivisionIndex = notFoundButFirstAboveArticleDivisionIndex;
+				articleDivisionIndex = pageBeads.getArticleDivisionIndex(text.getX(), text.getY(),
+						charactersByArticle.size() - 1);
 			}
 			else
 			{
-				articleDivisionIndex = charactersByArticle.size() - 1;
+				articleDivisionIndex = 0;
 			}
 
 			List<TextPosition> textList = charactersByArticle.get(articleDivisionIndex);
@@ -0,0 +1,208 @@
+package com.hopding.pdflib.apache.pdfbox.util;
+
+import java.math.BigDecimal;
+
+/**
+ * Utility functions for writing numbers in the plain decimal notation of PDF
+ * without going through String or BigDecimal.
+ */
+public final class NumberFormatUtil
+{
+    private NumberFormatUtil() {}
+
+    /**
+     * Size of a buffer large enough for any float written by {@link #formatFloat}.
+     */
+    public static final int MAX_FLOAT_LENGTH = 64;
+
+    // fraction digits tried before falling back to BigDecimal, 10^10 is still exact as a float
+    private static final int MAX_FRACTION_DIGITS = 10;
+
+    // scaled values have to be exact floats for the round trip check to be exact
+    private static final double MAX_SCALED = 1 << 24;
+
+    // scaled values which can be rounded to a long without losing digits of the float
+    private static final double MAX_ROUNDED = 1e18;
+
+    private static final float[] FLOAT_POWERS_OF_TEN = new float[MAX_FRACTION_DIGITS + 1];
+    private static final double[] DOUBLE_POWERS_OF_TEN = new double[MAX_FRACTION_DIGITS + 1];
+
+    static
+    {
+        double power = 1;
+        for (int i = 0; i <= MAX_FRACTION_DIGITS; i++)
+        {
+            DOUBLE_POWERS_OF_TEN[i] = power;
+            FLOAT_POWERS_OF_TEN[i] = (float) power;
+            power *= 10;
+        }
+    }
+
+    /**
+     * Returns the float value of the given number of decimal digits with the decimal point placed
+     * before the given number of trailing digits, or NaN if the result can't be computed exactly
+     * from them. The result is the same as that of {@link Float#parseFloat(String)}.
+     */
+    public static float toFloat(long digits, int fractionDigits)
+    {
+        if (digits < MAX_SCALED && fractionDigits <= MAX_FRACTION_DIGITS)
+        {
+            // both are exact floats so a single division is rounded correctly
+            return digits / FLOAT_POWERS_OF_TEN[fractionDigits];
+        }
+        return Float.NaN;
+    }
+
+    /**
+     * Writes the shortest plain decimal representation of the value which reads back as the same
+     * float as ASCII into the given buffer. Integral values are written without a decimal point.
+     *
+     * @param value the value to be written, not NaN or infinite
+     * @param buffer the buffer, at least {@link #MAX_FLOAT_LENGTH} bytes long
+     * @return the number of bytes written
+     */
+    public static int formatFloat(float value, byte[] buffer)
+    {
+        if (Float.isNaN(value) || Float.isInfinite(value))
+        {
+            throw new IllegalArgumentException("Can't write " + value + " as a PDF number");
+        }
+
+        float abs = Math.abs(value);
+        for (int fractionDigits = 0; fractionDigits <= MAX_FRACTION_DIGITS; fractionDigits++)
+        {
+            double scaled = abs * DOUBLE_POWERS_OF_TEN[fractionDigits];
+            if (scaled >= MAX_SCALED)
+            {
+                break;
+            }
+            long digits = Math.round(scaled);
+            if (toFloat(digits, fractionDigits) == abs)
+            {
+                return formatDecimal(value < 0 && digits != 0, digits, fractionDigits, buffer);
+            }
+        }
+
+        // large values with fraction digits and very small values
+        String plain = new BigDecimal(String.valueOf(value)).toPlainString();
+        int length = plain.length();
+        if (plain.indexOf('.') >= 0)
+        {
+            while (plain.charAt(length - 1) == '0')
+            {
+                length--;
+            }
+            if (plain.charAt(length - 1) == '.')
+            {
+                length--;
+            }
+        }
+        for (int i = 0; i < length; i++)
+        {
+            buffer[i] = (byte) plain.charAt(i);
+        }
+        return length;
+    }
+
+    /**
+     * Writes the value as plain decimal ASCII into the given buffer with at most the given number
+     * of fraction digits. The shortest representation which reads back as the same float is
+     * written if it fits into that many digits, otherwise the value is rounded to them.
+     *
+     * @param value the value to be written, not NaN or infinite
+     * @param maxFractionDigits the maximum number of fraction digits, at most 10
+     * @param buffer the buffer, at least {@link #MAX_FLOAT_LENGTH} bytes long
+     * @return the number of bytes written
+     */
+    public static int formatFloat(float value, int maxFractionDigits, byte[] buffer)
+    {
+        if (Float.isNaN(value) || Float.isInfinite(value))
+        {
+            throw new IllegalArgumentException("Can't write " + value + " as a PDF number");
+        }
+
+        float abs = Math.abs(value);
+        int fractionDigits = Math.min(maxFractionDigits, MAX_FRACTION_DIGITS);
+        for (int i = 0; i <= fractionDigits; i++)
+        {
+            double scaled = abs * DOUBLE_POWERS_OF_TEN[i];
+            if (scaled >= MAX_SCALED)
+            {
+                break;
+            }
+            long digits = Math.round(scaled);
+            if (toFloat(digits, i) == abs)
+            {
+                return formatDecimal(value < 0 && digits != 0, digits, i, buffer);
+            }
+        }
+
+        // round to the maximum digits, the scaled double has far more precision than the float
+        while (fractionDigits > 0 && abs * DOUBLE_POWERS_OF_TEN[fractionDigits] >= MAX_ROUNDED)
+        {
+            fractionDigits--;
+        }
+        double scaled = abs * DOUBLE_POWERS_OF_TEN[fractionDigits];
+        if (scaled >= MAX_ROUNDED)
+        {
+            return formatFloat(value, buffer);
+        }
+        long digits = Math.round(scaled);
+        while (fractionDigits > 0 && digits % 10 == 0)
+        {
+            digits /= 10;
+            fractionDigits--;
+        }
+        return formatDecimal(value < 0 && digits != 0, digits, fractionDigits, buffer);
+    }
+
+    /**
+     * Writes the value as decimal ASCII into the given buffer.
+     *
+     * @param value the value to be written
+     * @param buffer the buffer, at least 11 bytes long
+     * @return the number of bytes written
+     */
+    public static int formatInt(int value, byte[] buffer)
+    {
+        return formatDecimal(value < 0, Math.abs((long) value), 0, buffer);
+    }
+
+    /**
+     * Writes the given number of decimal digits with the decimal point placed before the given
+     * number of trailing digits as ASCII into the given buffer.
+     *
+     * @return the number of bytes written
+     */
+    private static int formatDecimal(boolean negative, long digits, int fractionDigits, byte[] buffer)
+    {
+        int digitCount = 1;
+        for (long rest = digits / 10; rest != 0; rest /= 10)
+        {
+            digitCount++;
+        }
+        int integerDigits = Math.max(digitCount - fractionDigits, 1);
+        int length = (negative ? 1 : 0) + integerDigits + (fractionDigits > 0 ? fractionDigits + 1 : 0);
+
+        int pos = length;
+        for (int i = 0; i < fractionDigits; i++)
+        {
+            buffer[--pos] = (byte) ('0' + digits % 10);
+            digits /= 10;
+        }
+        if (fractionDigits > 0)
+        {
+            buffer[--pos] = '.';
+        }
+        for (int i = 0; i < integerDigits; i++)
+        {
+            buffer[--pos] = (byte) ('0' + digits % 10);
+            digits /= 10;
+        }
+        if (negative)
+        {
+            buffer[--pos] = '-';
+        }
+        return length;
+    }
+}
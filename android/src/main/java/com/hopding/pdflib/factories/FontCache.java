@@ -0,0 +1,166 @@
+package com.hopding.pdflib.factories;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+
+import com.hopding.pdflib.apache.fontbox.ttf.TTFParser;
+import com.hopding.pdflib.apache.fontbox.ttf.TrueTypeFont;
+import com.hopding.pdflib.apache.pdfbox.pdmodel.PDDocument;
+import com.hopding.pdflib.apache.pdfbox.pdmodel.font.PDFont;
+import com.hopding.pdflib.apache.pdfbox.pdmodel.font.PDType0Font;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the fonts used by text actions. Parsed TrueType fonts are shared
+ * process-wide, keyed by asset name, and each document embeds a given font
+ * only once so that its subset grows across all of the document's pages.
+ */
+public class FontCache {
+    // Total size of the font programs kept parsed in memory before the least
+    // recently used ones are evicted
+    private static final long MAX_CACHED_BYTES = 16 * 1024 * 1024;
+
+    private static AssetManager ASSET_MANAGER = null;
+    private static final LinkedHashMap<String, TrueTypeFont> TRUE_TYPE_FONTS =
+            new LinkedHashMap<String, TrueTypeFont>(16, 0.75f, true);
+    private static long cachedBytes = 0;
+    // Fonts used only to measure text, built on the cached TrueType fonts
+    private static final Map<String, MeasurementFont> MEASUREMENT_FONTS =
+            new HashMap<String, MeasurementFont>();
+
+    private final PDDocument document;
+    private final Map<String, PDFont> fonts = new HashMap<String, PDFont>();
+
+    public static void init(Context context) {
+        if (ASSET_MANAGER == null) {
+            ASSET_MANAGER = context.getApplicationContext().getAssets();
+        }
+    }
+
+    public FontCache(PDDocument document) {
+        this.document = document;
+    }
+
+    /**
+     * Returns the font with the given asset name, embedding it into the
+     * document the first time it is requested.
+     */
+    public PDFont getFont(String fontName) throws IOException {
+        PDFont font = fonts.get(fontName);
+        if (font == null) {
+            font = PDType0Font.load(document, getTrueTypeFont(fontName), true);
+            fonts.put(fontName, font);
+        }
+        return font;
+    }
+
+    /* ----- Process-wide TrueType font cache ----- */
+    public static TrueTypeFont getTrueTypeFont(String fontName) throws IOException {
+        synchronized (TRUE_TYPE_FONTS) {
+            TrueTypeFont ttf = TRUE_TYPE_FONTS.get(fontName);
+            if (ttf != null) return ttf;
+        }
+
+        // Parse outside of the lock, a concurrent load of the same font only costs a parse
+        TrueTypeFont ttf = new TTFParser().parseEmbedded(ASSET_MANAGER.open("fonts/" + fontName + ".ttf"));
+
+        synchronized (TRUE_TYPE_FONTS) {
+            TrueTypeFont cached = TRUE_TYPE_FONTS.get(fontName);
+            if (cached != null) return cached;
+
+            TRUE_TYPE_FONTS.put(fontName, ttf);
+            cachedBytes += ttf.getOriginalDataSize();
+            evict();
+        }
+        return ttf;
+    }
+
+    /**
+     * Returns a font for measuring text with the given asset name. It is
+     * shared by all callers and keeps the widths it has measured, so callers
+     * have to synchronize on it while measuring.
+     */
+    public static PDFont getMeasurementFont(String fontName) throws IOException {
+        synchronized (TRUE_TYPE_FONTS) {
+            MeasurementFont cached = MEASUREMENT_FONTS.get(fontName);
+            if (cached != null) return cached.font;
+        }
+
+        TrueTypeFont ttf = getTrueTypeFont(fontName);
+
+        synchronized (TRUE_TYPE_FONTS) {
+            MeasurementFont cached = MEASUREMENT_FONTS.get(fontName);
+            if (cached != null) return cached.font;
+
+            // The font's document is never saved, it is closed when the font is dropped.
+            // Measuring only reads the TrueType font, so a closed document doesn't
+            // affect callers still holding the font.
+            MeasurementFont measurementFont = new MeasurementFont(ttf);
+            if (TRUE_TYPE_FONTS.containsKey(fontName)) {
+                // Only kept as long as its TrueType font is cached
+                MEASUREMENT_FONTS.put(fontName, measurementFont);
+            } else {
+                measurementFont.close();
+            }
+            return measurementFont.font;
+        }
+    }
+
+    public static void clear() {
+        synchronized (TRUE_TYPE_FONTS) {
+            TRUE_TYPE_FONTS.clear();
+            for (MeasurementFont measurementFont : MEASUREMENT_FONTS.values()) {
+                measurementFont.close();
+            }
+            MEASUREMENT_FONTS.clear();
+            cachedBytes = 0;
+        }
+    }
+
+    // Drops least recently used fonts until the cache fits its budget, always
+    // keeping the most recent one. Evicted TrueType fonts are not closed, as
+    // documents still being generated may read from them when subsetting; the
+    // documents of their measurement fonts are.
+    private static void evict() {
+        Iterator<Map.Entry<String, TrueTypeFont>> it = TRUE_TYPE_FONTS.entrySet().iterator();
+        while (cachedBytes > MAX_CACHED_BYTES && TRUE_TYPE_FONTS.size() > 1) {
+            Map.Entry<String, TrueTypeFont> eldest = it.next();
+            cachedBytes -= eldest.getValue().getOriginalDataSize();
+            MeasurementFont measurementFont = MEASUREMENT_FONTS.remove(eldest.getKey());
+            if (measurementFont != null) {
+                measurementFont.close();
+            }
+            it.remove();
+        }
+    }
+
+    /**
+     * A font for measuring text along with the document it was created for.
+     */
+    private static final class MeasurementFont {
+        private final PDDocument document = new PDDocument();
+        private final PDFont font;
+
+        MeasurementFont(TrueTypeFont ttf) throws IOException {
+            try {
+                font = PDType0Font.load(document, ttf, true);
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        void close() {
+            try {
+                document.close();
+            } catch (IOException e) {
+                // Nothing is written to the document, there is nothing to lose
+            }
+        }
+    }
+}
@@ -6,7 +6,9 @@ import com.facebook.react.bridge.ReadableMap;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDDocument;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDPage;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 
 /**
@@ -17,11 +19,13 @@ import java.io.IOException;
 public class PDDocumentFactory {
 
     private PDDocument document;
+    private FontCache fonts;
     private String path;
 
     private PDDocumentFactory(PDDocument document, ReadableMap documentActions) {
         this.path     = documentActions.getString("path");
         this.document = document;
+        this.fonts    = new FontCache(document);
     }
 
             /* ----- Factory methods ----- */
@@ -29,13 +33,22 @@ public class PDDocumentFactory {
         PDDocument document = new PDDocument();
         PDDocumentFactory factory = new PDDocumentFactory(document, documentActions);
 
-        factory.addPages(documentActions.getArray("pages"));
+        // Write each page out as soon as it's built, so memory use doesn't
+        // grow with the number of pages. write() completes the file.
+        boolean built = false;
+        try {
+            document.beginSave(new BufferedOutputStream(new FileOutputStream(factory.path)));
+            factory.addPages(documentActions.getArray("pages"));
+            built = true;
+        } finally {
+            if (!built) document.close();
+        }
         return document;
     }
 
     public static PDDocument modify(ReadableMap documentActions) throws NoSuchKeyException, IOException {
         String path = documentActions.getString("path");
-        PDDocument document = PDDocument.load(new File(path));
+        PDDocument document = PDDocument.loadLazily(new File(path));
         PDDocumentFactory factory = new PDDocumentFactory(document, documentActions);
 
         factory.modifyPages(documentActions.getArray("modifyPages"));
@@ -46,21 +59,49 @@ public class PDDocumentFactory {
             /* ----- Document actions (based on JSON structures sent over bridge) ----- */
     private void addPages(ReadableArray pages) throws IOException {
         for(int i = 0; i < pages.size(); i++) {
-            PDPage page = PDPageFactory.create(document, pages.getMap(i));
+            PDPage page = PDPageFactory.create(document, fonts, pages.getMap(i));
             document.addPage(page);
+            if (document.isSaving()) {
+                document.savePage(page);
+            }
         }
     }
 
     private void modifyPages(ReadableArray pages) throws IOException {
         for(int i = 0; i < pages.size(); i++) {
-            PDPageFactory.modify(document, pages.getMap(i));
+            PDPageFactory.modify(document, fonts, pages.getMap(i));
         }
     }
 
             /* ----- Static utilities ----- */
     public static String write(PDDocument document, String path) throws IOException {
-        document.save(path);
-        document.close();
+        if (document.isSaving()) {
+            try {
+                document.endSave();
+            } finally {
+                document.close();
+            }
+            return path;
+        }
+
+        // A modified document is saved as an incremental update, appending only
+        // what changed to the original bytes. It's loaded lazily and still reads
+        // from its source file while being saved, so write next to it and
+        // replace it afterwards.
+        File target = new File(path);
+        File temp = new File(target.getAbsoluteFile().getParentFile(), target.getName() + ".tmp");
+        boolean saved = false;
+        try {
+            document.saveIncremental(new BufferedOutputStream(new FileOutputStream(temp)));
+            saved = true;
+        } finally {
+            document.close();
+            if (!saved) temp.delete();
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Could not replace " + path);
+        }
         return path;
     }
 }
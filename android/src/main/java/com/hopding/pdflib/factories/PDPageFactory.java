@@ -3,19 +3,17 @@ package com.hopding.pdflib.factories;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.support.annotation.RequiresPermission;
-import android.content.Context;
-import android.content.res.AssetManager;
 
 import com.facebook.imagepipeline.core.ImagePipelineFactory;
 import com.facebook.react.bridge.NoSuchKeyException;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.hopding.pdflib.apache.pdfbox.pdmodel.DisplayList;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDDocument;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDPage;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.PDPageContentStream;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.common.PDRectangle;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.font.PDFont;
-import com.hopding.pdflib.apache.pdfbox.pdmodel.font.PDType0Font;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
 import com.hopding.pdflib.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
@@ -35,24 +33,19 @@ public class PDPageFactory {
     protected PDDocument document;
     protected PDPage page;
     protected PDPageContentStream stream;
-    private static AssetManager ASSET_MANAGER = null;
+    protected FontCache fonts;
 
-    public static void init(Context context){
-        if (ASSET_MANAGER == null) {
-            ASSET_MANAGER = context.getApplicationContext().getAssets();
-        }
-    }
-
-    private PDPageFactory(PDDocument document, PDPage page, boolean appendContent) throws IOException {
+    private PDPageFactory(PDDocument document, FontCache fonts, PDPage page, boolean appendContent) throws IOException {
         this.document = document;
+        this.fonts    = fonts;
         this.page     = page;
         this.stream   = new PDPageContentStream(document, page, appendContent, true, true);
     }
 
             /* ----- Factory methods ----- */
-    protected static PDPage create(PDDocument document, ReadableMap pageActions) throws IOException {
+    protected static PDPage create(PDDocument document, FontCache fonts, ReadableMap pageActions) throws IOException {
         PDPage page = new PDPage();
-        PDPageFactory factory = new PDPageFactory(document, page, false);
+        PDPageFactory factory = new PDPageFactory(document, fonts, page, false);
 
         factory.setMediaBox(pageActions.getMap("mediaBox"));
         factory.applyActions(pageActions);
@@ -60,10 +53,10 @@ public class PDPageFactory {
         return page;
     }
 
-    protected static PDPage modify(PDDocument document, ReadableMap pageActions) throws IOException {
+    protected static PDPage modify(PDDocument document, FontCache fonts, ReadableMap pageActions) throws IOException {
         int pageIndex = pageActions.getInt("pageIndex");
         PDPage page   = document.getPage(pageIndex);
-        PDPageFactory factory = new PDPageFactory(document, page, true);
+        PDPageFactory factory = new PDPageFactory(document, fonts, page, true);
 
         factory.applyActions(pageActions);
         factory.stream.close();
@@ -83,6 +76,8 @@ public class PDPageFactory {
                 this.drawRectangle(action);
             else if (type.equals("image"))
                 this.drawImage(action);
+            else if (type.equals("displayList"))
+                this.drawDisplayList(action);
         }
     }
 
@@ -100,7 +95,7 @@ public class PDPageFactory {
         Integer[] coords = getCoords(textActions, true);
         int[] rgbColor   = hexStringToRGB(textActions.getString("color"));
 
-        PDFont font = PDType0Font.load(document, ASSET_MANAGER.open("fonts/" + fontName + ".ttf"));
+        PDFont font = fonts.getFont(fontName);
 
         stream.beginText();
         stream.setNonStrokingColor(rgbColor[0], rgbColor[1], rgbColor[2]);
@@ -130,8 +125,7 @@ public class PDPageFactory {
             // Create PDImageXObject
             PDImageXObject image = null;
             if (imageType.equals("jpg")) {
-                Bitmap bmpImage = BitmapFactory.decodeFile(imagePath);
-                image = JPEGFactory.createFromImage(document, bmpImage);
+                image = JPEGFactory.createFromFile(document, new File(imagePath));
             }
             else { // imageType.equals("png") == true
                 InputStream in = new FileInputStream(new File(imagePath));
@@ -149,6 +143,39 @@ public class PDPageFactory {
         }
     }
 
+    // Draws many shapes and texts sent as packed arrays in a single action, so that
+    // large tables don't need one action per cell
+    private void drawDisplayList(ReadableMap listActions) throws NoSuchKeyException, IOException {
+        ReadableArray items = listActions.getArray("items");
+        DisplayList list = new DisplayList();
+        for (int i = 0; i < items.size(); i++) {
+            ReadableMap item = items.getMap(i);
+            String kind = item.getString("kind");
+            int color = hexStringToInt(item.getString("color"));
+
+            if (kind.equals("rectangles")) {
+                float[] rects = toFloatArray(item.getArray("rects"));
+                list.fillRects(rects, 0, rects.length / 4, color);
+            }
+            else if (kind.equals("polyline")) {
+                float[] points = toFloatArray(item.getArray("points"));
+                float lineWidth = (float) item.getDouble("lineWidth");
+                list.strokePolyline(points, 0, points.length / 2, lineWidth, color);
+            }
+            else if (kind.equals("texts")) {
+                ReadableArray valueArray = item.getArray("values");
+                String[] values = new String[valueArray.size()];
+                for (int j = 0; j < values.length; j++) {
+                    values[j] = valueArray.getString(j);
+                }
+                float[] positions = toFloatArray(item.getArray("positions"));
+                PDFont font = fonts.getFont(item.getString("fontName"));
+                list.showTexts(values, positions, font, item.getInt("fontSize"), color);
+            }
+        }
+        list.draw(stream);
+    }
+
             /* ----- Static utilities ----- */
     private static Integer[] getDims(ReadableMap dimsMap, boolean required) {
         return getIntegerKeyPair(dimsMap, "width", "height", required);
@@ -170,6 +197,19 @@ public class PDPageFactory {
         return new Integer[] { val1, val2 };
     }
 
+    private static float[] toFloatArray(ReadableArray array) {
+        float[] values = new float[array.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) array.getDouble(i);
+        }
+        return values;
+    }
+
+    // Same as hexStringToRGB, but packed into a single int as 0xRRGGBB
+    private static int hexStringToInt(String hexString) {
+        return Integer.parseInt(hexString.substring(1, 7), 16);
+    }
+
     // We get a color as a hex string, e.g. "#F0F0F0" - so parse into RGB vals
     private static int[] hexStringToRGB(String hexString) {
         int colorR = Integer.valueOf( hexString.substring( 1, 3 ), 16 );
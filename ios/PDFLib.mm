@@ -167,6 +167,31 @@ RCT_REMAP_METHOD(measureText,
     }
 }
 
+RCT_REMAP_METHOD(measureTexts,
+                :(NSArray*)texts
+                :(NSString*)fontName
+                :(NSInteger*)fontSize
+                 resolverMeasureTexts:(RCTPromiseResolveBlock)resolve
+                 rejecterMeasureTexts:(RCTPromiseRejectBlock)reject)
+{
+    try {
+        PDFWriter pdfWriter;
+        NSString *fontPath = [[NSBundle mainBundle] pathForResource:fontName ofType:@".ttf"];
+        PDFUsedFont *font  = pdfWriter.GetFontForFile(fontPath.UTF8String);
+        NSMutableArray *results = [[NSMutableArray alloc] initWithCapacity:texts.count];
+        for (NSString *text in texts) {
+            PDFUsedFont::TextMeasures measures = font->CalculateTextDimensions(text.UTF8String, (long)fontSize);
+            [results addObject:[[NSDictionary alloc] initWithObjectsAndKeys
+              :@(measures.width),@"width"
+              ,@(measures.height),@"height"
+              ,nil]];
+        }
+        resolve(results);
+    } catch (NSException *exception) {
+        reject(@"error", exception.reason, nil);
+    }
+}
+
 @end
 
 
@@ -35,12 +35,14 @@ private:
     void         drawRectangle      (NSDictionary* rectActions);
     void         drawImage          (NSDictionary* imageActions);
     void         drawImageAsPDF     (NSDictionary* imageActions);
+    void         drawDisplayList    (NSDictionary* listActions);
     
     static NumberPair getCoords         (NSDictionary* coordsMap);
     static NumberPair getDims           (NSDictionary* coordsMap);
     static NumberPair getNumberKeyPair  (NSDictionary* map, NSString* key1, NSString* key2);
     static NSData*    convertImageToPDF (UIImage* image);
     static unsigned   hexIntFromString  (NSString* hexStr);
+    static void       setRGB            (AbstractContentContext* context, unsigned hexColor, bool stroking);
 
 
     
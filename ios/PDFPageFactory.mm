@@ -101,6 +101,9 @@ void PDFPageFactory::applyActions (NSDictionary* actions) {
         else if([type isEqualToString:@"image"]) {
             drawImage(action);
         }
+        else if([type isEqualToString:@"displayList"]) {
+            drawDisplayList(action);
+        }
     }
 }
 
@@ -259,6 +262,103 @@ void PDFPageFactory::drawImageAsPDF (NSDictionary* imageActions) {
     }
 }
 
+// Draws many shapes and texts sent as packed arrays in a single action. Colors, line widths and
+// fonts are only set when they change, and all of it is drawn in its own graphics state.
+void PDFPageFactory::drawDisplayList (NSDictionary* listActions) {
+    NSArray* items = [RCTConvert NSArray:listActions[@"items"]];
+    long long fillColor   = -1;
+    long long strokeColor = -1;
+    double lineWidth      = -1;
+    PDFUsedFont* font     = nullptr;
+    double fontSize       = -1;
+
+    context->q();
+    for (NSDictionary* item in items) {
+        NSString* kind = [RCTConvert NSString:item[@"kind"]];
+        unsigned color = hexIntFromString(item[@"color"]);
+
+        if ([kind isEqualToString:@"rectangles"]) {
+            NSArray* rects = [RCTConvert NSArray:item[@"rects"]];
+            if (color != fillColor) {
+                setRGB(context, color, false);
+                fillColor = color;
+            }
+            for (NSUInteger i = 0; i + 3 < [rects count]; i += 4) {
+                context->re([rects[i] doubleValue],
+                            [rects[i + 1] doubleValue],
+                            [rects[i + 2] doubleValue],
+                            [rects[i + 3] doubleValue]);
+            }
+            context->f();
+        }
+        else if ([kind isEqualToString:@"polyline"]) {
+            NSArray* points = [RCTConvert NSArray:item[@"points"]];
+            double width    = [RCTConvert double:item[@"lineWidth"]];
+            if (color != strokeColor) {
+                setRGB(context, color, true);
+                strokeColor = color;
+            }
+            if (width != lineWidth) {
+                context->w(width);
+                lineWidth = width;
+            }
+            for (NSUInteger i = 0; i + 1 < [points count]; i += 2) {
+                if (i == 0) {
+                    context->m([points[i] doubleValue], [points[i + 1] doubleValue]);
+                }
+                else {
+                    context->l([points[i] doubleValue], [points[i + 1] doubleValue]);
+                }
+            }
+            context->S();
+        }
+        else if ([kind isEqualToString:@"texts"]) {
+            NSArray* values    = [RCTConvert NSArray:item[@"values"]];
+            NSArray* positions = [RCTConvert NSArray:item[@"positions"]];
+            NSString* fontName = [RCTConvert NSString:item[@"fontName"]];
+            double size        = [RCTConvert double:item[@"fontSize"]];
+            NSString* fontPath = [[NSBundle mainBundle] pathForResource:fontName ofType:@".ttf"];
+            PDFUsedFont* itemFont = pdfWriter->GetFontForFile(fontPath.UTF8String);
+
+            if (color != fillColor) {
+                setRGB(context, color, false);
+                fillColor = color;
+            }
+            context->BT();
+            if (itemFont != font || size != fontSize) {
+                context->Tf(itemFont, size);
+                font     = itemFont;
+                fontSize = size;
+            }
+            // Td moves relative to the previous line, which starts at the origin
+            double x = 0;
+            double y = 0;
+            for (NSUInteger i = 0; i < [values count] && 2 * i + 1 < [positions count]; i++) {
+                double nextX = [positions[2 * i] doubleValue];
+                double nextY = [positions[2 * i + 1] doubleValue];
+                context->Td(nextX - x, nextY - y);
+                x = nextX;
+                y = nextY;
+                context->Tj([RCTConvert NSString:values[i]].UTF8String);
+            }
+            context->ET();
+        }
+    }
+    context->Q();
+}
+
+void PDFPageFactory::setRGB (AbstractContentContext* context, unsigned hexColor, bool stroking) {
+    double r = ((hexColor >> 16) & 0xFF) / 255.0;
+    double g = ((hexColor >> 8) & 0xFF) / 255.0;
+    double b = (hexColor & 0xFF) / 255.0;
+    if (stroking) {
+        context->RG(r, g, b);
+    }
+    else {
+        context->rg(r, g, b);
+    }
+}
+
 NSData* PDFPageFactory::convertImageToPDF (UIImage* image) {
     NSMutableData *pdfData = [[NSMutableData alloc] init];
     CGDataConsumerRef dataConsumer = CGDataConsumerCreateWithCFData((CFMutableDataRef)pdfData);
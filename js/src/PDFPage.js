@@ -28,10 +28,38 @@ export type ImageAction = {
   height?: number,
 };
 
+export type DisplayListItem =
+    {
+      kind: 'rectangles',
+      color: string,
+      rects: number[], // x, y, width, height of each rectangle
+    }
+  | {
+      kind: 'polyline',
+      color: string,
+      lineWidth: number,
+      points: number[], // x, y of each point
+    }
+  | {
+      kind: 'texts',
+      color: string,
+      fontName: string,
+      fontSize: number,
+      values: string[],
+      positions: number[], // x, y of each value
+    }
+  ;
+
+export type DisplayListAction = {
+  type: 'displayList',
+  items: DisplayListItem[],
+};
+
 export type PageActions =
     TextAction
   | RectangleAction
   | ImageAction
+  | DisplayListAction
   ;
 
 export type PageAction = {
@@ -125,6 +153,68 @@ export default class PDFPage {
     return this;
   }
 
+  // Consecutive batched draws are sent as the items of a single display list action
+  addDisplayListItem = (item: DisplayListItem) => {
+    const { actions } = this.page;
+    const last = actions[actions.length - 1];
+    if (last && last.type === 'displayList') {
+      last.items.push(item);
+    } else {
+      actions.push({ type: 'displayList', items: [item] });
+    }
+    return this;
+  }
+
+  drawRectangles = (
+    rects: number[], // x, y, width, height of each rectangle
+    options: { color?: string }={},
+  ) => {
+    if (rects.length % 4 !== 0) {
+      throw new Error('Rectangles must have 4 values each!');
+    }
+    return this.addDisplayListItem({
+      color: '#000000',
+      ...options,
+      kind: 'rectangles',
+      rects,
+    });
+  }
+
+  drawPolyline = (
+    points: number[], // x, y of each point
+    options: { color?: string, lineWidth?: number }={},
+  ) => {
+    if (points.length % 2 !== 0 || points.length < 4) {
+      throw new Error('A polyline needs at least 2 points with 2 values each!');
+    }
+    return this.addDisplayListItem({
+      color: '#000000',
+      lineWidth: 1,
+      ...options,
+      kind: 'polyline',
+      points,
+    });
+  }
+
+  drawTexts = (
+    values: string[],
+    positions: number[], // x, y of each value
+    options: { color?: string, fontSize?: number, fontName?: string }={},
+  ) => {
+    if (positions.length !== values.length * 2) {
+      throw new Error('Each text needs an x and a y position!');
+    }
+    return this.addDisplayListItem({
+      color: '#000000',
+      fontSize: 12,
+      fontName: 'Times New Roman',
+      ...options,
+      kind: 'texts',
+      values,
+      positions,
+    });
+  }
+
   drawImage = (
     imagePath: string,
     imageType: string,